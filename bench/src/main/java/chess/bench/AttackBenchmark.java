@@ -0,0 +1,35 @@
+package chess.bench;
+
+import chess.FEN;
+import chess.board.Board;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshing the list of attacked squares, which the GUI does after every move
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AttackBenchmark {
+
+    @Param({"start", "kiwipete", "middlegame", "endgame"})
+    public String position;
+
+    private Board board;
+
+    @Setup
+    public void setup() {
+        board = FEN.load(Positions.fen(position));
+    }
+
+    @Benchmark
+    public int updateAttackedSquares() {
+        board.updateAttackedSquares();
+        return board.attackedSquares.size();
+    }
+}
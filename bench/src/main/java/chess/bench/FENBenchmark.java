@@ -0,0 +1,41 @@
+package chess.bench;
+
+import chess.FEN;
+import chess.board.Board;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and writing FEN strings
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FENBenchmark {
+
+    @Param({"start", "kiwipete", "middlegame", "endgame"})
+    public String position;
+
+    private String fen;
+    private Board board;
+
+    @Setup
+    public void setup() {
+        fen = Positions.fen(position);
+        board = FEN.load(fen);
+    }
+
+    @Benchmark
+    public Board load() {
+        return FEN.load(fen);
+    }
+
+    @Benchmark
+    public String toFEN() {
+        return FEN.toFEN(board);
+    }
+}
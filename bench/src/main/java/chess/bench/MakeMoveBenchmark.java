@@ -0,0 +1,59 @@
+package chess.bench;
+
+import chess.FEN;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.PackedMove;
+import chess.board.Board;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Making and taking back every legal move in a position, both with packed moves and through the Move based API the
+ * GUI uses, which also checks legality and refreshes attacked squares and checks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MakeMoveBenchmark {
+
+    @Param({"start", "kiwipete", "middlegame", "endgame"})
+    public String position;
+
+    private Board board;
+    private int[] legalMoves;
+
+    @Setup
+    public void setup() {
+        board = FEN.load(Positions.fen(position));
+        legalMoves = MoveGenerator.generateLegalMoves(board);
+    }
+
+    @Benchmark
+    public long makeUndoPacked() {
+        long hash = 0;
+        for (int move : legalMoves) {
+            board.makeMove(move);
+            hash ^= board.getHash();
+            board.undoMove();
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public long makeUndoMove() {
+        long hash = 0;
+        for (int move : legalMoves) {
+            Move m = PackedMove.toMove(board, move);
+            if (board.makeLegalMove(m)) {
+                hash ^= board.getHash();
+                Board.undoMove(m);
+            }
+        }
+        return hash;
+    }
+}
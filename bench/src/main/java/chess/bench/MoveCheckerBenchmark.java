@@ -0,0 +1,66 @@
+package chess.bench;
+
+import chess.FEN;
+import chess.MoveChecker;
+import chess.MoveGenerator;
+import chess.PackedMove;
+import chess.board.Bitboard;
+import chess.board.Board;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Legality checking as the GUI does it, one piece or one move at a time through MoveChecker, against generating every
+ * legal move at once with MoveGenerator. Each operation covers the whole position.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveCheckerBenchmark {
+
+    @Param({"start", "kiwipete", "middlegame", "endgame"})
+    public String position;
+
+    private Board board;
+    private int[] pieceSquares;
+    private int[] legalMoves;
+    private final int[] buffer = new int[MoveGenerator.MAX_MOVES];
+
+    @Setup
+    public void setup() {
+        board = FEN.load(Positions.fen(position));
+        int colour = board.whiteToMove ? 0 : 1;
+        pieceSquares = new int[board.getPieceCount(colour)];
+        for (int i = 0; i < pieceSquares.length; i++) {
+            pieceSquares[i] = board.getPieceSquare(colour, i);
+        }
+        legalMoves = MoveGenerator.generateLegalMoves(board);
+    }
+
+    @Benchmark
+    public void getLegalMoves(Blackhole bh) {
+        for (int square : pieceSquares) {
+            bh.consume(MoveChecker.getLegalMoves(board, Bitboard.fileOf(square), Bitboard.rankOf(square)));
+        }
+    }
+
+    @Benchmark
+    public void isMoveLegal(Blackhole bh) {
+        for (int move : legalMoves) {
+            int from = PackedMove.from(move);
+            int to = PackedMove.to(move);
+            bh.consume(MoveChecker.isMoveLegal(board, Bitboard.fileOf(from), Bitboard.rankOf(from),
+                    Bitboard.fileOf(to), Bitboard.rankOf(to)));
+        }
+    }
+
+    @Benchmark
+    public int generateLegalMoves() {
+        return MoveGenerator.generateLegalMoves(board, buffer);
+    }
+}
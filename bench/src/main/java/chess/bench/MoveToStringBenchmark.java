@@ -0,0 +1,61 @@
+package chess.bench;
+
+import chess.FEN;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.PackedMove;
+import chess.SanWriter;
+import chess.board.Board;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing every legal move in a position as text, as done for the move history
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveToStringBenchmark {
+
+    @Param({"start", "kiwipete", "middlegame", "endgame"})
+    public String position;
+
+    private Move[] moves;
+    private Board board;
+    private int[] legalMoves;
+    private final SanWriter writer = new SanWriter();
+    private final StringBuilder str = new StringBuilder(16);
+
+    @Setup
+    public void setup() {
+        board = FEN.load(Positions.fen(position));
+        legalMoves = MoveGenerator.generateLegalMoves(board);
+        moves = new Move[legalMoves.length];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = PackedMove.toMove(board, legalMoves[i]);
+        }
+    }
+
+    @Benchmark
+    public void moveToString(Blackhole bh) {
+        for (Move move : moves) {
+            bh.consume(move.toString());
+        }
+    }
+
+    /**
+     * SAN with check suffixes into a reused builder, as for PGN export
+     */
+    @Benchmark
+    public void sanWriter(Blackhole bh) {
+        for (int move : legalMoves) {
+            str.setLength(0);
+            bh.consume(writer.append(str, board, move).length());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package chess.bench;
+
+/**
+ * Positions shared by the benchmarks, picked to cover an opening, a busy middlegame and a sparse endgame
+ */
+final class Positions {
+
+    static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    static final String MIDDLEGAME = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+    static final String ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+
+    private Positions() {
+    }
+
+    /**
+     * Looks up one of the positions by the name used in the benchmarks' position parameter
+     */
+    static String fen(String name) {
+        switch (name) {
+            case "start":
+                return START;
+            case "kiwipete":
+                return KIWIPETE;
+            case "middlegame":
+                return MIDDLEGAME;
+            case "endgame":
+                return ENDGAME;
+            default:
+                throw new IllegalArgumentException("Unknown position: " + name);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package chess.bench;
+
+import chess.FEN;
+import chess.board.Board;
+import chess.search.LazySmpSearcher;
+import chess.search.SearchLimits;
+import chess.search.TranspositionTable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for a Lazy SMP search to reach a fixed depth from an empty transposition table, at each thread count. Running
+ * this class's main prints the speedup over one thread as well:
+ * <pre>
+ *     java -cp target/benchmarks.jar chess.bench.SearchBenchmark [JMH options, e.g -p depth=9]
+ * </pre>
+ * Speedups can only exceed 1 on a machine with as many cores as threads.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+
+    @Param({"middlegame", "kiwipete"})
+    public String position;
+
+    @Param({"7"})
+    public int depth;
+
+    private Board board;
+    private LazySmpSearcher searcher;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        board = FEN.load(Positions.fen(position));
+        searcher = new LazySmpSearcher(threads, new TranspositionTable(64));
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        searcher.getTable().clear();
+    }
+
+    @Benchmark
+    public int timeToDepth() {
+        return searcher.search(board, SearchLimits.depth(depth)).getBestMove();
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        var options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(SearchBenchmark.class.getSimpleName())
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        Map<String, Map<Integer, Double>> times = new LinkedHashMap<>();
+        for (RunResult result : results) {
+            String name = result.getParams().getParam("position") + " depth " + result.getParams().getParam("depth");
+            int threadCount = Integer.parseInt(result.getParams().getParam("threads"));
+            times.computeIfAbsent(name, k -> new TreeMap<>())
+                    .put(threadCount, result.getPrimaryResult().getScore());
+        }
+        System.out.println();
+        System.out.println("Lazy SMP time to depth");
+        for (Map.Entry<String, Map<Integer, Double>> entry : times.entrySet()) {
+            System.out.println(entry.getKey());
+            Double single = entry.getValue().get(1);
+            for (Map.Entry<Integer, Double> time : entry.getValue().entrySet()) {
+                System.out.printf("  %2d threads  %9.1f ms  speedup %s%n", time.getKey(), time.getValue(),
+                        single == null ? "-" : String.format("%.2f", single / time.getValue()));
+            }
+        }
+    }
+}
@@ -1,9 +1,16 @@
 package chess;
 
 import chess.board.*;
+import chess.search.SearchLimits;
+import chess.search.SearchListener;
+import chess.search.SearchResult;
+import chess.search.LazySmpSearcher;
+
 public class ChessGame {
 
     public Board board;
+    private volatile LazySmpSearcher searcher;
+    private int searchThreads = 1;
 
 
     public ChessGame() {
@@ -14,6 +21,49 @@ public class ChessGame {
         this.board = new Board(fen);
     }
 
+    public ChessGame(Board board) {
+        this.board = board;
+    }
+
+    /**
+     * Searches the current position for the best move without changing the board. The search can be stopped from
+     * another thread with stopSearch.
+     *
+     * @param listener told about each completed iteration, e.g to show the line being considered
+     */
+    public SearchResult findBestMove(SearchLimits limits, SearchListener listener) {
+        if (searcher == null) {
+            searcher = new LazySmpSearcher(searchThreads);
+        }
+        return searcher.search(board, limits, listener);
+    }
+
+    public SearchResult findBestMove(SearchLimits limits) {
+        return findBestMove(limits, SearchListener.NONE);
+    }
+
+    /**
+     * Stops a running findBestMove, which then returns the best move found so far
+     */
+    public void stopSearch() {
+        LazySmpSearcher s = searcher;
+        if (s != null) {
+            s.stop();
+        }
+    }
+
+    /**
+     * Sets how many threads findBestMove searches with, 1 by default. Must not be called during a search.
+     */
+    public void setSearchThreads(int threads) {
+        if (searcher != null) {
+            searcher.setThreads(threads);
+        } else if (threads < 1) {
+            throw new IllegalArgumentException("Invalid thread count: " + threads);
+        }
+        searchThreads = threads;
+    }
+
 
 
 
@@ -1,13 +1,11 @@
 package chess;
 
+import chess.board.Bitboard;
 import chess.board.Board;
 import chess.board.pieces.*;
+import chess.metrics.Metrics;
 import javafx.util.Pair;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
-
 public class FEN {
 
     /*-------------------------------------------------------------------------
@@ -29,7 +27,6 @@ public class FEN {
     }
 
     public static String toFirstFEN(Board board){
-        System.out.println(board);
         StringBuilder enc = new StringBuilder();
         for (int i = 0; i < 8; i++) {
             if (i != 0) {
@@ -71,17 +68,10 @@ public class FEN {
         return enc.toString();
     }
     public static String toPassantFEN(Board board) {
-        var allPawns = board.getPawnPassantLocations();
-        if (allPawns.size() == 0) {return "-";}
-        StringBuilder locs = new StringBuilder();
-        for (var pawn : allPawns) {
-            Pawn p = (Pawn) board.squares[pawn.getKey()][pawn.getValue()].getOccupier();
-            if (p.isEnPassantTarget){
-            String loc = Board.toAlgebraicNotation(pawn);
-            locs.append(loc);
-            }
+        if (board.enPassantSquare == Bitboard.NO_SQUARE) {
+            return "-";
         }
-        return locs.toString();
+        return Bitboard.toAlgebraic(board.enPassantSquare);
     }
     public static String toNumberFEN(Board board) {
         return Integer.toString(board.halfmoveClock) + " " + Integer.toString(board.moveNumber);
@@ -124,62 +114,159 @@ public class FEN {
      * ------------------------------------------------------------------------
      */
     public static Board load(String fen) {
-        Board board = new Board();
+        return new Board(fen);
+    }
+
+    /**
+     * Piece letters in the order of Piece.getCode(), i.e white pieces then black
+     */
+    private static final String PIECE_LETTERS = "PNBRQKpnbrqk";
+
+    /**
+     * Reads a FEN into an existing board, replacing whatever was on it. The text is scanned once, character by
+     * character, and the board's own squares and pieces are reused (see Board.clearBoard), so loading a FEN into the
+     * same board over and over allocates nothing.
+     * <p>
+     * The halfmove clock and fullmove number may be left off, as in EPD, in which case they default to 0 and 1.
+     * Parsing stops after the last FEN field, so anything following it, such as EPD operations, is left for the
+     * caller to read from the returned index.
+     *
+     * @param board  board to fill
+     * @param fen    text holding the FEN, e.g a line of a larger buffer
+     * @param offset index of the first character of the FEN
+     * @param length number of characters available from offset
+     * @return index just past the last field read
+     * @throws IllegalArgumentException if the text does not start with a valid FEN
+     */
+    public static int load(Board board, CharSequence fen, int offset, int length) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0L;
+        int end = offset + length;
         board.clearBoard();
-        String[] fenComponents = fen.split(" ");
-        assert fenComponents.length == 6 : "Invalid FEN";
-        String layout = fenComponents[0];
-        processFenLayout(board, layout);
-        // Process whose turn it is
-        String move = fenComponents[1];
-        board.whiteToMove = move.equals("w");
-        //Process castling rights
-        String castlingRights = fenComponents[2];
-        processFenCastling(board, castlingRights);
-        // Process en passant pawn, if there is one
-        String enPassantPawn = fenComponents[3];
-        if (!enPassantPawn.equals("-")) {
-            board.enPassantTarget = fromAlgebraicToCartesian(enPassantPawn);
+
+        // Piece placement, from the eighth rank down
+        int i = skipSpaces(fen, offset, end);
+        int file = 0;
+        int rank = 0;
+        for (; i < end && fen.charAt(i) != ' '; i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                if (file != 8 || rank == 7) {
+                    throw invalid(fen, offset, end);
+                }
+                file = 0;
+                rank++;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+                if (file > 8) {
+                    throw invalid(fen, offset, end);
+                }
+            } else {
+                int code = PIECE_LETTERS.indexOf(c);
+                if (code < 0 || file > 7) {
+                    throw invalid(fen, offset, end);
+                }
+                board.putPiece(board.recyclePiece(code % 6, code / 6), file++, rank);
+            }
+        }
+        if (file != 8 || rank != 7) {
+            throw invalid(fen, offset, end);
+        }
+
+        // Side to move
+        i = skipSpaces(fen, i, end);
+        if (i >= end || (fen.charAt(i) != 'w' && fen.charAt(i) != 'b')) {
+            throw invalid(fen, offset, end);
+        }
+        board.whiteToMove = fen.charAt(i++) == 'w';
+
+        // Castling rights
+        i = skipSpaces(fen, i, end);
+        int rights = 0;
+        if (i < end && fen.charAt(i) == '-') {
+            i++;
+        } else {
+            for (; i < end && fen.charAt(i) != ' '; i++) {
+                switch (fen.charAt(i)) {
+                    case 'K':
+                        rights |= Board.WHITE_KINGSIDE;
+                        break;
+                    case 'Q':
+                        rights |= Board.WHITE_QUEENSIDE;
+                        break;
+                    case 'k':
+                        rights |= Board.BLACK_KINGSIDE;
+                        break;
+                    case 'q':
+                        rights |= Board.BLACK_QUEENSIDE;
+                        break;
+                    default:
+                        throw invalid(fen, offset, end);
+                }
+            }
         }
-        // Set halfmove clock
-        String halfmoveClock = fenComponents[4];
-        board.halfmoveClock = Integer.parseInt(halfmoveClock);
-        // Set fullmove number
-        String fullmove = fenComponents[5];
-        board.moveNumber = Integer.parseInt(fullmove);
-        return board;
+        board.setCastlingRights(rights);
+
+        // En passant square
+        i = skipSpaces(fen, i, end);
+        if (i < end && fen.charAt(i) == '-') {
+            i++;
+        } else {
+            if (i + 1 >= end) {
+                throw invalid(fen, offset, end);
+            }
+            int epFile = fen.charAt(i) - 'a';
+            char epRank = fen.charAt(i + 1);
+            if (epFile < 0 || epFile > 7 || (epRank != '3' && epRank != '6')) {
+                throw invalid(fen, offset, end);
+            }
+            board.setEnPassantSquare(Bitboard.square(epFile, '8' - epRank));
+            i += 2;
+        }
+
+        // Clocks, which EPD leaves out
+        board.halfmoveClock = 0;
+        board.moveNumber = 1;
+        int next = skipSpaces(fen, i, end);
+        if (next < end && isDigit(fen.charAt(next))) {
+            i = next;
+            int halfmoveClock = 0;
+            for (; i < end && isDigit(fen.charAt(i)); i++) {
+                halfmoveClock = 10 * halfmoveClock + fen.charAt(i) - '0';
+            }
+            board.halfmoveClock = halfmoveClock;
+            next = skipSpaces(fen, i, end);
+            if (next < end && isDigit(fen.charAt(next))) {
+                i = next;
+                int moveNumber = 0;
+                for (; i < end && isDigit(fen.charAt(i)); i++) {
+                    moveNumber = 10 * moveNumber + fen.charAt(i) - '0';
+                }
+                board.moveNumber = moveNumber;
+            }
+        }
+        board.updateHash();
+        if (Metrics.ENABLED) {
+            Metrics.FEN_PARSES.increment();
+            Metrics.FEN_PARSE_LATENCY.record(System.nanoTime() - start);
+        }
+        return i;
     }
-    static void processFenLayout(Board board, String layout) {
-        board.clearBoard();
-        String[] rows = layout.split("/");
-        for (int i = 0; i < 8; i++) {
-            loadRow(board, i, rows[i]);
+
+    private static int skipSpaces(CharSequence str, int i, int end) {
+        while (i < end && str.charAt(i) == ' ') {
+            i++;
         }
+        return i;
     }
-    static void processFenCastling(Board board, String castlingRights) {
-        String[] temp = castlingRights.split("");
-        Set<String> cr = new HashSet<>(Arrays.asList(temp));
-        board.whiteKingsideCastleRight = cr.contains("K");
-        board.whiteQueensideCastleRight = cr.contains("Q");
-        board.blackKingsideCastleRight = cr.contains("k");
-        board.blackQueensideCastleRight = cr.contains("q");
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
     }
-    static void loadRow(Board board, int row, String fenRow) {
-        String[] rowArr = fenRow.split("");
-        int i = 0;
-        int index = 0;
-        while (i < 8) {
-            String s = rowArr[index];
-            if (s.matches("\\d")) {
-                int spaces = Integer.parseInt(s);
-                i += spaces;
-            } else {
-                board.squares[i][row].occupier = strToPiece(s);
-                i++;
-            }
-            index++;
-        }
+
+    private static IllegalArgumentException invalid(CharSequence fen, int offset, int end) {
+        return new IllegalArgumentException("Invalid FEN: " + fen.subSequence(offset, end));
     }
+
     public static Piece strToPiece(String str) {
         Piece p = new Pawn(0); // Dummy initialisation
         switch (str) {
@@ -1,7 +1,7 @@
 package chess;
 
 import chess.board.Board;
-import chess.board.pieces.*;
+import chess.board.pieces.Piece;
 
 public class Move {
     public Board board;
@@ -11,6 +11,12 @@ public class Move {
     public int toRank;
     public Piece pieceMoved;
     public Piece pieceCaptured;
+    /**
+     * Where the move's SAN, with any check suffix, is in its board's move history. Set by Board.makeLegalMove once the
+     * move has been made; sanStart is -1 if it has not been made or has been undone.
+     */
+    public int sanStart = -1;
+    public int sanEnd;
     public Move(Board board, int fromFile, int fromRank, int toFile, int toRank) {
         this.board = board;
         this.fromFile = fromFile;
@@ -21,31 +27,23 @@ public class Move {
         this.pieceCaptured = board.squares[toFile][toRank].getOccupier();
 
     }
+    /**
+     * @return this move packed into an int, see PackedMove
+     */
+    public int pack() {
+        return PackedMove.fromMove(this);
+    }
+
+    /**
+     * @return the SAN recorded when the move was made, or for a move not yet made, its SAN without a check suffix
+     */
     @Override
     public String toString() {
-        if (pieceMoved == null) return "";
-
-        if (pieceCaptured == null) {
-            if (pieceToChar(pieceMoved) == 'p') {
-                return Board.toAlgebraicNotation(toFile, toRank);
-            } else {
-                return pieceToChar(pieceMoved) + Board.toAlgebraicNotation(toFile, toRank);
-            }
-        } else {
-            if (pieceToChar(pieceMoved) == 'p') {
-                return  Board.getCharFromFile(fromFile) + "x" + Board.toAlgebraicNotation(toFile, toRank);
-            } else {
-                return pieceToChar(pieceMoved) + "x" + Board.toAlgebraicNotation(toFile, toRank);
-            }
+        if (sanStart >= 0) {
+            return board.getMoveHistory(sanStart, sanEnd);
         }
-    }
-    char pieceToChar(Piece p) {
-        if (p instanceof King) return 'K';
-        else if (p instanceof Queen) return 'Q';
-        else if (p instanceof Bishop) return 'B';
-        else if (p instanceof Knight) return 'N';
-        else if (p instanceof Rook) return 'R';
-        else return 'p';
+        if (pieceMoved == null) return "";
+        return PackedMove.toSan(board, pack());
     }
 
 }
@@ -1,7 +1,9 @@
 package chess;
 
 import chess.board.*;
+import chess.board.BoardEventListener.IllegalMoveReason;
 import chess.board.pieces.*;
+import chess.metrics.Metrics;
 
 import javafx.util.Pair;
 
@@ -9,59 +11,83 @@ import java.util.ArrayList;
 
 public class MoveChecker {
 
+    /**
+     * Checks if making a move would leave the mover's king in check, from the bitboards alone, so this should be called
+     * once the move pattern has been checked. Castling is checked in full, as the king's pattern only looks at the
+     * square it passes over.
+     */
     public static boolean exposesCheck(Move m) {
-        boolean isWhiteToMove = m.board.whiteToMove;
-        Board boardOneAhead = simulateMove(m);
-        boolean isCheck = isWhiteToMove ? boardOneAhead.whiteInCheck : boardOneAhead.blackInCheck;
-        return isCheck;
+        int move = m.pack();
+        if (PackedMove.isCastle(move)) {
+            int us = m.board.whiteToMove ? Piece.WHITE : Piece.BLACK;
+            int[] castles = new int[2];
+            int n = MoveGenerator.generateCastling(m.board, us, m.board.occupied, castles, 0);
+            for (int i = 0; i < n; i++) {
+                if (castles[i] == move) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return !MoveGenerator.isLegal(m.board, move);
     }
 
 
     public static boolean isMoveLegal(Board board, int fromFile, int fromRank, int toFile, int toRank) {
-        Move m = new Move(board, fromFile, fromRank, toFile, toRank);
-        // Check if move exposes king to check
-        if (exposesCheck(m)) {
-            return false;
-        }
-
-        // Check if king is still in check after making move
-        boolean isCheck = board.whiteToMove ? board.whiteInCheck : board.blackInCheck;
-        if (isCheck) {
-            System.out.println("King is in check!");
-            Board boardOneAhead = simulateMove(m);
-            System.out.println("In check: " + boardOneAhead.isCheck);
-            boolean isCheckAhead = !boardOneAhead.whiteToMove ? boardOneAhead.whiteInCheck : boardOneAhead.blackInCheck;
-            if (isCheckAhead) {
-                System.out.println("Cant make this move, king is still in check!");
-                return false;
-            }
+        if (!Metrics.ENABLED) {
+            return checkMoveLegal(board, fromFile, fromRank, toFile, toRank);
         }
+        long start = System.nanoTime();
+        boolean isLegal = checkMoveLegal(board, fromFile, fromRank, toFile, toRank);
+        Metrics.LEGALITY_CHECKS.increment();
+        Metrics.LEGALITY_CHECK_LATENCY.record(System.nanoTime() - start);
+        return isLegal;
+    }
 
+    static boolean checkMoveLegal(Board board, int fromFile, int fromRank, int toFile, int toRank) {
         Piece piece = board.squares[fromFile][fromRank].getOccupier();
         if (piece == null) {
-            System.out.println("No Piece here!");
-            return false;
+            return reject(board, fromFile, fromRank, toFile, toRank, IllegalMoveReason.NO_PIECE);
         }
         boolean pieceColour = (piece.getColour() == 0);
         // Check correct player is making move
         if (!pieceColour == board.whiteToMove) {
-            System.out.println("Wrong colour!");
-            return false;
+            return reject(board, fromFile, fromRank, toFile, toRank, IllegalMoveReason.WRONG_COLOUR);
         }
         // Check if From square is same as To square
         if (isSameSquare(fromFile, fromRank, toFile, toRank)) {
-            System.out.println("Cant move to the same square!");
-            return false;
+            return reject(board, fromFile, fromRank, toFile, toRank, IllegalMoveReason.SAME_SQUARE);
         }
         // Check if move would result in taking own piece (this is illegal)
         if (isTakingOwnPiece(board, fromFile, fromRank, toFile, toRank)) {
-            System.out.println("Cant take own piece!");
-            return false;
+            return reject(board, fromFile, fromRank, toFile, toRank, IllegalMoveReason.TAKES_OWN_PIECE);
         }
         // Check if move is legal (except checks)
         var legalMoves = getLegalMoves(board, fromFile, fromRank);
         var moveToBeTried = new Pair<>(toFile, toRank);
-        return legalMoves.contains(moveToBeTried);
+        if (!legalMoves.contains(moveToBeTried)) {
+            return reject(board, fromFile, fromRank, toFile, toRank, IllegalMoveReason.INVALID_PATTERN);
+        }
+        // Check if move exposes king to check, or leaves it in check
+        Move m = new Move(board, fromFile, fromRank, toFile, toRank);
+        if (exposesCheck(m)) {
+            return reject(board, fromFile, fromRank, toFile, toRank, IllegalMoveReason.KING_IN_CHECK);
+        }
+        return true;
+    }
+
+    /**
+     * Tells the board's listener why a move was turned down
+     *
+     * @return false, for returning straight from isMoveLegal
+     */
+    static boolean reject(Board board, int fromFile, int fromRank, int toFile, int toRank, IllegalMoveReason reason) {
+        if (Metrics.ENABLED) {
+            Metrics.illegalMove(reason);
+        }
+        board.getListener().illegalMove(board, Bitboard.square(fromFile, fromRank), Bitboard.square(toFile, toRank),
+                reason);
+        return false;
     }
 
     static boolean isSameSquare(int fromFile, int fromRank, int toFile, int toRank) {
@@ -69,14 +95,11 @@ public class MoveChecker {
     }
 
     static boolean isTakingOwnPiece(Board board, int fromFile, int fromRank, int toFile, int toRank) {
-        Piece fromPiece = board.squares[fromFile][fromRank].getOccupier();
-        Piece toPiece = board.squares[toFile][toRank].getOccupier();
-        if (fromPiece == null || toPiece == null) {
-            return false;
-        }
-        int fromColour = fromPiece.getColour();
-        int toColour = toPiece.getColour();
-        return fromColour == toColour;
+        long from = Bitboard.bit(Bitboard.square(fromFile, fromRank));
+        long to = Bitboard.bit(Bitboard.square(toFile, toRank));
+        long white = board.getOccupancy(Piece.WHITE);
+        long black = board.getOccupancy(Piece.BLACK);
+        return ((white & from) != 0 && (white & to) != 0) || ((black & from) != 0 && (black & to) != 0);
     }
 
     /**
@@ -283,31 +306,32 @@ public class MoveChecker {
     public static ArrayList<Pair<Integer, Integer>> getKingLegalMoves(Board board, int fromFile, int fromRank) {
         ArrayList<Pair<Integer, Integer>> kingMoves = new ArrayList<>();
         King king = (King) board.squares[fromFile][fromRank].getOccupier();
+        int enemy = 1 - king.getColour();
         // Add valid castling moves
         if (king.getColour() == 0) {
             if (board.whiteKingsideCastleRight) {
-                Pair<Integer, Integer> castleSquareJumpedOver = new Pair<>(5, 7);
-                if (!board.attackedSquares.contains(castleSquareJumpedOver)) {
+                int castleSquareJumpedOver = Bitboard.square(5, 7);
+                if (!board.isSquareAttacked(castleSquareJumpedOver, enemy)) {
                 kingMoves.add(new Pair<>(fromFile + 2, fromRank));
                 }
             }
             if (board.whiteQueensideCastleRight) {
-                Pair<Integer, Integer> castleSquareJumpedOver = new Pair<>(3, 7);
-                if (!board.attackedSquares.contains(castleSquareJumpedOver)) {
+                int castleSquareJumpedOver = Bitboard.square(3, 7);
+                if (!board.isSquareAttacked(castleSquareJumpedOver, enemy)) {
                 kingMoves.add(new Pair<>(fromFile - 2, fromRank));
                 }
             }
         }
         if (king.getColour() == 1) {
             if (board.blackKingsideCastleRight) {
-                Pair<Integer, Integer> castleSquareJumpedOver = new Pair<>(5, 0);
-                if (!board.attackedSquares.contains(castleSquareJumpedOver)) {
+                int castleSquareJumpedOver = Bitboard.square(5, 0);
+                if (!board.isSquareAttacked(castleSquareJumpedOver, enemy)) {
                 kingMoves.add(new Pair<>(fromFile + 2, fromRank));
                 }
             }
             if (board.blackQueensideCastleRight) {
-                Pair<Integer, Integer> castleSquareJumpedOver = new Pair<>(3, 7);
-                if (!board.attackedSquares.contains(castleSquareJumpedOver)) {
+                int castleSquareJumpedOver = Bitboard.square(3, 0);
+                if (!board.isSquareAttacked(castleSquareJumpedOver, enemy)) {
                 kingMoves.add(new Pair<>(fromFile - 2, fromRank));
                 }
             }
@@ -327,7 +351,7 @@ public class MoveChecker {
                     continue;
                 } else if (hasKingNeighbour(board, adjFile, adjRank, king.getColour())) {
                     continue;
-                } else if (isSqureAttacked(board, adjFile, adjRank)) {
+                } else if (board.isSquareAttacked(Bitboard.square(adjFile, adjRank), enemy)) {
                     continue;
                 } else {
                     // Otherwise, this move is valid
@@ -341,12 +365,8 @@ public class MoveChecker {
 
 
     static boolean isSqureAttacked(Board board, int file, int rank) {
-        for (Pair<Integer, Integer> loc : board.attackedSquares) {
-            if (loc.getKey() == file && loc.getValue() == rank) {
-                return true;
-            }
-        }
-        return false;
+        int enemy = board.whiteToMove ? Piece.BLACK : Piece.WHITE;
+        return board.isSquareAttacked(Bitboard.square(file, rank), enemy);
     }
 
     /**
@@ -359,36 +379,19 @@ public class MoveChecker {
      */
 
     public static boolean hasKingNeighbour(Board board, int file, int rank, int colour) {
-        boolean hasKing = false;
-        for (int i = -1; i <= 1; i++) {
-            for (int j = -1; j <= 1; j++) {
-                int adjFile = file + i;
-                int adjRank = rank + j;
-                // check 'neighbour' is on the board
-                if (!isOnBoard(adjFile, adjRank)) {
-                    continue;
-                }
-                // Otherwise, check
-                Piece piece = board.squares[adjFile][adjRank].getOccupier();
-                if (piece == null) {
-                    continue;
-                }
-                if (piece instanceof King && piece.getColour() != colour) {
-                    hasKing = true;
-                }
-            }
+        int enemyKing = board.getKingSquare(1 - colour);
+        if (enemyKing == Bitboard.NO_SQUARE) {
+            return false;
         }
-        return hasKing;
+        return Math.abs(Bitboard.fileOf(enemyKing) - file) <= 1 && Math.abs(Bitboard.rankOf(enemyKing) - rank) <= 1;
     }
 
 
     public static ArrayList<Pair<Integer, Integer>> getRookLegalMoves(Board board, int fromFile, int fromRank) {
-        ArrayList<Pair<Integer, Integer>> rookMoves = new ArrayList<>();
-        rookMoves.addAll(getVerticalMoves(board, fromFile, fromRank, true));
-        rookMoves.addAll(getVerticalMoves(board, fromFile, fromRank, false));
-        rookMoves.addAll(getHorizontalMoves(board, fromFile, fromRank, true));
-        rookMoves.addAll(getHorizontalMoves(board, fromFile, fromRank, false));
-        return rookMoves;
+        int from = Bitboard.square(fromFile, fromRank);
+        Piece rook = board.squares[fromFile][fromRank].getOccupier();
+        long targets = Attacks.rookAttacks(from, board.occupied) & ~board.getOccupancy(rook.getColour());
+        return toLocations(targets);
     }
 
     public static ArrayList<Pair<Integer, Integer>> getVerticalMoves(Board board, int fromFile, int fromRank, boolean toNorth) {
@@ -478,12 +481,10 @@ public class MoveChecker {
     }
 
     public static ArrayList<Pair<Integer, Integer>> getBishopLegalMoves(Board board, int fromFile, int fromRank) {
-        ArrayList<Pair<Integer, Integer>> bishopMoves = new ArrayList<>();
-        bishopMoves.addAll(getRightDiagonalMoves(board, fromFile, fromRank, true));
-        bishopMoves.addAll(getRightDiagonalMoves(board, fromFile, fromRank, false));
-        bishopMoves.addAll(getLeftDiagonalMoves(board, fromFile, fromRank, true));
-        bishopMoves.addAll(getLeftDiagonalMoves(board, fromFile, fromRank, false));
-        return bishopMoves;
+        int from = Bitboard.square(fromFile, fromRank);
+        Piece bishop = board.squares[fromFile][fromRank].getOccupier();
+        long targets = Attacks.bishopAttacks(from, board.occupied) & ~board.getOccupancy(bishop.getColour());
+        return toLocations(targets);
     }
 
     public static ArrayList<Pair<Integer, Integer>> getRightDiagonalMoves(Board board, int fromFile, int fromRank, boolean toNorthEast) {
@@ -577,16 +578,10 @@ public class MoveChecker {
     }
 
     public static ArrayList<Pair<Integer, Integer>> getQueenLegalMoves(Board board, int fromFile, int fromRank) {
-        ArrayList<Pair<Integer, Integer>> queenMoves = new ArrayList<>();
-        queenMoves.addAll(getVerticalMoves(board, fromFile, fromRank, true));
-        queenMoves.addAll(getVerticalMoves(board, fromFile, fromRank, false));
-        queenMoves.addAll(getHorizontalMoves(board, fromFile, fromRank, true));
-        queenMoves.addAll(getHorizontalMoves(board, fromFile, fromRank, false));
-        queenMoves.addAll(getRightDiagonalMoves(board, fromFile, fromRank, true));
-        queenMoves.addAll(getRightDiagonalMoves(board, fromFile, fromRank, false));
-        queenMoves.addAll(getLeftDiagonalMoves(board, fromFile, fromRank, true));
-        queenMoves.addAll(getLeftDiagonalMoves(board, fromFile, fromRank, false));
-        return queenMoves;
+        int from = Bitboard.square(fromFile, fromRank);
+        Piece queen = board.squares[fromFile][fromRank].getOccupier();
+        long targets = Attacks.queenAttacks(from, board.occupied) & ~board.getOccupancy(queen.getColour());
+        return toLocations(targets);
     }
 
     public static ArrayList<Pair<Integer, Integer>> getKnightLegalMoves(Board board, int fromFile, int fromRank) {
@@ -646,17 +641,16 @@ public class MoveChecker {
     }
 
     /**
-     * Simulate a move on the board. Given a move, it returns a copy of the board with that move made.
-     *
-     * @param move move to be simulated
-     * @return Copy of the board with the move made
+     * Converts a bitboard of target squares into the list of (file, rank) locations used by the methods above
      */
-    public static Board simulateMove(Move move) {
-        String fen = FEN.toFEN(move.board);
-        Board copyOfBoard = new Board(fen);
-        Move copyOfMove = new Move(copyOfBoard, move.fromFile, move.fromRank, move.toFile, move.toRank);
-        copyOfBoard.makeMove(copyOfMove);
-        return copyOfBoard;
+    static ArrayList<Pair<Integer, Integer>> toLocations(long targets) {
+        ArrayList<Pair<Integer, Integer>> locations = new ArrayList<>(Long.bitCount(targets));
+        while (targets != 0) {
+            int square = Long.numberOfTrailingZeros(targets);
+            locations.add(new Pair<>(Bitboard.fileOf(square), Bitboard.rankOf(square)));
+            targets &= targets - 1;
+        }
+        return locations;
     }
 
 }
@@ -0,0 +1,454 @@
+package chess;
+
+import chess.board.Attacks;
+import chess.board.Bitboard;
+import chess.board.Board;
+import chess.board.pieces.Piece;
+import chess.metrics.Metrics;
+
+import java.util.Arrays;
+
+/**
+ * Generates every move in a position at once, writing them as packed moves (see PackedMove) into a buffer supplied by
+ * the caller. Nothing is allocated, so a search or perft loop can keep one buffer per ply and reuse it.
+ * <pre>
+ *     int[][] buffers = MoveGenerator.createBuffers(depth);
+ *     int n = MoveGenerator.generateLegalMoves(board, buffers[ply]);
+ * </pre>
+ */
+public final class MoveGenerator {
+
+    /**
+     * Upper bound on the number of moves in any position, so a buffer of this size can never overflow
+     */
+    public static final int MAX_MOVES = 256;
+
+    // Squares used for castling, see Bitboard for indexing
+    static final int WHITE_KING_START = 60;
+    static final int BLACK_KING_START = 4;
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * @return one move buffer for each ply of a search up to the given depth
+     */
+    public static int[][] createBuffers(int plies) {
+        return new int[plies][MAX_MOVES];
+    }
+
+    /**
+     * @return all legal moves for the player to move, as packed moves
+     */
+    public static int[] generateLegalMoves(Board board) {
+        int[] moves = new int[MAX_MOVES];
+        int count = generateLegalMoves(board, moves);
+        return Arrays.copyOf(moves, count);
+    }
+
+    /**
+     * Writes all legal moves for the player to move into the buffer.
+     * <p>
+     * The checking pieces, the pinned pieces and the squares that would block or capture a single checker are worked
+     * out once up front. Each piece's targets are then masked by them, so every move written is fully legal without
+     * trying it on the board. En passant is the exception, as taking the pawn can uncover a check along the rank, and
+     * is tested separately with isLegal.
+     *
+     * @param board position to generate moves for
+     * @param moves buffer of at least MAX_MOVES entries
+     * @return number of moves written
+     */
+    public static int generateLegalMoves(Board board, int[] moves) {
+        if (!Metrics.ENABLED) {
+            return generate(board, moves);
+        }
+        long start = System.nanoTime();
+        int count = generate(board, moves);
+        Metrics.MOVE_GENERATION_LATENCY.record(System.nanoTime() - start);
+        return count;
+    }
+
+    static int generate(Board board, int[] moves) {
+        int us = board.whiteToMove ? Piece.WHITE : Piece.BLACK;
+        int them = 1 - us;
+        int king = board.getKingSquare(us);
+        if (king == Bitboard.NO_SQUARE) {
+            return generatePseudoLegalMoves(board, moves);
+        }
+        long own = board.getOccupancy(us);
+        long enemies = board.getOccupancy(them);
+        long occupied = board.occupied;
+
+        long checkers = board.attackersTo(king, occupied) & enemies;
+        int count = generateKingMoves(board, king, them, own, enemies, occupied, checkers != 0, moves, 0);
+        if (Long.bitCount(checkers) > 1) {
+            // Only the king can get out of double check
+            return count;
+        }
+        // Squares a non-king move must land on: anywhere, or onto the checker or the squares between it and the king
+        long checkMask = Bitboard.ALL;
+        if (checkers != 0) {
+            int checker = Long.numberOfTrailingZeros(checkers);
+            checkMask = checkers | Attacks.between(king, checker);
+        }
+        long pinned = pinnedPieces(board, king, us, own, enemies, occupied);
+
+        count = generateLegalPawnMoves(board, us, king, pinned, checkMask, enemies, occupied, moves, count);
+        for (int type = Piece.KNIGHT; type <= Piece.QUEEN; type++) {
+            long pieces = board.getBitboard(us, type);
+            while (pieces != 0) {
+                int from = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                long targets = attacks(type, from, occupied) & ~own & checkMask;
+                if ((pinned & Bitboard.bit(from)) != 0) {
+                    // A pinned piece may only move along the line between its king and the pinning piece
+                    targets &= Attacks.line(king, from);
+                }
+                count = addMoves(from, targets, enemies, moves, count);
+            }
+        }
+        if (checkers == 0) {
+            count = generateCastling(board, us, occupied, moves, count);
+        }
+        return count;
+    }
+
+    /**
+     * @return bitboard of our pieces that are the only piece between our king and an enemy slider
+     */
+    static long pinnedPieces(Board board, int king, int us, long own, long enemies, long occupied) {
+        int them = 1 - us;
+        long queens = board.getBitboard(them, Piece.QUEEN);
+        // Look for sliders that would attack the king if our own pieces were not in the way
+        long snipers = (Attacks.rookAttacks(king, enemies) & (board.getBitboard(them, Piece.ROOK) | queens))
+                | (Attacks.bishopAttacks(king, enemies) & (board.getBitboard(them, Piece.BISHOP) | queens));
+        long pinned = 0L;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Attacks.between(king, sniper) & occupied;
+            if (Long.bitCount(blockers) == 1 && (blockers & own) != 0) {
+                pinned |= blockers;
+            }
+        }
+        return pinned;
+    }
+
+    static int generateKingMoves(Board board, int king, int them, long own, long enemies, long occupied,
+                                 boolean inCheck, int[] moves, int count) {
+        long targets = Attacks.KING[king] & ~own & ~board.getAttackedSquares(them);
+        // The king cannot step back along a checking slider's ray, as it will no longer block the attack there
+        long withoutKing = occupied ^ Bitboard.bit(king);
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (inCheck && (board.attackersTo(to, withoutKing) & enemies) != 0) {
+                continue;
+            }
+            boolean isCapture = (enemies & Bitboard.bit(to)) != 0;
+            moves[count++] = PackedMove.encode(king, to, isCapture ? PackedMove.CAPTURE : PackedMove.QUIET);
+        }
+        return count;
+    }
+
+    static int generateLegalPawnMoves(Board board, int us, int king, long pinned, long checkMask, long enemies,
+                                      long occupied, int[] moves, int count) {
+        long pawns = board.getBitboard(us, Piece.PAWN);
+        long empty = ~occupied;
+        long singles;
+        long doubles;
+        long leftCaptures;
+        long rightCaptures;
+        long promotionRank;
+        int forward;
+        if (us == Piece.WHITE) {
+            singles = (pawns >>> 8) & empty;
+            doubles = ((singles & Bitboard.RANK_3) >>> 8) & empty;
+            leftCaptures = ((pawns & ~Bitboard.FILE_A) >>> 9) & enemies;
+            rightCaptures = ((pawns & ~Bitboard.FILE_H) >>> 7) & enemies;
+            promotionRank = Bitboard.RANK_8;
+            forward = -8;
+        } else {
+            singles = (pawns << 8) & empty;
+            doubles = ((singles & Bitboard.RANK_6) << 8) & empty;
+            leftCaptures = ((pawns & ~Bitboard.FILE_A) << 7) & enemies;
+            rightCaptures = ((pawns & ~Bitboard.FILE_H) << 9) & enemies;
+            promotionRank = Bitboard.RANK_1;
+            forward = 8;
+        }
+        count = addLegalPawnMoves(singles & checkMask, forward, false, promotionRank, king, pinned, moves, count);
+        count = addLegalPawnMoves(leftCaptures & checkMask, forward - 1, true, promotionRank, king, pinned, moves, count);
+        count = addLegalPawnMoves(rightCaptures & checkMask, forward + 1, true, promotionRank, king, pinned, moves, count);
+        doubles &= checkMask;
+        while (doubles != 0) {
+            int to = Long.numberOfTrailingZeros(doubles);
+            doubles &= doubles - 1;
+            int from = to - 2 * forward;
+            if ((pinned & Bitboard.bit(from)) == 0 || (Attacks.line(king, from) & Bitboard.bit(to)) != 0) {
+                moves[count++] = PackedMove.encode(from, to, PackedMove.DOUBLE_PAWN_PUSH);
+            }
+        }
+        int ep = board.enPassantSquare;
+        if (ep != Bitboard.NO_SQUARE) {
+            long attackers = Attacks.PAWN[1 - us][ep] & pawns;
+            while (attackers != 0) {
+                int from = Long.numberOfTrailingZeros(attackers);
+                attackers &= attackers - 1;
+                int move = PackedMove.encode(from, ep, PackedMove.EN_PASSANT);
+                if (isLegal(board, move)) {
+                    moves[count++] = move;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Like addPawnMoves, but drops moves by pinned pawns that would leave the pin line
+     */
+    static int addLegalPawnMoves(long targets, int step, boolean isCapture, long promotionRank, int king, long pinned,
+                                 int[] moves, int count) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            int from = to - step;
+            if ((pinned & Bitboard.bit(from)) != 0 && (Attacks.line(king, from) & Bitboard.bit(to)) == 0) {
+                continue;
+            }
+            if ((Bitboard.bit(to) & promotionRank) != 0) {
+                moves[count++] = PackedMove.encodePromotion(from, to, Piece.QUEEN, isCapture);
+                moves[count++] = PackedMove.encodePromotion(from, to, Piece.KNIGHT, isCapture);
+                moves[count++] = PackedMove.encodePromotion(from, to, Piece.ROOK, isCapture);
+                moves[count++] = PackedMove.encodePromotion(from, to, Piece.BISHOP, isCapture);
+            } else {
+                moves[count++] = PackedMove.encode(from, to, isCapture ? PackedMove.CAPTURE : PackedMove.QUIET);
+            }
+        }
+        return count;
+    }
+
+    static int addMoves(int from, long targets, long enemies, int[] moves, int count) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            boolean isCapture = (enemies & Bitboard.bit(to)) != 0;
+            moves[count++] = PackedMove.encode(from, to, isCapture ? PackedMove.CAPTURE : PackedMove.QUIET);
+        }
+        return count;
+    }
+
+    /**
+     * Writes all moves that follow the movement rules of each piece, whether or not they leave the king in check.
+     * Castling is only generated when the king does not start in, pass through or land in check. Combined with
+     * isLegal this gives the same moves as generateLegalMoves, one trial at a time.
+     *
+     * @return number of moves written
+     */
+    public static int generatePseudoLegalMoves(Board board, int[] moves) {
+        int us = board.whiteToMove ? Piece.WHITE : Piece.BLACK;
+        int them = 1 - us;
+        long own = board.getOccupancy(us);
+        long enemies = board.getOccupancy(them);
+        long occupied = board.occupied;
+        int count = generatePawnMoves(board, us, enemies, occupied, moves, 0);
+        count = generatePieceMoves(Piece.KNIGHT, board.getBitboard(us, Piece.KNIGHT), own, enemies, occupied, moves, count);
+        count = generatePieceMoves(Piece.BISHOP, board.getBitboard(us, Piece.BISHOP), own, enemies, occupied, moves, count);
+        count = generatePieceMoves(Piece.ROOK, board.getBitboard(us, Piece.ROOK), own, enemies, occupied, moves, count);
+        count = generatePieceMoves(Piece.QUEEN, board.getBitboard(us, Piece.QUEEN), own, enemies, occupied, moves, count);
+        count = generatePieceMoves(Piece.KING, board.getBitboard(us, Piece.KING), own, enemies, occupied, moves, count);
+        return generateCastling(board, us, occupied, moves, count);
+    }
+
+    /**
+     * Checks whether a pseudo-legal move would leave the mover's own king in check, using only the bitboards. The
+     * board is not changed.
+     */
+    public static boolean isLegal(Board board, int move) {
+        int us = board.whiteToMove ? Piece.WHITE : Piece.BLACK;
+        int them = 1 - us;
+        int king = board.getKingSquare(us);
+        if (king == Bitboard.NO_SQUARE || PackedMove.isCastle(move)) {
+            return true;
+        }
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        long fromBit = Bitboard.bit(from);
+        long toBit = Bitboard.bit(to);
+        if (from == king) {
+            // Take the king off the board so it cannot hide behind itself from a slider
+            long occupied = board.occupied ^ fromBit;
+            return (board.attackersTo(to, occupied) & board.getOccupancy(them)) == 0;
+        }
+        long captured = toBit;
+        if (PackedMove.isEnPassant(move)) {
+            captured = Bitboard.bit(us == Piece.WHITE ? to + 8 : to - 8);
+        }
+        long occupied = (board.occupied & ~fromBit & ~captured) | toBit;
+        long enemies = board.getOccupancy(them) & ~captured;
+        return (board.attackersTo(king, occupied) & enemies) == 0;
+    }
+
+    /**
+     * Checks whether a legal move gives check, directly or by discovery, using only the bitboards. The board is not
+     * changed.
+     */
+    public static boolean givesCheck(Board board, int move) {
+        int us = board.whiteToMove ? Piece.WHITE : Piece.BLACK;
+        int king = board.getKingSquare(1 - us);
+        if (king == Bitboard.NO_SQUARE) {
+            return false;
+        }
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int flags = PackedMove.flags(move);
+        int type = PackedMove.isPromotion(move) ? PackedMove.promotionType(move) : board.getPiece(from).getType();
+        long fromBit = Bitboard.bit(from);
+        long toBit = Bitboard.bit(to);
+        long occupied = (board.occupied & ~fromBit) | toBit;
+        long diagonal = (board.getBitboard(us, Piece.BISHOP) | board.getBitboard(us, Piece.QUEEN)) & ~fromBit;
+        long straight = (board.getBitboard(us, Piece.ROOK) | board.getBitboard(us, Piece.QUEEN)) & ~fromBit;
+        if (type == Piece.BISHOP || type == Piece.QUEEN) {
+            diagonal |= toBit;
+        }
+        if (type == Piece.ROOK || type == Piece.QUEEN) {
+            straight |= toBit;
+        }
+        if (flags == PackedMove.EN_PASSANT) {
+            occupied &= ~Bitboard.bit(us == Piece.WHITE ? to + 8 : to - 8);
+        } else if (PackedMove.isCastle(move)) {
+            long rookFrom = Bitboard.bit(flags == PackedMove.KING_CASTLE ? from + 3 : from - 4);
+            long rookTo = Bitboard.bit(flags == PackedMove.KING_CASTLE ? from + 1 : from - 1);
+            occupied = (occupied & ~rookFrom) | rookTo;
+            straight = (straight & ~rookFrom) | rookTo;
+        }
+        long kingBit = Bitboard.bit(king);
+        if (type == Piece.KNIGHT && (Attacks.KNIGHT[to] & kingBit) != 0
+                || type == Piece.PAWN && (Attacks.PAWN[us][to] & kingBit) != 0) {
+            return true;
+        }
+        return (Attacks.bishopAttacks(king, occupied) & diagonal) != 0
+                || (Attacks.rookAttacks(king, occupied) & straight) != 0;
+    }
+
+    static int generatePawnMoves(Board board, int us, long enemies, long occupied, int[] moves, int count) {
+        long pawns = board.getBitboard(us, Piece.PAWN);
+        long empty = ~occupied;
+        long singles;
+        long doubles;
+        long leftCaptures;
+        long rightCaptures;
+        long promotionRank;
+        int forward;
+        if (us == Piece.WHITE) {
+            singles = (pawns >>> 8) & empty;
+            doubles = ((singles & Bitboard.RANK_3) >>> 8) & empty;
+            leftCaptures = ((pawns & ~Bitboard.FILE_A) >>> 9) & enemies;
+            rightCaptures = ((pawns & ~Bitboard.FILE_H) >>> 7) & enemies;
+            promotionRank = Bitboard.RANK_8;
+            forward = -8;
+        } else {
+            singles = (pawns << 8) & empty;
+            doubles = ((singles & Bitboard.RANK_6) << 8) & empty;
+            leftCaptures = ((pawns & ~Bitboard.FILE_A) << 7) & enemies;
+            rightCaptures = ((pawns & ~Bitboard.FILE_H) << 9) & enemies;
+            promotionRank = Bitboard.RANK_1;
+            forward = 8;
+        }
+        count = addPawnMoves(singles, forward, false, promotionRank, moves, count);
+        count = addPawnMoves(leftCaptures, forward - 1, true, promotionRank, moves, count);
+        count = addPawnMoves(rightCaptures, forward + 1, true, promotionRank, moves, count);
+        while (doubles != 0) {
+            int to = Long.numberOfTrailingZeros(doubles);
+            doubles &= doubles - 1;
+            moves[count++] = PackedMove.encode(to - 2 * forward, to, PackedMove.DOUBLE_PAWN_PUSH);
+        }
+        int ep = board.enPassantSquare;
+        if (ep != Bitboard.NO_SQUARE) {
+            long attackers = Attacks.PAWN[1 - us][ep] & pawns;
+            while (attackers != 0) {
+                int from = Long.numberOfTrailingZeros(attackers);
+                attackers &= attackers - 1;
+                moves[count++] = PackedMove.encode(from, ep, PackedMove.EN_PASSANT);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds pawn moves for a bitboard of target squares that were all reached with the same step
+     */
+    static int addPawnMoves(long targets, int step, boolean isCapture, long promotionRank, int[] moves, int count) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            int from = to - step;
+            if ((Bitboard.bit(to) & promotionRank) != 0) {
+                moves[count++] = PackedMove.encodePromotion(from, to, Piece.QUEEN, isCapture);
+                moves[count++] = PackedMove.encodePromotion(from, to, Piece.KNIGHT, isCapture);
+                moves[count++] = PackedMove.encodePromotion(from, to, Piece.ROOK, isCapture);
+                moves[count++] = PackedMove.encodePromotion(from, to, Piece.BISHOP, isCapture);
+            } else {
+                moves[count++] = PackedMove.encode(from, to, isCapture ? PackedMove.CAPTURE : PackedMove.QUIET);
+            }
+        }
+        return count;
+    }
+
+    static int generatePieceMoves(int type, long pieces, long own, long enemies, long occupied, int[] moves, int count) {
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            long targets = attacks(type, from, occupied) & ~own;
+            count = addMoves(from, targets, enemies, moves, count);
+        }
+        return count;
+    }
+
+    /**
+     * @return squares attacked by a non-pawn piece of the given type standing on a square
+     */
+    public static long attacks(int type, int square, long occupied) {
+        switch (type) {
+            case Piece.KNIGHT:
+                return Attacks.KNIGHT[square];
+            case Piece.BISHOP:
+                return Attacks.bishopAttacks(square, occupied);
+            case Piece.ROOK:
+                return Attacks.rookAttacks(square, occupied);
+            case Piece.QUEEN:
+                return Attacks.queenAttacks(square, occupied);
+            case Piece.KING:
+                return Attacks.KING[square];
+            default:
+                return 0L;
+        }
+    }
+
+    static int generateCastling(Board board, int us, long occupied, int[] moves, int count) {
+        boolean kingside = us == Piece.WHITE ? board.whiteKingsideCastleRight : board.blackKingsideCastleRight;
+        boolean queenside = us == Piece.WHITE ? board.whiteQueensideCastleRight : board.blackQueensideCastleRight;
+        if (!kingside && !queenside) {
+            return count;
+        }
+        int king = us == Piece.WHITE ? WHITE_KING_START : BLACK_KING_START;
+        if (board.getKingSquare(us) != king) {
+            return count;
+        }
+        int them = 1 - us;
+        long rooks = board.getBitboard(us, Piece.ROOK);
+        if (board.isSquareAttacked(king, them)) {
+            return count;
+        }
+        if (kingside && (rooks & Bitboard.bit(king + 3)) != 0
+                && (occupied & (Bitboard.bit(king + 1) | Bitboard.bit(king + 2))) == 0
+                && !board.isSquareAttacked(king + 1, them) && !board.isSquareAttacked(king + 2, them)) {
+            moves[count++] = PackedMove.encode(king, king + 2, PackedMove.KING_CASTLE);
+        }
+        if (queenside && (rooks & Bitboard.bit(king - 4)) != 0
+                && (occupied & (Bitboard.bit(king - 1) | Bitboard.bit(king - 2) | Bitboard.bit(king - 3))) == 0
+                && !board.isSquareAttacked(king - 1, them) && !board.isSquareAttacked(king - 2, them)) {
+            moves[count++] = PackedMove.encode(king, king - 2, PackedMove.QUEEN_CASTLE);
+        }
+        return count;
+    }
+}
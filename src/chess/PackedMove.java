@@ -0,0 +1,266 @@
+package chess;
+
+import chess.board.Attacks;
+import chess.board.Bitboard;
+import chess.board.Board;
+import chess.board.pieces.Piece;
+
+/**
+ * Compact representation of a move packed into the low 16 bits of an int, so moves can be stored in primitive arrays
+ * rather than as Move objects.
+ * <pre>
+ *  bits  0-5   from square (see Bitboard for square indexing)
+ *  bits  6-11  to square
+ *  bits 12-15  flags: bit 14 marks a capture and bit 15 a promotion, in which case the low two flag bits give the
+ *              piece promoted to (knight, bishop, rook, queen). Without the promotion bit they mark a double pawn push,
+ *              castling or an en passant capture.
+ * </pre>
+ * The upper 16 bits are left free, e.g for move ordering scores, and are ignored by the accessors here.
+ */
+public final class PackedMove {
+
+    public static final int NONE = 0;
+
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PAWN_PUSH = 1;
+    public static final int KING_CASTLE = 2;
+    public static final int QUEEN_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EN_PASSANT = 5;
+    public static final int PROMOTION = 8;
+    public static final int KNIGHT_PROMOTION = 8;
+    public static final int BISHOP_PROMOTION = 9;
+    public static final int ROOK_PROMOTION = 10;
+    public static final int QUEEN_PROMOTION = 11;
+    public static final int KNIGHT_PROMOTION_CAPTURE = 12;
+    public static final int BISHOP_PROMOTION_CAPTURE = 13;
+    public static final int ROOK_PROMOTION_CAPTURE = 14;
+    public static final int QUEEN_PROMOTION_CAPTURE = 15;
+
+    private static final String PIECE_LETTERS = "PNBRQK";
+    private static final String PROMOTION_LETTERS = "nbrq";
+
+    private PackedMove() {
+    }
+
+    public static int encode(int from, int to, int flags) {
+        return from | (to << 6) | (flags << 12);
+    }
+
+    /**
+     * @param promotionType piece promoted to, one of Piece.KNIGHT, BISHOP, ROOK or QUEEN
+     */
+    public static int encodePromotion(int from, int to, int promotionType, boolean isCapture) {
+        int flags = PROMOTION | (promotionType - Piece.KNIGHT) | (isCapture ? CAPTURE : 0);
+        return encode(from, to, flags);
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    public static int flags(int move) {
+        return (move >>> 12) & 0xF;
+    }
+
+    public static boolean isCapture(int move) {
+        return (flags(move) & CAPTURE) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (flags(move) & PROMOTION) != 0;
+    }
+
+    /**
+     * @return type of the piece promoted to, e.g Piece.QUEEN, or -1 if the move is not a promotion
+     */
+    public static int promotionType(int move) {
+        return isPromotion(move) ? (flags(move) & 3) + Piece.KNIGHT : -1;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return flags(move) == EN_PASSANT;
+    }
+
+    public static boolean isCastle(int move) {
+        int flags = flags(move);
+        return flags == KING_CASTLE || flags == QUEEN_CASTLE;
+    }
+
+    public static boolean isDoublePawnPush(int move) {
+        return flags(move) == DOUBLE_PAWN_PUSH;
+    }
+
+    /**
+     * Packs a Move, working out its flags from the board it is to be made on. Move has no way to choose a promotion
+     * piece, so pawns reaching the last rank promote to a queen.
+     */
+    public static int fromMove(Move m) {
+        int from = Bitboard.square(m.fromFile, m.fromRank);
+        int to = Bitboard.square(m.toFile, m.toRank);
+        boolean isCapture = m.pieceCaptured != null;
+        if (m.pieceMoved == null) {
+            return encode(from, to, isCapture ? CAPTURE : QUIET);
+        }
+        int type = m.pieceMoved.getType();
+        if (type == Piece.KING && Math.abs(m.toFile - m.fromFile) == 2 && m.fromRank == m.toRank) {
+            return encode(from, to, m.toFile > m.fromFile ? KING_CASTLE : QUEEN_CASTLE);
+        }
+        if (type == Piece.PAWN) {
+            if (m.toRank == 0 || m.toRank == 7) {
+                return encodePromotion(from, to, Piece.QUEEN, isCapture);
+            }
+            if (Math.abs(m.toRank - m.fromRank) == 2) {
+                return encode(from, to, DOUBLE_PAWN_PUSH);
+            }
+            if (!isCapture && m.fromFile != m.toFile && to == m.board.enPassantSquare) {
+                return encode(from, to, EN_PASSANT);
+            }
+        }
+        return encode(from, to, isCapture ? CAPTURE : QUIET);
+    }
+
+    /**
+     * Unpacks a move into a Move on the given board. The promotion piece is dropped as Move cannot hold it.
+     */
+    public static Move toMove(Board board, int move) {
+        int from = from(move);
+        int to = to(move);
+        return new Move(board, Bitboard.fileOf(from), Bitboard.rankOf(from), Bitboard.fileOf(to), Bitboard.rankOf(to));
+    }
+
+    /**
+     * @return move in UCI long algebraic notation, e.g "e2e4" or "e7e8q"
+     */
+    public static String toUci(int move) {
+        StringBuilder str = new StringBuilder(5);
+        appendUci(str, move);
+        return str.toString();
+    }
+
+    public static void appendUci(StringBuilder str, int move) {
+        appendSquare(str, from(move));
+        appendSquare(str, to(move));
+        if (isPromotion(move)) {
+            str.append(PROMOTION_LETTERS.charAt(promotionType(move) - Piece.KNIGHT));
+        }
+    }
+
+    /**
+     * Parses a move in UCI notation, using the board to work out its flags.
+     *
+     * @return packed move, or NONE if the string is not a well formed move from an occupied square
+     */
+    public static int fromUci(Board board, String uci) {
+        if (uci.length() < 4 || uci.length() > 5) {
+            return NONE;
+        }
+        int from = Bitboard.fromAlgebraic(uci.substring(0, 2));
+        int to = Bitboard.fromAlgebraic(uci.substring(2, 4));
+        if (from == Bitboard.NO_SQUARE || to == Bitboard.NO_SQUARE || board.getPiece(from) == null) {
+            return NONE;
+        }
+        int move = fromMove(toMove(board, encode(from, to, QUIET)));
+        if (uci.length() == 5) {
+            int promotionType = PROMOTION_LETTERS.indexOf(uci.charAt(4));
+            if (promotionType < 0 || !isPromotion(move)) {
+                return NONE;
+            }
+            move = encodePromotion(from, to, promotionType + Piece.KNIGHT, isCapture(move));
+        }
+        return move;
+    }
+
+    /**
+     * Writes the move in standard algebraic notation, e.g "Nbd7", "exd5", "e8=Q" or "O-O". The board must be the
+     * position before the move is made. Check suffixes are not added, see SanWriter for those.
+     */
+    public static String toSan(Board board, int move) {
+        StringBuilder str = new StringBuilder(8);
+        appendSan(str, board, move);
+        return str.toString();
+    }
+
+    public static void appendSan(StringBuilder str, Board board, int move) {
+        int flags = flags(move);
+        if (flags == KING_CASTLE) {
+            str.append("O-O");
+            return;
+        }
+        if (flags == QUEEN_CASTLE) {
+            str.append("O-O-O");
+            return;
+        }
+        int from = from(move);
+        int to = to(move);
+        Piece piece = board.getPiece(from);
+        int type = piece == null ? Piece.PAWN : piece.getType();
+        if (type == Piece.PAWN) {
+            if (isCapture(move)) {
+                str.append((char) ('a' + Bitboard.fileOf(from)));
+            }
+        } else {
+            str.append(PIECE_LETTERS.charAt(type));
+            appendDisambiguation(str, board, piece, from, to);
+        }
+        if (isCapture(move)) {
+            str.append('x');
+        }
+        appendSquare(str, to);
+        if (isPromotion(move)) {
+            str.append('=').append(PIECE_LETTERS.charAt(promotionType(move)));
+        }
+    }
+
+    /**
+     * Adds the file and/or rank of the moving piece when another piece of the same type could also legally move to the
+     * target. A pinned rival does not count.
+     */
+    static void appendDisambiguation(StringBuilder str, Board board, Piece piece, int from, int to) {
+        long others = rivals(board, piece, to) & ~Bitboard.bit(from);
+        for (long rivals = others; rivals != 0; rivals &= rivals - 1) {
+            int rival = Long.numberOfTrailingZeros(rivals);
+            if (!MoveGenerator.isLegal(board, encode(rival, to, QUIET))) {
+                others &= ~Bitboard.bit(rival);
+            }
+        }
+        if (others == 0) {
+            return;
+        }
+        if ((others & (Bitboard.FILE_A << Bitboard.fileOf(from))) == 0) {
+            str.append((char) ('a' + Bitboard.fileOf(from)));
+        } else if ((others & (Bitboard.RANK_8 << (8 * Bitboard.rankOf(from)))) == 0) {
+            str.append((char) ('8' - Bitboard.rankOf(from)));
+        } else {
+            appendSquare(str, from);
+        }
+    }
+
+    /**
+     * @return all pieces of the same type and colour as the given piece that attack the target square
+     */
+    static long rivals(Board board, Piece piece, int to) {
+        long same = board.getBitboard(piece.getColour(), piece.getType());
+        switch (piece.getType()) {
+            case Piece.KNIGHT:
+                return Attacks.KNIGHT[to] & same;
+            case Piece.BISHOP:
+                return Attacks.bishopAttacks(to, board.occupied) & same;
+            case Piece.ROOK:
+                return Attacks.rookAttacks(to, board.occupied) & same;
+            case Piece.QUEEN:
+                return Attacks.queenAttacks(to, board.occupied) & same;
+            default:
+                return 0L;
+        }
+    }
+
+    static void appendSquare(StringBuilder str, int square) {
+        str.append((char) ('a' + Bitboard.fileOf(square)));
+        str.append((char) ('8' - Bitboard.rankOf(square)));
+    }
+}
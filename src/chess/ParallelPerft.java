@@ -0,0 +1,187 @@
+package chess;
+
+import chess.board.Board;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft spread across a ForkJoinPool, with subtree counts cached in a shared PerftHashTable. Gives the same counts as
+ * Perft, just faster.
+ * <p>
+ * Every root move becomes a task on its own copy of the board. A task keeps splitting its subtree into more tasks
+ * while other workers are short of work and enough depth is left to be worth a board copy, and otherwise counts the
+ * rest of the subtree itself.
+ * <p>
+ * Usage: {@code java chess.ParallelPerft <depth> [fen] [threads=N] [hash=MB] [divide]}
+ */
+public final class ParallelPerft {
+
+    /**
+     * Subtrees shallower than this are always counted by the task that finds them
+     */
+    static final int MIN_SPLIT_DEPTH = 3;
+    /**
+     * Tables are only probed this far from the leaves, as shallower subtrees are cheaper to count than to look up
+     */
+    static final int MIN_HASH_DEPTH = 2;
+
+    private final ForkJoinPool pool;
+    private final PerftHashTable table;
+
+    /**
+     * @param threads       number of worker threads
+     * @param hashMegabytes size of the subtree count cache
+     */
+    public ParallelPerft(int threads, int hashMegabytes) {
+        this.pool = new ForkJoinPool(threads);
+        this.table = new PerftHashTable(hashMegabytes);
+    }
+
+    /**
+     * Counts leaf nodes to the given depth. The board itself is not changed.
+     */
+    public long perft(Board board, int depth) {
+        long nodes = 0;
+        for (long count : divide(board, depth).values()) {
+            nodes += count;
+        }
+        return depth == 0 ? 1 : nodes;
+    }
+
+    /**
+     * @return node count for each legal root move, keyed by the move in UCI notation, in the same order as
+     * Perft.divide
+     */
+    public Map<String, Long> divide(Board board, int depth) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        if (depth == 0) {
+            return counts;
+        }
+        int[] moves = MoveGenerator.generateLegalMoves(board);
+        List<PerftTask> tasks = new ArrayList<>(moves.length);
+        for (int move : moves) {
+            PerftTask task = new PerftTask(board, move, depth - 1);
+            pool.execute(task);
+            tasks.add(task);
+        }
+        for (int i = 0; i < moves.length; i++) {
+            counts.put(PackedMove.toUci(moves[i]), tasks.get(i).join());
+        }
+        return counts;
+    }
+
+    /**
+     * Stops the worker threads
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Counts the subtree below one move, on a copy of the board with that move made
+     */
+    @SuppressWarnings("serial")
+    private final class PerftTask extends RecursiveTask<Long> {
+
+        private final Board board;
+        private final int depth;
+
+        PerftTask(Board parent, int move, int depth) {
+            this.board = new Board(parent);
+            this.board.makeMove(move);
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth < MIN_SPLIT_DEPTH || getSurplusQueuedTaskCount() > 2) {
+                return perft(board, depth, MoveGenerator.createBuffers(depth + 1));
+            }
+            long cached = table.get(board.getHash(), depth);
+            if (cached >= 0) {
+                return cached;
+            }
+            int[] moves = MoveGenerator.generateLegalMoves(board);
+            List<PerftTask> children = new ArrayList<>(moves.length);
+            for (int move : moves) {
+                children.add(new PerftTask(board, move, depth - 1));
+            }
+            long nodes = 0;
+            for (PerftTask child : invokeAll(children)) {
+                nodes += child.join();
+            }
+            table.put(board.getHash(), depth, nodes);
+            return nodes;
+        }
+
+        private long perft(Board board, int depth, int[][] buffers) {
+            if (depth < MIN_HASH_DEPTH) {
+                return Perft.perft(board, depth, buffers);
+            }
+            long cached = table.get(board.getHash(), depth);
+            if (cached >= 0) {
+                return cached;
+            }
+            int[] moves = buffers[depth];
+            int n = MoveGenerator.generateLegalMoves(board, moves);
+            long nodes = 0;
+            for (int i = 0; i < n; i++) {
+                board.makeMove(moves[i]);
+                nodes += perft(board, depth - 1, buffers);
+                board.undoMove();
+            }
+            table.put(board.getHash(), depth, nodes);
+            return nodes;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: java chess.ParallelPerft <depth> [fen] [threads=N] [hash=MB] [divide]");
+            return;
+        }
+        int depth = Integer.parseInt(args[0]);
+        String fen = Perft.START_FEN;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int hashMegabytes = 256;
+        boolean divide = false;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("threads=")) {
+                threads = Integer.parseInt(args[i].substring("threads=".length()));
+            } else if (args[i].startsWith("hash=")) {
+                hashMegabytes = Integer.parseInt(args[i].substring("hash=".length()));
+            } else if (args[i].equals("divide")) {
+                divide = true;
+            } else {
+                fen = args[i];
+            }
+        }
+        ParallelPerft perft = new ParallelPerft(threads, hashMegabytes);
+        Board board = FEN.load(fen);
+
+        long start = System.nanoTime();
+        Map<String, Long> counts = perft.divide(board, depth);
+        long elapsed = Math.max(System.nanoTime() - start, 1);
+        perft.shutdown();
+
+        long nodes = 0;
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            if (divide) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+            }
+            nodes += entry.getValue();
+        }
+        if (divide) {
+            System.out.println();
+        }
+        System.out.println("Nodes: " + nodes);
+        System.out.println("Threads: " + threads);
+        System.out.printf("Time: %.3f s%n", elapsed / 1e9);
+        System.out.printf("Speed: %.0f nodes/s%n", nodes * 1e9 / elapsed);
+    }
+}
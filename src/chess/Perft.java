@@ -0,0 +1,103 @@
+package chess;
+
+import chess.board.Board;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth, for checking the move generator against known
+ * results and for measuring its speed.
+ * <p>
+ * Usage: {@code java chess.Perft <depth> [fen] [divide]}. With no FEN the starting position is used. Divide prints the
+ * count below each root move, which is the quickest way to find a bug by comparing against another engine.
+ */
+public final class Perft {
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private Perft() {
+    }
+
+    /**
+     * @return number of legal move sequences of exactly the given depth from the position
+     */
+    public static long perft(Board board, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        return perft(board, depth, MoveGenerator.createBuffers(depth + 1));
+    }
+
+    /**
+     * Counts each root move's subtree separately
+     *
+     * @return node count for each legal root move, keyed by the move in UCI notation, in generation order
+     */
+    public static Map<String, Long> divide(Board board, int depth) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        if (depth == 0) {
+            return counts;
+        }
+        int[][] buffers = MoveGenerator.createBuffers(depth + 1);
+        int[] moves = buffers[depth];
+        int n = MoveGenerator.generateLegalMoves(board, moves);
+        for (int i = 0; i < n; i++) {
+            board.makeMove(moves[i]);
+            counts.put(PackedMove.toUci(moves[i]), perft(board, depth - 1, buffers));
+            board.undoMove();
+        }
+        return counts;
+    }
+
+    /**
+     * @param buffers move buffers indexed by remaining depth, see MoveGenerator.createBuffers
+     */
+    static long perft(Board board, int depth, int[][] buffers) {
+        if (depth == 0) {
+            return 1;
+        }
+        int[] moves = buffers[depth];
+        int n = MoveGenerator.generateLegalMoves(board, moves);
+        // Leaves don't need making, only counting
+        if (depth == 1) {
+            return n;
+        }
+        long nodes = 0;
+        for (int i = 0; i < n; i++) {
+            board.makeMove(moves[i]);
+            nodes += perft(board, depth - 1, buffers);
+            board.undoMove();
+        }
+        return nodes;
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: java chess.Perft <depth> [fen] [divide]");
+            return;
+        }
+        int depth = Integer.parseInt(args[0]);
+        String fen = args.length > 1 && !args[1].equals("divide") ? args[1] : START_FEN;
+        boolean divide = args[args.length - 1].equals("divide");
+        Board board = FEN.load(fen);
+
+        long start = System.nanoTime();
+        long nodes;
+        if (divide) {
+            nodes = 0;
+            for (Map.Entry<String, Long> entry : divide(board, depth).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                nodes += entry.getValue();
+            }
+            System.out.println();
+        } else {
+            nodes = perft(board, depth);
+        }
+        long elapsed = Math.max(System.nanoTime() - start, 1);
+
+        System.out.println("Nodes: " + nodes);
+        System.out.printf("Time: %.3f s%n", elapsed / 1e9);
+        System.out.printf("Speed: %.0f nodes/s%n", nodes * 1e9 / elapsed);
+    }
+}
@@ -0,0 +1,50 @@
+package chess;
+
+/**
+ * Fixed size cache of perft subtree counts keyed by position hash and depth, shared between threads without locking.
+ * <p>
+ * Each entry is two longs: the data (node count in the upper 56 bits, depth in the low 8) and the hash XORed with
+ * the data. Threads read and write them with plain array accesses, so two writers racing on a slot can leave the key
+ * of one entry next to the data of another. Such a pair no longer XORs back to a matching hash and is simply treated
+ * as a miss, which avoids the cost of locks or CAS on every probe. New entries always replace old ones.
+ */
+final class PerftHashTable {
+
+    private static final int ENTRY_BYTES = 16;
+    /**
+     * Most entries a table can hold, as two longs each must still fit in one array
+     */
+    private static final int MAX_ENTRIES = 1 << 29;
+
+    private final long[] entries;
+    private final int mask;
+
+    /**
+     * @param megabytes approximate memory to use, rounded down to a power of two number of entries and capped at 8 GB
+     */
+    PerftHashTable(int megabytes) {
+        long count = Math.max(1L, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        int size = Integer.highestOneBit((int) Math.min(count, MAX_ENTRIES));
+        this.entries = new long[2 * size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return node count stored for the position at this depth, or -1 if there is none
+     */
+    long get(long hash, int depth) {
+        int index = ((int) hash & mask) << 1;
+        long data = entries[index + 1];
+        if ((entries[index] ^ data) != hash || (int) (data & 0xFF) != depth) {
+            return -1;
+        }
+        return data >>> 8;
+    }
+
+    void put(long hash, int depth, long nodes) {
+        int index = ((int) hash & mask) << 1;
+        long data = (nodes << 8) | depth;
+        entries[index] = hash ^ data;
+        entries[index + 1] = data;
+    }
+}
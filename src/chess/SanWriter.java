@@ -0,0 +1,67 @@
+package chess;
+
+import chess.board.Board;
+import chess.board.pieces.Piece;
+
+/**
+ * Writes moves in standard algebraic notation with "+" or "#" after checks and mates, e.g for move lists and PGN
+ * export. Text is appended to the caller's StringBuilder and the writer reuses its own move buffer for mate
+ * detection, so writing a move allocates nothing. A writer is not thread safe.
+ */
+public final class SanWriter {
+
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    /**
+     * Appends a move, e.g "Nbd7", "exd5+" or "e8=Q#". Checks are found from the bitboards, and only a move that gives
+     * check is made and undone on the board to see if it is mate, so the board ends up as it was.
+     *
+     * @param board position before the move
+     */
+    public StringBuilder append(StringBuilder str, Board board, int move) {
+        PackedMove.appendSan(str, board, move);
+        if (MoveGenerator.givesCheck(board, move)) {
+            board.makeMove(move);
+            str.append(MoveGenerator.generateLegalMoves(board, moves) == 0 ? '#' : '+');
+            board.undoMove();
+        }
+        return str;
+    }
+
+    /**
+     * Appends "+" if the side to move is in check, or "#" if it is also mated
+     *
+     * @param board position after the move
+     */
+    public StringBuilder appendCheck(StringBuilder str, Board board) {
+        int us = board.whiteToMove ? Piece.WHITE : Piece.BLACK;
+        if (board.isInCheck(us)) {
+            str.append(MoveGenerator.generateLegalMoves(board, moves) == 0 ? '#' : '+');
+        }
+        return str;
+    }
+
+    /**
+     * Appends moves as PGN movetext, e.g "1. e4 e5 2. Nf3", numbered from the board's move number. The moves are made
+     * on the board, which is left at the position after the last one.
+     *
+     * @param moves packed moves, see PackedMove
+     * @param count number of moves to write from the start of the array
+     */
+    public StringBuilder appendMoves(StringBuilder str, Board board, int[] moves, int count) {
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                str.append(' ');
+            }
+            if (board.whiteToMove) {
+                str.append(board.moveNumber).append(". ");
+            } else if (i == 0) {
+                str.append(board.moveNumber).append("... ");
+            }
+            PackedMove.appendSan(str, board, moves[i]);
+            board.makeMove(moves[i]);
+            appendCheck(str, board);
+        }
+        return str;
+    }
+}
@@ -0,0 +1,157 @@
+package chess.board;
+
+import chess.board.pieces.Piece;
+
+import java.util.Arrays;
+
+/**
+ * Squares attacked by each side, maintained incrementally as pieces are put on and taken off the board.
+ * <p>
+ * For every occupied square the map remembers what that piece attacks. When a square changes, only the piece on it
+ * and the sliding pieces whose rays pass through it need updating. Each slider's old and new attacks are compared, so
+ * only the squares that actually changed have their counts touched.
+ */
+public final class AttackMap {
+
+    /**
+     * Number of pieces of each colour attacking each square, indexed [colour][square]
+     */
+    private final byte[][] counts = new byte[2][64];
+    /**
+     * Squares attacked by at least one piece of each colour
+     */
+    private final long[] attacked = new long[2];
+    /**
+     * Squares attacked by the piece standing on each square, or 0 for empty squares
+     */
+    private final long[] attacksFrom = new long[64];
+
+    public AttackMap() {
+    }
+
+    /**
+     * Creates a copy of another attack map
+     */
+    public AttackMap(AttackMap other) {
+        System.arraycopy(other.counts[0], 0, counts[0], 0, 64);
+        System.arraycopy(other.counts[1], 0, counts[1], 0, 64);
+        System.arraycopy(other.attacked, 0, attacked, 0, 2);
+        System.arraycopy(other.attacksFrom, 0, attacksFrom, 0, 64);
+    }
+
+    /**
+     * @return bitboard of every square attacked by the given colour
+     */
+    public long getAttacked(int colour) {
+        return attacked[colour];
+    }
+
+    /**
+     * @return number of pieces of the given colour attacking a square
+     */
+    public int getAttackerCount(int colour, int square) {
+        return counts[colour][square];
+    }
+
+    /**
+     * @return squares attacked by the piece on a square, or 0 if the square is empty
+     */
+    public long getAttacksFrom(int square) {
+        return attacksFrom[square];
+    }
+
+    public void clear() {
+        Arrays.fill(counts[0], (byte) 0);
+        Arrays.fill(counts[1], (byte) 0);
+        attacked[0] = 0L;
+        attacked[1] = 0L;
+        Arrays.fill(attacksFrom, 0L);
+    }
+
+    /**
+     * Called once a piece has been added to the board's bitboards
+     */
+    void pieceAdded(Board board, int square, Piece p) {
+        updateSlidersThrough(board, square);
+        long attacks = attacksOf(p.getType(), p.getColour(), square, board.occupied);
+        attacksFrom[square] = attacks;
+        add(p.getColour(), attacks);
+    }
+
+    /**
+     * Called once a piece has been removed from the board's bitboards
+     */
+    void pieceRemoved(Board board, int square, Piece p) {
+        subtract(p.getColour(), attacksFrom[square]);
+        attacksFrom[square] = 0L;
+        updateSlidersThrough(board, square);
+    }
+
+    /**
+     * Recalculates the attacks of every slider that can see a square, as one of their rays has just been blocked or
+     * unblocked there.
+     */
+    private void updateSlidersThrough(Board board, int square) {
+        long occupied = board.occupied;
+        long[] pieces = board.pieceBitboards;
+        long diagonal = pieces[Piece.BISHOP] | pieces[Piece.QUEEN] | pieces[6 + Piece.BISHOP] | pieces[6 + Piece.QUEEN];
+        long straight = pieces[Piece.ROOK] | pieces[Piece.QUEEN] | pieces[6 + Piece.ROOK] | pieces[6 + Piece.QUEEN];
+        long sliders = (Attacks.bishopAttacks(square, occupied) & diagonal)
+                | (Attacks.rookAttacks(square, occupied) & straight);
+        while (sliders != 0) {
+            int from = Long.numberOfTrailingZeros(sliders);
+            sliders &= sliders - 1;
+            Piece slider = board.getPiece(from);
+            int colour = slider.getColour();
+            long before = attacksFrom[from];
+            long after = attacksOf(slider.getType(), colour, from, occupied);
+            if (before != after) {
+                subtract(colour, before & ~after);
+                add(colour, after & ~before);
+                attacksFrom[from] = after;
+            }
+        }
+    }
+
+    private void add(int colour, long squares) {
+        byte[] count = counts[colour];
+        while (squares != 0) {
+            int square = Long.numberOfTrailingZeros(squares);
+            squares &= squares - 1;
+            if (count[square]++ == 0) {
+                attacked[colour] |= 1L << square;
+            }
+        }
+    }
+
+    private void subtract(int colour, long squares) {
+        byte[] count = counts[colour];
+        while (squares != 0) {
+            int square = Long.numberOfTrailingZeros(squares);
+            squares &= squares - 1;
+            if (--count[square] == 0) {
+                attacked[colour] &= ~(1L << square);
+            }
+        }
+    }
+
+    /**
+     * @return squares attacked by a piece of the given type and colour standing on a square
+     */
+    public static long attacksOf(int type, int colour, int square, long occupied) {
+        switch (type) {
+            case Piece.PAWN:
+                return Attacks.PAWN[colour][square];
+            case Piece.KNIGHT:
+                return Attacks.KNIGHT[square];
+            case Piece.BISHOP:
+                return Attacks.bishopAttacks(square, occupied);
+            case Piece.ROOK:
+                return Attacks.rookAttacks(square, occupied);
+            case Piece.QUEEN:
+                return Attacks.queenAttacks(square, occupied);
+            default:
+                return Attacks.KING[square];
+        }
+    }
+}
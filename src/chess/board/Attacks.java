@@ -0,0 +1,286 @@
+package chess.board;
+
+/**
+ * Precomputed attack tables. Knight, king and pawn attacks are simple per-square lookups, while rook and bishop
+ * attacks use magic bitboards so that a slider's attacks for any occupancy come back as a single long in constant time.
+ * <p>
+ * The magic numbers below were found with a fixed-seed search over sparse random numbers (see findMagic). Published
+ * magic tables assume a1 is bit 0, which does not match the square layout described in Bitboard.
+ */
+public final class Attacks {
+
+    public static final long[] KNIGHT = new long[64];
+    public static final long[] KING = new long[64];
+    /**
+     * Squares attacked by a pawn of the given colour, indexed [colour][square]
+     */
+    public static final long[][] PAWN = new long[2][64];
+
+    private static final int[][] ROOK_DIRECTIONS = {{0, -1}, {0, 1}, {1, 0}, {-1, 0}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, -1}, {-1, 1}, {-1, -1}, {1, 1}};
+
+    /**
+     * Squares strictly between two squares on the same rank, file or diagonal, indexed [from][to]
+     */
+    private static final long[][] BETWEEN = new long[64][64];
+    /**
+     * The whole rank, file or diagonal through two squares, or 0 if they do not share one, indexed [from][to]
+     */
+    private static final long[][] LINE = new long[64][64];
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = {
+            0x008000908064C000L, 0x0040200040001000L, 0x0180100080A0010AL, 0x8880041000800800L,
+            0x1200100201200804L, 0x0200020004011008L, 0x2180010000800600L, 0x0200005088210204L,
+            0x0000800080204001L, 0x1000804000802001L, 0x8240801000200080L, 0x8611001004200900L,
+            0x008180800C001800L, 0x0100800200800400L, 0x0A02000102000408L, 0x8020802300104280L,
+            0x0080004000402000L, 0xE010104000402000L, 0x0800808010002000L, 0xA280210008100100L,
+            0x0001818014000800L, 0xA002010100080400L, 0x0008040088020130L, 0x0001020004048845L,
+            0x0081826280004004L, 0x2020810900284000L, 0x0200100080802000L, 0x0200080080100080L,
+            0x8083080100100500L, 0x4406000901000400L, 0x0005020080800100L, 0x0090204200008114L,
+            0x0010400094800420L, 0x0900804000802002L, 0x0201001841002000L, 0x4100080080801000L,
+            0x4540040080800800L, 0x0000800400800200L, 0x9281800100808200L, 0x8004048102000854L,
+            0x4420802040008006L, 0x0880500020004002L, 0x0801200241050010L, 0x8400080010008080L,
+            0x0008000500090010L, 0x0082009084020008L, 0x4012000108020004L, 0x9000104D08860004L,
+            0x2004204114800100L, 0x0148802112400300L, 0x0202842000100880L, 0x001B080080900080L,
+            0x001A002008100600L, 0x0004008004020080L, 0x5181000600040300L, 0x0000044401128A00L,
+            0x8044110480002441L, 0x1023012082044112L, 0x00804080200A0012L, 0x000420310A004A42L,
+            0x0023001004020801L, 0x0882001008040102L, 0x000230088118020CL, 0x0000019025040042L
+    };
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final long[][] ROOK_TABLE = new long[64][];
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = {
+            0x1010220204082A00L, 0x80E0020202002804L, 0x2008480104200020L, 0x000220920280002DL,
+            0x32040421000B0284L, 0x1002080404000400L, 0x0004160892080040L, 0x2203024206204201L,
+            0x0002404264010200L, 0x1120908408428124L, 0xB100424403002280L, 0x240008060440C288L,
+            0x2040040420490400L, 0x0100620210040022L, 0x0400084104202028L, 0x0010050080908820L,
+            0x0C90A04490824802L, 0x000200A008210130L, 0x0C08001000204010L, 0x0008000186014480L,
+            0x0601044820080021L, 0x0002000101013100L, 0x1400A08108080204L, 0x0250401104485410L,
+            0x4820240810142843L, 0x0009142A20182200L, 0x0848140048440020L, 0x2020120000400440L,
+            0x0108840200802003L, 0x0009070082009492L, 0x020C0C0038424245L, 0xCA44005808210410L,
+            0x8011212000500404L, 0x2028840510101008L, 0x0004042A00041400L, 0x0624020080980080L,
+            0x1820410040840040L, 0x2201004202050100L, 0x402A088A24040224L, 0x0242061040002400L,
+            0x90020202400821A0L, 0x00C9009004E01002L, 0x58C2060202023100L, 0x0000012214040800L,
+            0x0210846810100200L, 0x0004208081010200L, 0x01A4108404442100L, 0x8054082C80280106L,
+            0x0004144904104208L, 0x00324C0A11104000L, 0x1000020231040100L, 0x2080001042020004L,
+            0x0544021020288104L, 0x1103501408083020L, 0x4010451004960002L, 0x003010091C44902CL,
+            0x0102402884202000L, 0x0480804C00841086L, 0x04602C8602210400L, 0x0000004000420200L,
+            0x0040000020442C18L, 0x4483804089094100L, 0x80000B0248020400L, 0x0045010808008680L
+    };
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final long[][] BISHOP_TABLE = new long[64][];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT[square] = leaperAttacks(square, new int[][]{
+                    {1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}});
+            KING[square] = leaperAttacks(square, new int[][]{
+                    {0, 1}, {1, 1}, {1, 0}, {1, -1}, {0, -1}, {-1, -1}, {-1, 0}, {-1, 1}});
+            // White pawns move towards rank index 0, black pawns towards rank index 7
+            PAWN[0][square] = leaperAttacks(square, new int[][]{{-1, -1}, {1, -1}});
+            PAWN[1][square] = leaperAttacks(square, new int[][]{{-1, 1}, {1, 1}});
+        }
+        for (int square = 0; square < 64; square++) {
+            initMagic(square, ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_TABLE);
+            initMagic(square, BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_TABLE);
+        }
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a == b) {
+                    continue;
+                }
+                long ends = Bitboard.bit(a) | Bitboard.bit(b);
+                if ((rookAttacks(a, 0L) & Bitboard.bit(b)) != 0) {
+                    LINE[a][b] = (rookAttacks(a, 0L) & rookAttacks(b, 0L)) | ends;
+                    BETWEEN[a][b] = rookAttacks(a, Bitboard.bit(b)) & rookAttacks(b, Bitboard.bit(a));
+                } else if ((bishopAttacks(a, 0L) & Bitboard.bit(b)) != 0) {
+                    LINE[a][b] = (bishopAttacks(a, 0L) & bishopAttacks(b, 0L)) | ends;
+                    BETWEEN[a][b] = bishopAttacks(a, Bitboard.bit(b)) & bishopAttacks(b, Bitboard.bit(a));
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    /**
+     * @param square   square the rook stands on
+     * @param occupied bitboard of every occupied square
+     * @return all squares the rook attacks, including the first blocker in each direction whatever its colour
+     */
+    public static long rookAttacks(int square, long occupied) {
+        long index = ((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square];
+        return ROOK_TABLE[square][(int) index];
+    }
+
+    /**
+     * @param square   square the bishop stands on
+     * @param occupied bitboard of every occupied square
+     * @return all squares the bishop attacks, including the first blocker in each direction whatever its colour
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        long index = ((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square];
+        return BISHOP_TABLE[square][(int) index];
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * @return squares strictly between two squares if they share a rank, file or diagonal, otherwise 0
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * @return every square on the rank, file or diagonal through both squares (edge to edge), otherwise 0
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    private static long leaperAttacks(int square, int[][] offsets) {
+        int file = Bitboard.fileOf(square);
+        int rank = Bitboard.rankOf(square);
+        long attacks = 0L;
+        for (int[] offset : offsets) {
+            int f = file + offset[0];
+            int r = rank + offset[1];
+            if (f >= 0 && f < 8 && r >= 0 && r < 8) {
+                attacks |= Bitboard.bit(Bitboard.square(f, r));
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Walks each ray from a square until it hits the edge of the board or an occupied square. This is the slow
+     * reference used to fill the magic tables.
+     */
+    static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int f = Bitboard.fileOf(square) + direction[0];
+            int r = Bitboard.rankOf(square) + direction[1];
+            while (f >= 0 && f < 8 && r >= 0 && r < 8) {
+                long bit = Bitboard.bit(Bitboard.square(f, r));
+                attacks |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+                f += direction[0];
+                r += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    static long rookAttacksSlow(int square, long occupied) {
+        return slidingAttacks(square, occupied, ROOK_DIRECTIONS);
+    }
+
+    static long bishopAttacksSlow(int square, long occupied) {
+        return slidingAttacks(square, occupied, BISHOP_DIRECTIONS);
+    }
+
+    /**
+     * Relevant occupancy mask for a slider, i.e every square on its rays except the last one in each direction, as
+     * the edge square never changes whether the ray is blocked.
+     */
+    private static long relevantMask(int square, int[][] directions) {
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int f = Bitboard.fileOf(square) + direction[0];
+            int r = Bitboard.rankOf(square) + direction[1];
+            while (f + direction[0] >= 0 && f + direction[0] < 8 && r + direction[1] >= 0 && r + direction[1] < 8) {
+                mask |= Bitboard.bit(Bitboard.square(f, r));
+                f += direction[0];
+                r += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    private static void initMagic(int square, int[][] directions, long[] masks, long[] magics, int[] shifts,
+                                  long[][] tables) {
+        long mask = relevantMask(square, directions);
+        int bits = Long.bitCount(mask);
+        long[] table = new long[1 << bits];
+        // Enumerate every subset of the mask (Carry-Rippler trick)
+        long subset = 0L;
+        do {
+            int index = (int) ((subset * magics[square]) >>> (64 - bits));
+            table[index] = slidingAttacks(square, subset, directions);
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+        masks[square] = mask;
+        shifts[square] = 64 - bits;
+        tables[square] = table;
+    }
+
+    /**
+     * Searches for a magic number for a square, i.e one which maps every relevant occupancy to a table index without
+     * two occupancies with different attacks sharing an index. Used to generate the magic tables above.
+     *
+     * @param seed state of the random number generator, updated in place
+     */
+    static long findMagic(int square, boolean isRook, long[] seed) {
+        int[][] directions = isRook ? ROOK_DIRECTIONS : BISHOP_DIRECTIONS;
+        long mask = relevantMask(square, directions);
+        int bits = Long.bitCount(mask);
+        int size = 1 << bits;
+        long[] occupancies = new long[size];
+        long[] attacks = new long[size];
+        long subset = 0L;
+        for (int i = 0; i < size; i++) {
+            occupancies[i] = subset;
+            attacks[i] = slidingAttacks(square, subset, directions);
+            subset = (subset - mask) & mask;
+        }
+        long[] table = new long[size];
+        int[] epoch = new int[size];
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            long magic = sparseRandom(seed);
+            // Quickly reject magics that do not spread the high bits of the mask
+            if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+                continue;
+            }
+            boolean collision = false;
+            for (int i = 0; i < size && !collision; i++) {
+                int index = (int) ((occupancies[i] * magic) >>> (64 - bits));
+                if (epoch[index] != attempt) {
+                    epoch[index] = attempt;
+                    table[index] = attacks[i];
+                } else if (table[index] != attacks[i]) {
+                    collision = true;
+                }
+            }
+            if (!collision) {
+                return magic;
+            }
+        }
+    }
+
+    /**
+     * xorshift64* step, AND-ed together three times as magics with few set bits are found much faster
+     */
+    private static long sparseRandom(long[] seed) {
+        return nextRandom(seed) & nextRandom(seed) & nextRandom(seed);
+    }
+
+    private static long nextRandom(long[] seed) {
+        long x = seed[0];
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        seed[0] = x;
+        return x * 0x2545F4914F6CDD1DL;
+    }
+}
@@ -0,0 +1,113 @@
+package chess.board;
+
+/**
+ * Helpers for working with bitboards, i.e a long where each bit represents one square of the board.
+ * <p>
+ * Squares are indexed as rank * 8 + file, using the same zero-indexed file/rank coordinates as Board.squares. This
+ * means bit 0 is a8, bit 7 is h8, bit 56 is a1 and bit 63 is h1.
+ */
+public final class Bitboard {
+
+    public static final long EMPTY = 0L;
+    public static final long ALL = ~0L;
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_B = FILE_A << 1;
+    public static final long FILE_G = FILE_A << 6;
+    public static final long FILE_H = FILE_A << 7;
+
+    // Note rank 8 is the top row of the board, i.e the lowest bits
+    public static final long RANK_8 = 0xFFL;
+    public static final long RANK_7 = RANK_8 << 8;
+    public static final long RANK_6 = RANK_8 << 16;
+    public static final long RANK_5 = RANK_8 << 24;
+    public static final long RANK_4 = RANK_8 << 32;
+    public static final long RANK_3 = RANK_8 << 40;
+    public static final long RANK_2 = RANK_8 << 48;
+    public static final long RANK_1 = RANK_8 << 56;
+
+    public static final int NO_SQUARE = -1;
+
+    private Bitboard() {
+    }
+
+    /**
+     * @param file zero-indexed file, 0 is the 'a' file
+     * @param rank zero-indexed rank, 0 is the eighth rank
+     * @return square index for the given coordinate
+     */
+    public static int square(int file, int rank) {
+        return (rank << 3) | file;
+    }
+
+    public static int fileOf(int square) {
+        return square & 7;
+    }
+
+    public static int rankOf(int square) {
+        return square >>> 3;
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static boolean contains(long bitboard, int square) {
+        return (bitboard & (1L << square)) != 0;
+    }
+
+    public static int count(long bitboard) {
+        return Long.bitCount(bitboard);
+    }
+
+    /**
+     * @return index of the lowest set square, or 64 if the bitboard is empty
+     */
+    public static int first(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    /**
+     * @return the bitboard with its lowest set square removed
+     */
+    public static long removeFirst(long bitboard) {
+        return bitboard & (bitboard - 1);
+    }
+
+    /**
+     * Converts a square index to algebraic notation, e.g 0 is "a8" and 63 is "h1"
+     */
+    public static String toAlgebraic(int square) {
+        return Board.toAlgebraicNotation(fileOf(square), rankOf(square));
+    }
+
+    /**
+     * Converts algebraic notation such as "e3" to a square index, or NO_SQUARE if the string is not a square.
+     */
+    public static int fromAlgebraic(CharSequence str) {
+        if (str.length() != 2) {
+            return NO_SQUARE;
+        }
+        int file = str.charAt(0) - 'a';
+        int rank = '8' - str.charAt(1);
+        if (file < 0 || file > 7 || rank < 0 || rank > 7) {
+            return NO_SQUARE;
+        }
+        return square(file, rank);
+    }
+
+    /**
+     * Pretty prints a bitboard as an 8x8 grid, with the eighth rank at the top
+     */
+    public static String toString(long bitboard) {
+        StringBuilder str = new StringBuilder();
+        for (int rank = 0; rank < 8; rank++) {
+            for (int file = 0; file < 8; file++) {
+                str.append(contains(bitboard, square(file, rank)) ? '1' : '.');
+                str.append(' ');
+            }
+            str.append('\n');
+        }
+        return str.toString();
+    }
+}
@@ -1,14 +1,16 @@
 package chess.board;
 
+import chess.FEN;
 import chess.MoveChecker;
+import chess.PackedMove;
+import chess.SanWriter;
 import chess.board.pieces.*;
+import chess.metrics.Metrics;
 import javafx.util.Pair;
 import chess.Move;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
 
 public class Board {
 
@@ -42,17 +44,108 @@ public class Board {
      * at any given time.
      */
     public Pair<Integer, Integer> enPassantTarget;
+    /**
+     * Square that a pawn may move into to capture en passant, as it appears in FEN. Stored as a bitboard square index,
+     * or Bitboard.NO_SQUARE if there is none.
+     */
+    public int enPassantSquare = Bitboard.NO_SQUARE;
+
+    /**
+     * Bitboard representation of the position, kept in step with squares. Indexed by Piece.getCode(), i.e
+     * colour * 6 + type. See Bitboard for how squares map to bits.
+     */
+    public final long[] pieceBitboards = new long[12];
+    /**
+     * Occupancy of all white pieces (index 0) and all black pieces (index 1)
+     */
+    public final long[] colourBitboards = new long[2];
+    /**
+     * Occupancy of all pieces
+     */
+    public long occupied = 0L;
+    /**
+     * Squares of each side's pieces in no particular order, indexed [colour][i] for i below pieceListSize[colour]. Lets
+     * callers visit a side's pieces without scanning all 64 squares, see getPieceCount and getPieceSquare.
+     */
+    private final int[][] pieceList = new int[2][64];
+    private final int[] pieceListSize = new int[2];
+    /**
+     * Position of the piece on each occupied square within its side's piece list
+     */
+    private final int[] pieceListIndex = new int[64];
+    /**
+     * Squares attacked by each side, kept up to date as pieces move
+     */
+    public final AttackMap attackMap;
+    /**
+     * Zobrist hash of the position, kept up to date as pieces and state change. See Zobrist.
+     */
+    private long hash = 0L;
+    /**
+     * Totals from PieceSquareTables, kept up to date as pieces are put down and taken off
+     */
+    private int middlegameScore;
+    private int endgameScore;
+    private int phase;
+    /**
+     * Pieces removed by clearBoard waiting to be reused, indexed by Piece.getCode(). Created on first use.
+     */
+    private Piece[][] spares;
+    private int[] spareCount;
+    /**
+     * Receives diagnostic events, see setListener
+     */
+    private BoardEventListener listener = BoardEventListener.NONE;
 
     /**
      * Store current game history
      */
     public ArrayList<Move> moveHistory = new ArrayList<>();
+    /**
+     * Move history as numbered SAN, appended to as moves are made and cut back as they are undone rather than rebuilt.
+     * moveHistoryLengths holds its length before each move in moveHistory.
+     */
+    private final StringBuilder moveHistorySan = new StringBuilder();
+    private int[] moveHistoryLengths = new int[64];
+    private SanWriter sanWriter;
     /**
      * Stores all squares attacked by the previous player to move. I.e when it is white to move, this contains all the
      * squares attacked by black. It is used to check for Checks.
      */
     public ArrayList<Pair<Integer, Integer>> attackedSquares = new ArrayList<>();
 
+    // Castling rights as bit flags, see getCastlingRights()
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    /**
+     * Castling rights that survive a move to or from each square, e.g moving the h1 rook or capturing on h1 loses
+     * white's kingside right.
+     */
+    static final int[] CASTLING_RIGHTS_KEPT = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_RIGHTS_KEPT, 0xF);
+        CASTLING_RIGHTS_KEPT[Bitboard.square(4, 7)] = BLACK_KINGSIDE | BLACK_QUEENSIDE;
+        CASTLING_RIGHTS_KEPT[Bitboard.square(7, 7)] = 0xF & ~WHITE_KINGSIDE;
+        CASTLING_RIGHTS_KEPT[Bitboard.square(0, 7)] = 0xF & ~WHITE_QUEENSIDE;
+        CASTLING_RIGHTS_KEPT[Bitboard.square(4, 0)] = WHITE_KINGSIDE | WHITE_QUEENSIDE;
+        CASTLING_RIGHTS_KEPT[Bitboard.square(7, 0)] = 0xF & ~BLACK_KINGSIDE;
+        CASTLING_RIGHTS_KEPT[Bitboard.square(0, 0)] = 0xF & ~BLACK_QUEENSIDE;
+    }
+
+    /**
+     * Undo stack for makeMove(int). Entry i holds the move, the piece that moved, the piece it captured and the packed
+     * state from before the move (see packState).
+     */
+    private int[] undoMoves = new int[256];
+    private int[] undoState = new int[256];
+    private long[] undoHash = new long[256];
+    private Piece[] undoMoved = new Piece[256];
+    private Piece[] undoCaptured = new Piece[256];
+    private int undoSize = 0;
+
 
     public class Square {
         public Piece getOccupier() {
@@ -75,43 +168,143 @@ public class Board {
 
 
     public Board() {
+        this.attackMap = new AttackMap();
         clearBoard();
         placeDefaultSetup();
 
     }
 
     public Board(String fen) {
-        clearBoard();
+        this.attackMap = new AttackMap();
         load(fen);
     }
 
     /**
-     * Creates a new board as a copy of another
+     * Creates a new board as a copy of another. The copy has its own squares and pieces, so either board can be
+     * changed without affecting the other, e.g by different threads. The undo stack is not copied, so the copy cannot
+     * undo moves made before it was created.
      *
      * @param b
      */
     public Board(Board b) {
-        this.squares = b.squares;
+        for (int file = 0; file < SIZE; file++) {
+            for (int rank = 0; rank < SIZE; rank++) {
+                Piece p = b.squares[file][rank].occupier;
+                var s = new Square();
+                s.occupier = p == null ? null : p.copy();
+                squares[file][rank] = s;
+            }
+        }
         this.whiteToMove = b.whiteToMove;
+        this.isCheck = b.isCheck;
+        this.whiteInCheck = b.whiteInCheck;
+        this.blackInCheck = b.blackInCheck;
         this.whiteKingsideCastleRight = b.whiteKingsideCastleRight;
         this.whiteQueensideCastleRight = b.whiteQueensideCastleRight;
         this.blackKingsideCastleRight = b.blackKingsideCastleRight;
-        this.blackQueensideCastleRight = blackKingsideCastleRight;
+        this.blackQueensideCastleRight = b.blackQueensideCastleRight;
         // Track number of moves since last pawn advance or piece capture, aka 'halfmove clock'
         this.halfmoveClock = b.halfmoveClock;
         // Number of times players have moved; incremented each time black moves
         this.moveNumber = b.moveNumber;
-        this.moveHistory = b.moveHistory;
+        this.moveHistory = new ArrayList<>(b.moveHistory);
+        this.moveHistorySan.append(b.moveHistorySan);
+        this.moveHistoryLengths = b.moveHistoryLengths.clone();
+        this.attackedSquares = new ArrayList<>(b.attackedSquares);
+        this.enPassantTarget = b.enPassantTarget;
+        this.enPassantSquare = b.enPassantSquare;
+        System.arraycopy(b.pieceBitboards, 0, this.pieceBitboards, 0, this.pieceBitboards.length);
+        System.arraycopy(b.colourBitboards, 0, this.colourBitboards, 0, this.colourBitboards.length);
+        this.occupied = b.occupied;
+        System.arraycopy(b.pieceList[0], 0, this.pieceList[0], 0, 64);
+        System.arraycopy(b.pieceList[1], 0, this.pieceList[1], 0, 64);
+        System.arraycopy(b.pieceListSize, 0, this.pieceListSize, 0, 2);
+        System.arraycopy(b.pieceListIndex, 0, this.pieceListIndex, 0, 64);
+        this.hash = b.hash;
+        this.middlegameScore = b.middlegameScore;
+        this.endgameScore = b.endgameScore;
+        this.phase = b.phase;
+        this.listener = b.listener;
+        this.attackMap = new AttackMap(b.attackMap);
     }
 
 
+    /**
+     * Empties the board and resets its state. The pieces that were on it are kept aside for recyclePiece, and the
+     * squares are reused, so clearing and refilling a board allocates nothing.
+     */
     public void clearBoard() {
+        for (int colour = 0; colour < 2; colour++) {
+            for (int i = 0; i < pieceListSize[colour]; i++) {
+                keepSpare(getPiece(pieceList[colour][i]));
+            }
+        }
         for (int file = 0; file < SIZE; file++) {
             for (int rank = 0; rank < SIZE; rank++) {
-                var s = new Square();
-                squares[file][rank] = s;
+                if (squares[file][rank] == null) {
+                    squares[file][rank] = new Square();
+                } else {
+                    squares[file][rank].occupier = null;
+                }
             }
         }
+        Arrays.fill(pieceBitboards, 0L);
+        Arrays.fill(colourBitboards, 0L);
+        occupied = 0L;
+        pieceListSize[0] = 0;
+        pieceListSize[1] = 0;
+        hash = 0L;
+        middlegameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        attackMap.clear();
+        enPassantTarget = null;
+        enPassantSquare = Bitboard.NO_SQUARE;
+        Arrays.fill(undoMoved, null);
+        Arrays.fill(undoCaptured, null);
+        undoSize = 0;
+        for (int i = 0; i < moveHistory.size(); i++) {
+            // A copy shares its moves with the board they were made on
+            Move m = moveHistory.get(i);
+            if (m.board == this) {
+                m.sanStart = -1;
+            }
+        }
+        moveHistory.clear();
+        moveHistorySan.setLength(0);
+    }
+
+    private void keepSpare(Piece p) {
+        if (spares == null) {
+            spares = new Piece[12][8];
+            spareCount = new int[12];
+        }
+        int code = p.getCode();
+        if (spareCount[code] == spares[code].length) {
+            spares[code] = Arrays.copyOf(spares[code], 2 * spareCount[code]);
+        }
+        spares[code][spareCount[code]++] = p;
+    }
+
+    /**
+     * Gives a piece ready to be put on this board, reusing one taken off by clearBoard where possible. Any piece that
+     * was on the board before it was cleared may be handed out again, so references to them should not be held
+     * across a reload.
+     *
+     * @param type   one of the type indices in Piece, e.g Piece.KNIGHT
+     * @param colour 0 for white, 1 for black
+     * @return a piece that has not moved
+     */
+    public Piece recyclePiece(int type, int colour) {
+        int code = colour * 6 + type;
+        if (spares == null || spareCount[code] == 0) {
+            return Piece.create(type, colour);
+        }
+        Piece p = spares[code][--spareCount[code]];
+        spares[code][spareCount[code]] = null;
+        p.nMoves = 0;
+        p.hasMoved = false;
+        return p;
     }
 
     public void placeDefaultSetup() {
@@ -140,7 +333,7 @@ public class Board {
         placePiece(new Bishop(1), 6, 1);
         placePiece(new Knight(1), 7, 1);
         placePiece(new Rook(1), 8, 1);
-
+        updateHash();
 
     }
 
@@ -152,20 +345,240 @@ public class Board {
      * @param rank
      */
     public void placePiece(Piece p, int file, int rank) {
-        squares[file - 1][rank - 1].setOccupier(p);
+        putPiece(p, file - 1, rank - 1);
     }
 
     public void clearSquare(int file, int rank) {
-        squares[file - 1][rank - 1].setOccupier(null);
+        removePiece(file - 1, rank - 1);
+    }
+
+    /**
+     * Puts a piece on a square, replacing any piece already there. All changes to squares should go through this
+     * method or removePiece so that the bitboards stay in step.
+     *
+     * @param p    piece to place, or null to empty the square
+     * @param file zero-indexed file
+     * @param rank zero-indexed rank
+     */
+    public void putPiece(Piece p, int file, int rank) {
+        removePiece(file, rank);
+        if (p == null) {
+            return;
+        }
+        squares[file][rank].occupier = p;
+        int square = Bitboard.square(file, rank);
+        long bit = 1L << square;
+        hash ^= Zobrist.PIECES[p.getCode()][square];
+        middlegameScore += PieceSquareTables.MIDDLEGAME[p.getCode()][square];
+        endgameScore += PieceSquareTables.ENDGAME[p.getCode()][square];
+        phase += PieceSquareTables.PHASE[p.getCode()];
+        pieceBitboards[p.getCode()] |= bit;
+        colourBitboards[p.getColour()] |= bit;
+        occupied |= bit;
+        int colour = p.getColour();
+        pieceListIndex[square] = pieceListSize[colour];
+        pieceList[colour][pieceListSize[colour]++] = square;
+        attackMap.pieceAdded(this, square, p);
+    }
+
+    /**
+     * Removes whatever piece is on a square
+     *
+     * @param file zero-indexed file
+     * @param rank zero-indexed rank
+     * @return the piece that was removed, or null if the square was empty
+     */
+    public Piece removePiece(int file, int rank) {
+        Square square = squares[file][rank];
+        Piece p = square.occupier;
+        if (p == null) {
+            return null;
+        }
+        square.occupier = null;
+        int index = Bitboard.square(file, rank);
+        hash ^= Zobrist.PIECES[p.getCode()][index];
+        middlegameScore -= PieceSquareTables.MIDDLEGAME[p.getCode()][index];
+        endgameScore -= PieceSquareTables.ENDGAME[p.getCode()][index];
+        phase -= PieceSquareTables.PHASE[p.getCode()];
+        long bit = ~(1L << index);
+        pieceBitboards[p.getCode()] &= bit;
+        colourBitboards[p.getColour()] &= bit;
+        occupied &= bit;
+        // Fill the gap in the piece list with the last entry
+        int colour = p.getColour();
+        int last = pieceList[colour][--pieceListSize[colour]];
+        pieceList[colour][pieceListIndex[index]] = last;
+        pieceListIndex[last] = pieceListIndex[index];
+        attackMap.pieceRemoved(this, index, p);
+        return p;
+    }
+
+    /**
+     * @return number of pieces the given colour has on the board
+     */
+    public int getPieceCount(int colour) {
+        return pieceListSize[colour];
+    }
+
+    /**
+     * Gives the square of one of a side's pieces, for iterating over them without allocating:
+     * <pre>
+     *     for (int i = 0; i < board.getPieceCount(colour); i++) {
+     *         int square = board.getPieceSquare(colour, i);
+     *     }
+     * </pre>
+     * The order is arbitrary and changes as pieces are added and removed.
+     *
+     * @param index from 0 to getPieceCount(colour) - 1
+     */
+    public int getPieceSquare(int colour, int index) {
+        return pieceList[colour][index];
+    }
+
+    public BoardEventListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Registers a listener for diagnostic events from this board, replacing any previous one. Copies of the board
+     * share its listener.
+     *
+     * @param listener listener to notify, or null to stop notifying
+     */
+    public void setListener(BoardEventListener listener) {
+        this.listener = listener == null ? BoardEventListener.NONE : listener;
+    }
+
+    /**
+     * @return piece on the given bitboard square, or null if it is empty
+     */
+    public Piece getPiece(int square) {
+        return squares[Bitboard.fileOf(square)][Bitboard.rankOf(square)].occupier;
+    }
+
+    /**
+     * @param colour 0 for white, 1 for black
+     * @param type   one of the type indices in Piece, e.g Piece.KNIGHT
+     * @return bitboard of all pieces of that colour and type
+     */
+    public long getBitboard(int colour, int type) {
+        return pieceBitboards[colour * 6 + type];
+    }
+
+    /**
+     * @return bitboard of all pieces of the given colour
+     */
+    public long getOccupancy(int colour) {
+        return colourBitboards[colour];
+    }
+
+    /**
+     * Finds every piece, of either colour, attacking a square given some occupancy. The occupancy does not need to
+     * match the board, which lets callers ask what would be attacked after a piece moves.
+     *
+     * @param square   bitboard square being attacked
+     * @param occupied occupancy to use for blocking sliding pieces
+     * @return bitboard of attacking pieces
+     */
+    public long attackersTo(int square, long occupied) {
+        long bishops = pieceBitboards[Piece.BISHOP] | pieceBitboards[Piece.QUEEN]
+                | pieceBitboards[6 + Piece.BISHOP] | pieceBitboards[6 + Piece.QUEEN];
+        long rooks = pieceBitboards[Piece.ROOK] | pieceBitboards[Piece.QUEEN]
+                | pieceBitboards[6 + Piece.ROOK] | pieceBitboards[6 + Piece.QUEEN];
+        return (Attacks.PAWN[Piece.BLACK][square] & pieceBitboards[Piece.PAWN])
+                | (Attacks.PAWN[Piece.WHITE][square] & pieceBitboards[6 + Piece.PAWN])
+                | (Attacks.KNIGHT[square] & (pieceBitboards[Piece.KNIGHT] | pieceBitboards[6 + Piece.KNIGHT]))
+                | (Attacks.KING[square] & (pieceBitboards[Piece.KING] | pieceBitboards[6 + Piece.KING]))
+                | (Attacks.bishopAttacks(square, occupied) & bishops)
+                | (Attacks.rookAttacks(square, occupied) & rooks);
+    }
+
+    /**
+     * @param square   bitboard square to check
+     * @param byColour colour of the attacking side
+     * @return true if any piece of the given colour attacks the square
+     */
+    public boolean isSquareAttacked(int square, int byColour) {
+        return attackMap.getAttackerCount(byColour, square) != 0;
+    }
+
+    /**
+     * @return bitboard of every square attacked by the given colour
+     */
+    public long getAttackedSquares(int colour) {
+        return attackMap.getAttacked(colour);
+    }
+
+    /**
+     * @return true if the king of the given colour is attacked
+     */
+    public boolean isInCheck(int colour) {
+        int king = getKingSquare(colour);
+        return king != Bitboard.NO_SQUARE && isSquareAttacked(king, 1 - colour);
+    }
+
+    /**
+     * Sets the en passant square, as it appears in FEN, along with the location of the pawn that can be taken.
+     *
+     * @param square bitboard square behind the pawn that just moved two squares, or Bitboard.NO_SQUARE
+     */
+    public void setEnPassantSquare(int square) {
+        this.enPassantSquare = square;
+        if (square == Bitboard.NO_SQUARE) {
+            this.enPassantTarget = null;
+        } else {
+            // The target pawn sits one square further from its starting rank than the en passant square
+            int file = Bitboard.fileOf(square);
+            this.enPassantTarget = Bitboard.rankOf(square) == 2 ? EN_PASSANT_TARGETS[file] : EN_PASSANT_TARGETS[8 + file];
+        }
+    }
+
+    /**
+     * Every possible en passant target pawn location, so making moves does not need to allocate them
+     */
+    @SuppressWarnings("unchecked")
+    private static final Pair<Integer, Integer>[] EN_PASSANT_TARGETS = (Pair<Integer, Integer>[]) new Pair<?, ?>[16];
+
+    static {
+        for (int file = 0; file < SIZE; file++) {
+            EN_PASSANT_TARGETS[file] = new Pair<>(file, 3);
+            EN_PASSANT_TARGETS[8 + file] = new Pair<>(file, 4);
+        }
+    }
+
+    /**
+     * @return bitboard square of the given colour's king, or Bitboard.NO_SQUARE if it has none
+     */
+    public int getKingSquare(int colour) {
+        long king = pieceBitboards[colour * 6 + Piece.KING];
+        return king == 0 ? Bitboard.NO_SQUARE : Long.numberOfTrailingZeros(king);
     }
 
     public boolean makeLegalMove(Move m) {
         // Check move is legal
         if (MoveChecker.isMoveLegal(m.board, m.fromFile, m.fromRank, m.toFile, m.toRank)) {
-            // Add move to move history
+            // Add move to move history, writing its SAN before it is made and the check suffix after
+            int ply = moveHistory.size();
+            if (ply == moveHistoryLengths.length) {
+                moveHistoryLengths = Arrays.copyOf(moveHistoryLengths, 2 * ply);
+            }
+            moveHistoryLengths[ply] = moveHistorySan.length();
+            // Numbered as SanWriter.appendMoves does, so a game from a FEN with black to move starts "N... "
+            if (whiteToMove) {
+                moveHistorySan.append(moveNumber).append(". ");
+            } else if (ply == 0) {
+                moveHistorySan.append(moveNumber).append("... ");
+            }
+            m.sanStart = moveHistorySan.length();
+            PackedMove.appendSan(moveHistorySan, this, m.pack());
             moveHistory.add(m);
-            this.moveNumber++;
             makeMove(m);
+            if (sanWriter == null) {
+                sanWriter = new SanWriter();
+            }
+            sanWriter.appendCheck(moveHistorySan, this);
+            m.sanEnd = moveHistorySan.length();
+            moveHistorySan.append(' ');
             return true;
         } else {
             return false;
@@ -178,55 +591,227 @@ public class Board {
      * do nothing.
      *
      * @param m move to be made
-     * @return true if piece was moved, false if given square was empty
      */
     public static void makeMove(Move m) {
-        System.out.println("making move...");
-        Board b = m.board;
-        int fromFile = m.fromFile;
-        int fromRank = m.fromRank;
-        int toFile = m.toFile;
-        int toRank = m.toRank;
-        Piece piece = m.pieceMoved;
-        if (piece == null) {
+        if (m.pieceMoved == null) {
             return;
         }
-        // Handle if move if an en passant
-        if (isEnPassant(m)) {
-            b.whiteToMove ^= true;
-            b.squares[toFile][toRank].occupier = piece;
-            b.squares[fromFile][fromRank].occupier = null;
-            b.squares[b.enPassantTarget.getKey()][b.enPassantTarget.getValue()].occupier = null;
-            b.enPassantTarget = null;
-            b.updateAttackedSquares();
-            b.updateChecks();
-            return;
-        } else if (isAttemptedCastling(m)) {
-            System.out.println("Castling...");
-            boolean isKingside = m.toFile == 6;
-            moveByCastling(m.board, isKingside);
-            // flip whose move it is
-            piece.nMoves++;
-            b.whiteToMove ^= true;
-            b.updateAttackedSquares();
-            b.updateChecks();
+        Board b = m.board;
+        b.makeMove(m.pack());
+        b.updateAttackedSquares();
+        b.updateChecks();
+    }
+
+    /**
+     * Makes a packed move (see PackedMove) with no regard for legality, pushing an undo record so that undoMove() can
+     * restore the position exactly. Unlike makeMove(Move), this does not recalculate attacked squares or checks.
+     *
+     * @param move packed move for the player to move
+     */
+    public void makeMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int flags = PackedMove.flags(move);
+        int fromFile = Bitboard.fileOf(from);
+        int fromRank = Bitboard.rankOf(from);
+        int toFile = Bitboard.fileOf(to);
+        int toRank = Bitboard.rankOf(to);
+        Piece piece = squares[fromFile][fromRank].occupier;
+
+        // Save everything the move destroys
+        if (undoSize == undoMoves.length) {
+            growUndoStack();
+        }
+        int n = undoSize++;
+        undoMoves[n] = move;
+        undoMoved[n] = piece;
+        undoState[n] = packState();
+        undoHash[n] = hash;
+        // Take out the side to move, castling and en passant keys, then put the new ones back in once they change
+        hash ^= Zobrist.stateKey(this);
+
+        Piece captured;
+        if (flags == PackedMove.KING_CASTLE || flags == PackedMove.QUEEN_CASTLE) {
+            captured = null;
+            moveByCastling(this, flags == PackedMove.KING_CASTLE);
         } else {
-            // Update that piece has now moved
-            piece.nMoves++;
-            b.squares[toFile][toRank].occupier = piece;
-            b.squares[fromFile][fromRank].occupier = null;
-            // flip whose move it is
-            b.whiteToMove ^= true;
-            // If pawn has moved two squares, track that it is now en passant target. If not, clear target.
-            if (piece instanceof Pawn && Math.abs(fromRank - toRank) == 2) {
-                b.enPassantTarget = new Pair<>(toFile, toRank);
+            if (flags == PackedMove.EN_PASSANT) {
+                // The captured pawn is level with the moving pawn, on the file it moves into
+                captured = removePiece(toFile, fromRank);
             } else {
-                b.enPassantTarget = null;
+                captured = removePiece(toFile, toRank);
             }
-            b.updateAttackedSquares();
-            b.updateChecks();
+            removePiece(fromFile, fromRank);
+            if (PackedMove.isPromotion(move)) {
+                putPiece(Piece.create(PackedMove.promotionType(move), piece.getColour()), toFile, toRank);
+            } else {
+                putPiece(piece, toFile, toRank);
+            }
+        }
+        undoCaptured[n] = captured;
+        piece.nMoves++;
+
+        if (captured != null || piece.getType() == Piece.PAWN) {
+            this.halfmoveClock = 0;
+        } else {
+            this.halfmoveClock++;
+        }
+        if (flags == PackedMove.DOUBLE_PAWN_PUSH) {
+            setEnPassantSquare((from + to) / 2);
+        } else {
+            setEnPassantSquare(Bitboard.NO_SQUARE);
+        }
+        setCastlingRights(getCastlingRights() & CASTLING_RIGHTS_KEPT[from] & CASTLING_RIGHTS_KEPT[to]);
+        if (!whiteToMove) {
+            this.moveNumber++;
+        }
+        this.whiteToMove ^= true;
+        hash ^= Zobrist.stateKey(this);
+        listener.moveMade(this, move);
+        if (Metrics.ENABLED) {
+            Metrics.MOVES_MADE.increment();
         }
     }
+
+    /**
+     * Takes back the last move made with makeMove(int), restoring the pieces, castling rights, en passant square and
+     * clocks to what they were before it.
+     *
+     * @return false if there was no move to undo
+     */
+    public boolean undoMove() {
+        if (undoSize == 0) {
+            return false;
+        }
+        if (Metrics.ENABLED) {
+            Metrics.MOVES_UNDONE.increment();
+        }
+        int n = --undoSize;
+        int move = undoMoves[n];
+        Piece piece = undoMoved[n];
+        Piece captured = undoCaptured[n];
+        undoMoved[n] = null;
+        undoCaptured[n] = null;
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int flags = PackedMove.flags(move);
+
+        if (flags == PackedMove.KING_CASTLE || flags == PackedMove.QUEEN_CASTLE) {
+            undoCastling(this, flags == PackedMove.KING_CASTLE);
+        } else {
+            removePiece(Bitboard.fileOf(to), Bitboard.rankOf(to));
+            putPiece(piece, Bitboard.fileOf(from), Bitboard.rankOf(from));
+            if (captured != null) {
+                int capturedRank = flags == PackedMove.EN_PASSANT ? Bitboard.rankOf(from) : Bitboard.rankOf(to);
+                putPiece(captured, Bitboard.fileOf(to), capturedRank);
+            }
+        }
+        piece.nMoves--;
+
+        this.whiteToMove ^= true;
+        if (!whiteToMove) {
+            this.moveNumber--;
+        }
+        unpackState(undoState[n]);
+        hash = undoHash[n];
+        return true;
+    }
+
+    /**
+     * @return 64-bit Zobrist hash of the position, covering pieces, side to move, castling rights and en passant file
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * @return middlegame material and piece-square score, positive when white is ahead, see PieceSquareTables
+     */
+    public int getMiddlegameScore() {
+        return middlegameScore;
+    }
+
+    /**
+     * @return endgame material and piece-square score, positive when white is ahead
+     */
+    public int getEndgameScore() {
+        return endgameScore;
+    }
+
+    /**
+     * @return game phase from the pieces on the board, PieceSquareTables.MAX_PHASE at the start and falling to 0 as
+     * minor and major pieces come off. Can exceed MAX_PHASE after promotions.
+     */
+    public int getPhase() {
+        return phase;
+    }
+
+    /**
+     * Recalculates the hash from scratch. Needed after writing to whiteToMove, the castling rights or the en passant
+     * square directly rather than by making moves.
+     */
+    public void updateHash() {
+        this.hash = Zobrist.compute(this);
+    }
+
+    /**
+     * @return number of moves that can currently be taken back with undoMove()
+     */
+    public int getUndoSize() {
+        return undoSize;
+    }
+
+    /**
+     * @param index position in the undo stack, from 0 for the oldest move up to getUndoSize() - 1
+     * @return hash of the position before that move was made, e.g for spotting repetitions
+     */
+    public long getHistoryHash(int index) {
+        if (index < 0 || index >= undoSize) {
+            throw new IllegalArgumentException("No move " + index + " in an undo stack of " + undoSize);
+        }
+        return undoHash[index];
+    }
+
+    /**
+     * Castling rights as bit flags, see WHITE_KINGSIDE etc.
+     */
+    public int getCastlingRights() {
+        return (whiteKingsideCastleRight ? WHITE_KINGSIDE : 0)
+                | (whiteQueensideCastleRight ? WHITE_QUEENSIDE : 0)
+                | (blackKingsideCastleRight ? BLACK_KINGSIDE : 0)
+                | (blackQueensideCastleRight ? BLACK_QUEENSIDE : 0);
+    }
+
+    public void setCastlingRights(int rights) {
+        this.whiteKingsideCastleRight = (rights & WHITE_KINGSIDE) != 0;
+        this.whiteQueensideCastleRight = (rights & WHITE_QUEENSIDE) != 0;
+        this.blackKingsideCastleRight = (rights & BLACK_KINGSIDE) != 0;
+        this.blackQueensideCastleRight = (rights & BLACK_QUEENSIDE) != 0;
+    }
+
+    /**
+     * Packs the state that a move cannot be reversed from: castling rights in bits 0-3, en passant square + 1 in bits
+     * 4-10 and the halfmove clock from bit 11.
+     */
+    int packState() {
+        return getCastlingRights() | ((enPassantSquare + 1) << 4) | (halfmoveClock << 11);
+    }
+
+    void unpackState(int state) {
+        setCastlingRights(state & 0xF);
+        setEnPassantSquare(((state >>> 4) & 0x7F) - 1);
+        this.halfmoveClock = state >>> 11;
+    }
+
+    private void growUndoStack() {
+        int size = undoMoves.length * 2;
+        undoMoves = Arrays.copyOf(undoMoves, size);
+        undoState = Arrays.copyOf(undoState, size);
+        undoHash = Arrays.copyOf(undoHash, size);
+        undoMoved = Arrays.copyOf(undoMoved, size);
+        undoCaptured = Arrays.copyOf(undoCaptured, size);
+    }
+
     static void moveByCastling(Board board, boolean isKingside) {
         if (isKingside) {
             moveKingsideCastle(board);
@@ -236,76 +821,41 @@ public class Board {
     }
     static void moveKingsideCastle(Board board) {
         int KING_RANK = board.whiteToMove ? 7 : 0;
-        King king = (King) board.squares[4][KING_RANK].occupier;
-        board.squares[6][KING_RANK].occupier = king;
-        board.squares[4][KING_RANK].occupier = null;
+        King king = (King) board.removePiece(4, KING_RANK);
+        board.putPiece(king, 6, KING_RANK);
 
-        Rook rook = (Rook) board.squares[7][KING_RANK].occupier;
-        board.squares[5][KING_RANK].occupier = rook;
-        board.squares[7][KING_RANK].occupier = null;
+        Rook rook = (Rook) board.removePiece(7, KING_RANK);
+        board.putPiece(rook, 5, KING_RANK);
     }
     static void moveQueensideCastle(Board board) {
         int KING_RANK = board.whiteToMove ? 7 : 0;
-        King king = (King) board.squares[4][KING_RANK].occupier;
-        board.squares[2][KING_RANK].occupier = king;
-        board.squares[4][KING_RANK].occupier = null;
+        King king = (King) board.removePiece(4, KING_RANK);
+        board.putPiece(king, 2, KING_RANK);
 
-        Rook rook = (Rook) board.squares[0][KING_RANK].occupier;
-        board.squares[3][KING_RANK].occupier = rook;
-        board.squares[0][KING_RANK].occupier = null;
-    }
-    static boolean isAttemptedCastling(Move m) {
-        if (!(m.pieceMoved instanceof King)) {
-            return false;
-        }
-        if (m.fromRank != 0 && m.fromRank != 7) {
-            return false;
-        }
-        if (m.fromRank == m.toRank && Math.abs(m.fromFile - m.toFile) == 2) {
-            return true;
-        }
-        return false;
-    }
-
-    static boolean isEnPassant(Move m) {
-        Piece p = m.pieceMoved;
-        if (m.board.enPassantTarget == null || !(p instanceof Pawn)) {
-            return false;
-        } else {
-            int passantFile = m.board.enPassantTarget.getKey();
-            int passantRank = m.board.enPassantTarget.getValue();
-            if (Math.abs(passantFile - m.fromFile) == 1 && Math.abs(passantRank - m.toRank) == 1 && m.toFile == passantFile) {
-                return true;
-            } else {
-                return false;
-            }
-        }
+        Rook rook = (Rook) board.removePiece(0, KING_RANK);
+        board.putPiece(rook, 3, KING_RANK);
     }
 
     public static boolean undoMove(Move m) {
-        if (m.pieceMoved == null) {
+        if (m.pieceMoved == null || !m.board.undoMove()) {
             return false;
         }
-        if (isAttemptedCastling(m)) {
-            boolean isKingside = m.toFile == 6;
-            undoCastling(m.board, isKingside);
-            undoMovesBackgroundProcesses(m);
-            return true;
-        }
-        m.board.squares[m.fromFile][m.fromRank].occupier = m.pieceMoved;
-        m.board.squares[m.toFile][m.toRank].occupier = m.pieceCaptured;
         // remove move from move history
         undoMovesBackgroundProcesses(m);
         return true;
     }
     static void undoMovesBackgroundProcesses(Move m) {
-        m.board.moveHistory.remove(m.board.moveHistory.size() - 1);
-        m.board.whiteToMove ^= true;
-        m.pieceMoved.nMoves--;
-        m.board.moveNumber--;
-        m.board.updateAttackedSquares();
-        m.board.updateChecks();
+        Board board = m.board;
+        m.sanStart = -1;
+        board.moveHistory.remove(board.moveHistory.size() - 1);
+        board.moveHistorySan.setLength(board.moveHistoryLengths[board.moveHistory.size()]);
+        board.updateAttackedSquares();
+        board.updateChecks();
     }
+    /**
+     * Note these are called before whose move it is has been flipped back, i.e whiteToMove is the side that did not
+     * castle.
+     */
     static void undoCastling(Board board, boolean isKingside) {
         if (isKingside) {
             undoKingsideCastling(board);
@@ -315,23 +865,19 @@ public class Board {
     }
     static void undoKingsideCastling(Board board) {
         int KING_RANK = board.whiteToMove ? 0 : 7;
-        King king = (King) board.squares[6][KING_RANK].occupier;
-        board.squares[4][KING_RANK].occupier = king;
-        board.squares[6][KING_RANK].occupier = null;
+        King king = (King) board.removePiece(6, KING_RANK);
+        board.putPiece(king, 4, KING_RANK);
 
-        Rook rook = (Rook) board.squares[5][KING_RANK].occupier;
-        board.squares[7][KING_RANK].occupier = rook;
-        board.squares[5][KING_RANK].occupier = null;
+        Rook rook = (Rook) board.removePiece(5, KING_RANK);
+        board.putPiece(rook, 7, KING_RANK);
     }
     static void undoQueensideCastling(Board board) {
-        int KING_RANK = board.whiteToMove ? 7 : 0;
-        King king = (King) board.squares[2][KING_RANK].occupier;
-        board.squares[4][KING_RANK].occupier = king;
-        board.squares[2][KING_RANK].occupier = null;
+        int KING_RANK = board.whiteToMove ? 0 : 7;
+        King king = (King) board.removePiece(2, KING_RANK);
+        board.putPiece(king, 4, KING_RANK);
 
-        Rook rook = (Rook) board.squares[3][KING_RANK].occupier;
-        board.squares[0][KING_RANK].occupier = rook;
-        board.squares[3][KING_RANK].occupier = null;
+        Rook rook = (Rook) board.removePiece(3, KING_RANK);
+        board.putPiece(rook, 0, KING_RANK);
     }
 
     /**
@@ -382,93 +928,68 @@ public class Board {
         return i > -1 && i < 26 ? String.valueOf((char) (i + 'a')) : null;
     }
 
+    /**
+     * @return locations of all pieces belonging to the given player, read from the piece list. Prefer getPieceCount
+     * and getPieceSquare where allocation matters.
+     */
     public ArrayList<Pair<Integer, Integer>> getPieceLocations(boolean whiteToMove) {
         int colour = whiteToMove ? 0 : 1;
-        ArrayList<Pair<Integer, Integer>> allPieceLocations = new ArrayList<>();
-        int pieceCount = 0; // TODO can be optimised by being aware of how many pieces the player currently has
-        for (int file = 0; file < 8; file++) {
-            for (int rank = 0; rank < 8 && pieceCount <= 16; rank++) {
-                Piece p = this.squares[file][rank].getOccupier();
-                if (p != null && p.getColour() == colour) {
-                    Pair<Integer, Integer> loc = new Pair<>(file, rank);
-                    allPieceLocations.add(loc);
-                }
-            }
+        int count = pieceListSize[colour];
+        ArrayList<Pair<Integer, Integer>> allPieceLocations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int square = pieceList[colour][i];
+            allPieceLocations.add(new Pair<>(Bitboard.fileOf(square), Bitboard.rankOf(square)));
         }
         return allPieceLocations;
     }
 
+    /**
+     * @return location of the pawn that can currently be captured en passant, if any
+     */
     public ArrayList<Pair<Integer, Integer>> getPawnPassantLocations() {
-        ArrayList<Pair<Integer, Integer>> allPawnLocations = new ArrayList<>();
-        int pawnCount = 0;
-        for (int file = 0; file < 8; file++) {
-            for (int rank = 0; rank < 8 && pawnCount <= 16; rank++) {
-                Piece p = this.squares[file][rank].getOccupier();
-                if (p instanceof Pawn && ((Pawn) p).isEnPassantTarget) {
-                    Pair<Integer, Integer> loc = new Pair<>(file, rank);
-                    allPawnLocations.add(loc);
-                }
-            }
+        ArrayList<Pair<Integer, Integer>> allPawnLocations = new ArrayList<>(1);
+        if (enPassantTarget != null) {
+            allPawnLocations.add(enPassantTarget);
         }
         return allPawnLocations;
     }
 
     /**
-     * Calculates all the squares attacked by the player not currently to move.
+     * Fills attackedSquares with all the squares attacked by the player not currently to move, read from the attack
+     * map.
      */
     public void updateAttackedSquares() {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0L;
         this.attackedSquares.clear();
-        var pieceLocations = getPieceLocations(!this.whiteToMove);
-        //System.out.println("Pieces are at locations: " + printSquares(pieceLocations));
-        for (var loc : pieceLocations) {
-            this.attackedSquares.addAll(MoveChecker.getLegalAttacks(this, loc.getKey(), loc.getValue()));
+        long attacked = attackMap.getAttacked(this.whiteToMove ? Piece.BLACK : Piece.WHITE);
+        while (attacked != 0) {
+            int square = Long.numberOfTrailingZeros(attacked);
+            attacked &= attacked - 1;
+            this.attackedSquares.add(new Pair<>(Bitboard.fileOf(square), Bitboard.rankOf(square)));
+        }
+        if (Metrics.ENABLED) {
+            Metrics.ATTACKED_SQUARES_UPDATES.increment();
+            Metrics.ATTACKED_SQUARES_UPDATE_LATENCY.record(System.nanoTime() - start);
         }
     }
 
     public void updateChecks() {
         this.whiteInCheck = checkForWhiteInCheck();
         this.blackInCheck = checkForBlackInCheck();
-
-        System.out.println(this.whiteInCheck ? "White is in check" : "White is not in check");
-        System.out.println(this.blackInCheck ? "Black is in check" : "Black is not in check");
     }
 
     boolean checkForWhiteInCheck() {
-        ArrayList<Pair<Integer, Integer>> attackedSquares = new ArrayList<>();
-        var pieceLocations = getPieceLocations(false);
-        for (var loc : pieceLocations) {
-            attackedSquares.addAll(MoveChecker.getLegalAttacks(this, loc.getKey(), loc.getValue()));
-        }
-        for (var loc : attackedSquares) {
-            if (!MoveChecker.isOnBoard(loc)) {
-                continue;
-            }
-            Piece p = squares[loc.getKey()][loc.getValue()].occupier;
-            int colour = 0;
-            if (p != null && p instanceof King && p.getColour() == colour) {
-                System.out.println("White King is in check");
-                return true;
-            }
+        if (isInCheck(Piece.WHITE)) {
+            listener.checkDetected(this, Piece.WHITE);
+            return true;
         }
         return false;
     }
 
     boolean checkForBlackInCheck() {
-        ArrayList<Pair<Integer, Integer>> attackedSquares = new ArrayList<>();
-        var pieceLocations = getPieceLocations(true);
-        for (var loc : pieceLocations) {
-            attackedSquares.addAll(MoveChecker.getLegalAttacks(this, loc.getKey(), loc.getValue()));
-        }
-        for (var loc : attackedSquares) {
-            if (!MoveChecker.isOnBoard(loc)) {
-                continue;
-            }
-            Piece p = squares[loc.getKey()][loc.getValue()].occupier;
-            int colour = 1;
-            if (p != null && p instanceof King && p.getColour() == colour) {
-                System.out.println("Black King is in check");
-                return true;
-            }
+        if (isInCheck(Piece.BLACK)) {
+            listener.checkDetected(this, Piece.BLACK);
+            return true;
         }
         return false;
     }
@@ -482,74 +1003,38 @@ public class Board {
         return str.toString();
     }
 
+    /**
+     * @return moves made with makeLegalMove as numbered SAN, e.g "1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# "
+     */
     public String printMoveHistory() {
-        StringBuilder str = new StringBuilder();
-        for (int i = 0; i < moveHistory.size(); i++) {
-            if (i % 2 == 0) {
-                str.append(Integer.toString(i / 2 + 1) + ". ");
-            }
-            str.append(moveHistory.get(i).toString() + " ");
-        }
-        return str.toString();
+        return moveHistorySan.toString();
     }
 
     /**
-     * Loads a position from a valid FEN string. Note it does not check the validity
-     * of the string.
+     * @return part of the move history text, see Move.sanStart
+     */
+    public String getMoveHistory(int start, int end) {
+        return moveHistorySan.substring(start, end);
+    }
+
+    /**
+     * Appends the move history, as given by printMoveHistory, without creating an intermediate String
+     */
+    public void appendMoveHistory(StringBuilder str) {
+        str.append(moveHistorySan);
+    }
+
+    /**
+     * Loads a position from a FEN string, replacing everything on the board. See FEN.load(Board, CharSequence, int,
+     * int).
      *
      * @param fen FEN string to load a game
+     * @throws IllegalArgumentException if the string is not a valid FEN
      */
     public void load(String fen) {
-        this.clearBoard();
-        String[] fenComponents = fen.split(" ");
-        assert fenComponents.length == 6 : "Invalid FEN";
-        String layout = fenComponents[0];
-        processFenLayout(layout);
-        // Process whose turn it is
-        String move = fenComponents[1];
-        this.whiteToMove = move.equals("w");
-        //Process castling rights
-        String castlingRights = fenComponents[2];
-        processFenCastling(castlingRights);
-        // Process en passant pawn, if there is one
-        String enPassantPawn = fenComponents[3];
-        if (!enPassantPawn.equals("-")) {
-            this.enPassantTarget = fromAlgebraicToCartesian(enPassantPawn);
-        }
-        // Set halfmove clock
-        String halfmoveClock = fenComponents[4];
-        this.halfmoveClock = Integer.parseInt(halfmoveClock);
-        // Set fullmove number
-        String fullmove = fenComponents[5];
-        this.moveNumber = Integer.parseInt(fullmove);
-    }
-
-    void processFenLayout(String layout) {
-        this.clearBoard();
-        String[] rows = layout.split("/");
-        for (int i = 0; i < 8; i++) {
-            loadRow(i, rows[i]);
-        }
-    }
-
-    void loadRow(int row, String fenRow) {
-        String[] rowArr = fenRow.split("");
-        int i = 0;
-        int index = 0;
-        while (i < 8) {
-            String s = rowArr[index];
-            if (s.matches("\\d")) {
-                int spaces = Integer.parseInt(s);
-                i += spaces;
-            } else {
-                this.squares[i][row].occupier = strToPiece(s);
-                i++;
-            }
-            index++;
-        }
+        FEN.load(this, fen, 0, fen.length());
     }
 
-
     public static Piece strToPiece(String str) {
         Piece p = new Pawn(0); // Dummy initialisation
         switch (str) {
@@ -606,14 +1091,6 @@ public class Board {
     }
 
 
-    void processFenCastling(String castlingRights) {
-        String[] temp = castlingRights.split("");
-        Set<String> cr = new HashSet<>(Arrays.asList(temp));
-        this.whiteKingsideCastleRight = cr.contains("K");
-        this.whiteQueensideCastleRight = cr.contains("Q");
-        this.blackKingsideCastleRight = cr.contains("k");
-        this.blackQueensideCastleRight = cr.contains("q");
-    }
 
 
 
@@ -650,7 +1127,7 @@ public class Board {
             str.append("\n");
         }
         str.append("\n");
-        str.append(printMoveHistory());
+        appendMoveHistory(str);
 
         str.append("\n" + "Attacked Squares: " + printSquares(this.attackedSquares));
         return str.toString();
@@ -0,0 +1,62 @@
+package chess.board;
+
+/**
+ * Receives diagnostic events from a board, e.g for logging or debugging tools. Every method does nothing by default,
+ * so a listener only overrides what it needs. Boards start with NONE, whose calls the JIT inlines away, so the hooks
+ * cost nothing until a listener is registered with Board.setListener.
+ */
+public interface BoardEventListener {
+
+    BoardEventListener NONE = new BoardEventListener() {
+    };
+
+    /**
+     * Why MoveChecker.isMoveLegal turned a move down
+     */
+    enum IllegalMoveReason {
+        NO_PIECE("No Piece here!"),
+        WRONG_COLOUR("Wrong colour!"),
+        SAME_SQUARE("Cant move to the same square!"),
+        TAKES_OWN_PIECE("Cant take own piece!"),
+        INVALID_PATTERN("Piece cant move like that!"),
+        KING_IN_CHECK("Cant make this move, king would be in check!");
+
+        private final String message;
+
+        IllegalMoveReason(String message) {
+            this.message = message;
+        }
+
+        /**
+         * @return human readable explanation, as shown to players
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * Called after a move has been made on the board
+     *
+     * @param move packed move, see PackedMove
+     */
+    default void moveMade(Board board, int move) {
+    }
+
+    /**
+     * Called when the board finds a king in check while updating checks
+     *
+     * @param colour colour of the king in check, 0 for white, 1 for black
+     */
+    default void checkDetected(Board board, int colour) {
+    }
+
+    /**
+     * Called when a move is rejected by MoveChecker.isMoveLegal
+     *
+     * @param from bitboard square the move started from
+     * @param to   bitboard square the move was going to
+     */
+    default void illegalMove(Board board, int from, int to, IllegalMoveReason reason) {
+    }
+}
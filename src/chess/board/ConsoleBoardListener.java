@@ -0,0 +1,37 @@
+package chess.board;
+
+import chess.PackedMove;
+import chess.board.pieces.Piece;
+
+import java.io.PrintStream;
+
+/**
+ * Prints board events as text, giving the messages that used to be printed straight to the console
+ */
+public class ConsoleBoardListener implements BoardEventListener {
+
+    private final PrintStream out;
+
+    public ConsoleBoardListener() {
+        this(System.out);
+    }
+
+    public ConsoleBoardListener(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void moveMade(Board board, int move) {
+        out.println("Made move " + PackedMove.toUci(move));
+    }
+
+    @Override
+    public void checkDetected(Board board, int colour) {
+        out.println(colour == Piece.WHITE ? "White King is in check" : "Black King is in check");
+    }
+
+    @Override
+    public void illegalMove(Board board, int from, int to, IllegalMoveReason reason) {
+        out.println(reason.getMessage());
+    }
+}
@@ -0,0 +1,167 @@
+package chess.board;
+
+import chess.board.pieces.Piece;
+
+/**
+ * Material and piece-square values for a tapered evaluation. Each piece on each square has a middlegame and an endgame
+ * score, counting positive for white and negative for black, and a weight towards the game phase. Board adds and
+ * subtracts them as pieces are put down and taken off, like the Zobrist keys, so the totals are always up to date.
+ * An evaluation then blends the two scores by phase, from MAX_PHASE with all minor and major pieces on the board down
+ * to 0 with none.
+ * <p>
+ * Tables are written from white's side with a8 first, which is also the board's square order, and are mirrored for
+ * black.
+ */
+public final class PieceSquareTables {
+
+    /**
+     * Phase weight of each piece type, indexed Piece.PAWN to Piece.KING
+     */
+    public static final int[] PHASE_WEIGHTS = {0, 1, 1, 2, 4, 0};
+    /**
+     * Phase of the starting position
+     */
+    public static final int MAX_PHASE = 24;
+
+    public static final int[] MIDDLEGAME_VALUES = {100, 320, 330, 500, 900, 0};
+    public static final int[] ENDGAME_VALUES = {120, 300, 320, 530, 950, 0};
+
+    private static final int[] PAWN_MIDDLEGAME = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 25, 25, 10, 5, 5,
+            0, 0, 0, 20, 20, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -20, -20, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0};
+    private static final int[] PAWN_ENDGAME = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            80, 80, 80, 80, 80, 80, 80, 80,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            30, 30, 30, 30, 30, 30, 30, 30,
+            15, 15, 15, 15, 15, 15, 15, 15,
+            5, 5, 5, 5, 5, 5, 5, 5,
+            0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0};
+    private static final int[] KNIGHT = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50};
+    private static final int[] BISHOP = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20};
+    private static final int[] ROOK = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            5, 10, 10, 10, 10, 10, 10, 5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            0, 0, 0, 5, 5, 0, 0, 0};
+    private static final int[] QUEEN = {
+            -20, -10, -10, -5, -5, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 5, 5, 5, 0, -10,
+            -5, 0, 5, 5, 5, 5, 0, -5,
+            0, 0, 5, 5, 5, 5, 0, -5,
+            -10, 5, 5, 5, 5, 5, 0, -10,
+            -10, 0, 5, 0, 0, 0, 0, -10,
+            -20, -10, -10, -5, -5, -10, -10, -20};
+    private static final int[] KING_MIDDLEGAME = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20};
+    private static final int[] KING_ENDGAME = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50};
+
+    /**
+     * Signed score of each piece on each square, material included, indexed [Piece.getCode()][square]
+     */
+    static final int[][] MIDDLEGAME = new int[12][64];
+    static final int[][] ENDGAME = new int[12][64];
+    /**
+     * Phase weight of each piece, indexed by Piece.getCode()
+     */
+    static final int[] PHASE = new int[12];
+
+    static {
+        int[][] middlegame = {PAWN_MIDDLEGAME, KNIGHT, BISHOP, ROOK, QUEEN, KING_MIDDLEGAME};
+        int[][] endgame = {PAWN_ENDGAME, KNIGHT, BISHOP, ROOK, QUEEN, KING_ENDGAME};
+        for (int type = Piece.PAWN; type <= Piece.KING; type++) {
+            int white = Piece.WHITE * 6 + type;
+            int black = Piece.BLACK * 6 + type;
+            for (int square = 0; square < 64; square++) {
+                MIDDLEGAME[white][square] = MIDDLEGAME_VALUES[type] + middlegame[type][square];
+                ENDGAME[white][square] = ENDGAME_VALUES[type] + endgame[type][square];
+            }
+            for (int square = 0; square < 64; square++) {
+                // Flipping the rank mirrors the table for black
+                MIDDLEGAME[black][square] = -MIDDLEGAME[white][square ^ 56];
+                ENDGAME[black][square] = -ENDGAME[white][square ^ 56];
+            }
+            PHASE[white] = PHASE_WEIGHTS[type];
+            PHASE[black] = PHASE_WEIGHTS[type];
+        }
+    }
+
+    private PieceSquareTables() {
+    }
+
+    /**
+     * @param code Piece.getCode(), i.e colour * 6 + type
+     * @return middlegame score of the piece on the square, positive for white pieces and negative for black
+     */
+    public static int middlegame(int code, int square) {
+        return MIDDLEGAME[code][square];
+    }
+
+    public static int endgame(int code, int square) {
+        return ENDGAME[code][square];
+    }
+
+    /**
+     * Totals the tables from scratch. This should always agree with Board.getMiddlegameScore(), getEndgameScore() and
+     * getPhase().
+     *
+     * @return middlegame score, endgame score and phase
+     */
+    public static int[] compute(Board board) {
+        int[] totals = new int[3];
+        for (int code = 0; code < 12; code++) {
+            long pieces = board.pieceBitboards[code];
+            while (pieces != 0) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                totals[0] += MIDDLEGAME[code][square];
+                totals[1] += ENDGAME[code][square];
+                totals[2] += PHASE[code];
+            }
+        }
+        return totals;
+    }
+}
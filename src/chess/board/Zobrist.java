@@ -0,0 +1,92 @@
+package chess.board;
+
+import chess.board.pieces.Piece;
+
+/**
+ * Random keys for Zobrist hashing. A position's hash is the XOR of a key for each piece on each square, plus keys for
+ * the side to move, the castling rights and the en passant file. Each key can be XOR-ed in or out as the position
+ * changes, so Board keeps its hash up to date without rebuilding it.
+ * <p>
+ * The en passant file is only hashed when a pawn could actually make the capture, so positions that only differ by an
+ * unusable en passant square hash the same.
+ */
+public final class Zobrist {
+
+    /**
+     * Key for each piece on each square, indexed [Piece.getCode()][square]
+     */
+    static final long[][] PIECES = new long[12][64];
+    static final long BLACK_TO_MOVE;
+    /**
+     * Key for each combination of castling rights, see Board.getCastlingRights()
+     */
+    static final long[] CASTLING = new long[16];
+    static final long[] EN_PASSANT_FILE = new long[8];
+
+    static {
+        long[] seed = {0x1110C4E55B0A4DL};
+        for (int code = 0; code < 12; code++) {
+            for (int square = 0; square < 64; square++) {
+                PIECES[code][square] = nextRandom(seed);
+            }
+        }
+        BLACK_TO_MOVE = nextRandom(seed);
+        long[] rightKeys = {nextRandom(seed), nextRandom(seed), nextRandom(seed), nextRandom(seed)};
+        for (int rights = 0; rights < 16; rights++) {
+            for (int i = 0; i < 4; i++) {
+                if ((rights & (1 << i)) != 0) {
+                    CASTLING[rights] ^= rightKeys[i];
+                }
+            }
+        }
+        for (int file = 0; file < 8; file++) {
+            EN_PASSANT_FILE[file] = nextRandom(seed);
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Hashes a position from scratch. This should always agree with Board.getHash().
+     */
+    public static long compute(Board board) {
+        long hash = 0L;
+        for (int code = 0; code < 12; code++) {
+            long pieces = board.pieceBitboards[code];
+            while (pieces != 0) {
+                hash ^= PIECES[code][Long.numberOfTrailingZeros(pieces)];
+                pieces &= pieces - 1;
+            }
+        }
+        return hash ^ stateKey(board);
+    }
+
+    /**
+     * @return the part of the hash that does not come from piece placement
+     */
+    static long stateKey(Board board) {
+        long key = CASTLING[board.getCastlingRights()];
+        if (!board.whiteToMove) {
+            key ^= BLACK_TO_MOVE;
+        }
+        int ep = board.enPassantSquare;
+        if (ep != Bitboard.NO_SQUARE) {
+            int us = board.whiteToMove ? Piece.WHITE : Piece.BLACK;
+            if ((Attacks.PAWN[1 - us][ep] & board.getBitboard(us, Piece.PAWN)) != 0) {
+                key ^= EN_PASSANT_FILE[Bitboard.fileOf(ep)];
+            }
+        }
+        return key;
+    }
+
+    /**
+     * splitmix64, which gives well mixed keys from a simple counter
+     */
+    private static long nextRandom(long[] seed) {
+        long z = (seed[0] += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -4,4 +4,9 @@ public class Bishop extends Piece{
     public Bishop(int owner) {
         super(owner);
     }
+
+    @Override
+    public int getType() {
+        return BISHOP;
+    }
 }
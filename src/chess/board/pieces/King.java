@@ -4,4 +4,9 @@ public class King extends Piece{
     public King(int owner) {
         super(owner);
     }
+
+    @Override
+    public int getType() {
+        return KING;
+    }
 }
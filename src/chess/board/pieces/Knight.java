@@ -4,4 +4,9 @@ public class Knight extends Piece{
     public Knight(int owner) {
         super(owner);
     }
+
+    @Override
+    public int getType() {
+        return KNIGHT;
+    }
 }
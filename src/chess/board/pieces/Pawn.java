@@ -7,4 +7,9 @@ public class Pawn extends Piece{
     public Pawn(int owner) {
         super(owner);
     }
+
+    @Override
+    public int getType() {
+        return PAWN;
+    }
 }
@@ -2,6 +2,17 @@ package chess.board.pieces;
 
 public abstract class Piece {
 
+    // Piece type indices, used to index the bitboards held by a Board
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
     final int COLOUR; // 0 for white, 1 for black
     public boolean hasMoved;
 
@@ -11,8 +22,55 @@ public abstract class Piece {
         return this.COLOUR;
     }
 
+    /**
+     * @return type index of this piece, one of PAWN, KNIGHT, BISHOP, ROOK, QUEEN or KING
+     */
+    public abstract int getType();
+
+    /**
+     * @return index of this piece's bitboard, i.e colour * 6 + type
+     */
+    public int getCode() {
+        return COLOUR * 6 + getType();
+    }
+
     public Piece(int COLOUR) {
         this.COLOUR = COLOUR;
         this.hasMoved = false;
     }
+
+    /**
+     * @return a new piece of the same type and colour that has made the same number of moves
+     */
+    public Piece copy() {
+        Piece p = create(getType(), COLOUR);
+        p.hasMoved = hasMoved;
+        p.nMoves = nMoves;
+        return p;
+    }
+
+    /**
+     * Creates a new piece of the given type and colour
+     *
+     * @param type   one of PAWN, KNIGHT, BISHOP, ROOK, QUEEN or KING
+     * @param colour 0 for white, 1 for black
+     */
+    public static Piece create(int type, int colour) {
+        switch (type) {
+            case PAWN:
+                return new Pawn(colour);
+            case KNIGHT:
+                return new Knight(colour);
+            case BISHOP:
+                return new Bishop(colour);
+            case ROOK:
+                return new Rook(colour);
+            case QUEEN:
+                return new Queen(colour);
+            case KING:
+                return new King(colour);
+            default:
+                throw new IllegalArgumentException("Invalid piece type: " + type);
+        }
+    }
 }
@@ -4,4 +4,9 @@ public class Queen extends Piece{
     public Queen(int owner) {
         super(owner);
     }
+
+    @Override
+    public int getType() {
+        return QUEEN;
+    }
 }
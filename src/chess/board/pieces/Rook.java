@@ -4,6 +4,11 @@ public class Rook extends Piece{
         public Rook(int colour) {
             super(colour);
         }
+
+        @Override
+        public int getType() {
+            return ROOK;
+        }
     }
 
 
@@ -0,0 +1,219 @@
+package chess.book;
+
+import chess.MoveGenerator;
+import chess.PackedMove;
+import chess.board.Board;
+import chess.board.pieces.Piece;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads moves from a Polyglot opening book (.bin) by memory mapping it.
+ * <p>
+ * A book is a list of 16-byte big-endian entries sorted by key, so the entries for a position are found by binary
+ * search straight from the mapped file:
+ * <pre>
+ *  key     position key, see PolyglotKeys (8 bytes)
+ *  move    to file, to row, from file, from row and promotion in 3 bits each (2 bytes)
+ *  weight  how often the move should be played relative to the others (2 bytes)
+ *  learn   learning data, unused here (4 bytes)
+ * </pre>
+ * Lookups only read the mapping and allocate nothing, so one book can be shared by any number of threads. Castling is
+ * stored as the king taking its own rook, and book moves are returned as legal packed moves, see PackedMove.
+ */
+public final class PolyglotBook implements Closeable {
+
+    public static final int ENTRY_BYTES = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer entries;
+    private final int entryCount;
+    private final PolyglotKeys keys;
+    private final ThreadLocal<int[]> legalMoves = ThreadLocal.withInitial(() -> new int[MoveGenerator.MAX_MOVES]);
+
+    private PolyglotBook(FileChannel channel, PolyglotKeys keys) throws IOException {
+        long size = channel.size();
+        if (size % ENTRY_BYTES != 0 || size / ENTRY_BYTES > Integer.MAX_VALUE / ENTRY_BYTES) {
+            throw new IOException("Not a Polyglot book of " + ENTRY_BYTES + "-byte entries: " + size + " bytes");
+        }
+        this.channel = channel;
+        this.entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        this.entryCount = (int) (size / ENTRY_BYTES);
+        this.keys = keys;
+    }
+
+    /**
+     * Opens a book keyed with the published Polyglot table, as books normally are
+     */
+    public static PolyglotBook open(Path path) throws IOException {
+        return open(path, new PolyglotKeys());
+    }
+
+    /**
+     * @param keys table the book was written with
+     */
+    public static PolyglotBook open(Path path, PolyglotKeys keys) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new PolyglotBook(channel, keys);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return entryCount;
+    }
+
+    public long getKey(int index) {
+        return entries.getLong(index * ENTRY_BYTES);
+    }
+
+    /**
+     * @return the move as stored in the book, see toPackedMove
+     */
+    public int getBookMove(int index) {
+        return entries.getShort(index * ENTRY_BYTES + 8) & 0xFFFF;
+    }
+
+    public int getWeight(int index) {
+        return entries.getShort(index * ENTRY_BYTES + 10) & 0xFFFF;
+    }
+
+    /**
+     * @return index of the first entry with a key not less than the given one, compared unsigned as Polyglot sorts
+     * them, or size() if there is none
+     */
+    public int lowerBound(long key) {
+        int low = 0;
+        int high = entryCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(getKey(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Writes the book moves for a position that are legal on the board, with their weights
+     *
+     * @param moves   receives packed moves
+     * @param weights receives the weight of each move, may be null
+     * @return number of moves written, at most the length of the moves array
+     */
+    public int getMoves(Board board, int[] moves, int[] weights) {
+        long key = keys.key(board);
+        int count = 0;
+        for (int i = lowerBound(key); i < entryCount && getKey(i) == key && count < moves.length; i++) {
+            int move = toPackedMove(board, getBookMove(i));
+            if (move != PackedMove.NONE) {
+                if (weights != null) {
+                    weights[count] = getWeight(i);
+                }
+                moves[count++] = move;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the book move with the highest weight, the first of them on a tie, or PackedMove.NONE if the position
+     * is not in the book
+     */
+    public int getBestMove(Board board) {
+        long key = keys.key(board);
+        int best = PackedMove.NONE;
+        int bestWeight = -1;
+        for (int i = lowerBound(key); i < entryCount && getKey(i) == key; i++) {
+            int weight = getWeight(i);
+            if (weight > bestWeight) {
+                int move = toPackedMove(board, getBookMove(i));
+                if (move != PackedMove.NONE) {
+                    best = move;
+                    bestWeight = weight;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Picks a book move at random, each in proportion to its weight. Moves of weight 0 are never picked.
+     *
+     * @param random any random number, e.g from ThreadLocalRandom.current().nextLong()
+     * @return the move, or PackedMove.NONE if the position is not in the book or every move has weight 0
+     */
+    public int getWeightedMove(Board board, long random) {
+        long key = keys.key(board);
+        int first = lowerBound(key);
+        long total = 0;
+        for (int i = first; i < entryCount && getKey(i) == key; i++) {
+            if (toPackedMove(board, getBookMove(i)) != PackedMove.NONE) {
+                total += getWeight(i);
+            }
+        }
+        if (total == 0) {
+            return PackedMove.NONE;
+        }
+        long pick = Long.remainderUnsigned(random, total);
+        for (int i = first; ; i++) {
+            int move = toPackedMove(board, getBookMove(i));
+            if (move != PackedMove.NONE) {
+                pick -= getWeight(i);
+                if (pick < 0) {
+                    return move;
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts a book move to the matching legal move on the board, turning king-takes-rook into castling
+     *
+     * @return packed move, or PackedMove.NONE if the move is not legal, e.g after a key collision
+     */
+    public int toPackedMove(Board board, int bookMove) {
+        // Polyglot rows count up from the 1st rank, the opposite of the board's ranks
+        int to = (bookMove & 0x3F) ^ 56;
+        int from = ((bookMove >>> 6) & 0x3F) ^ 56;
+        int promotionType = (bookMove >>> 12) & 7;
+        int us = board.whiteToMove ? Piece.WHITE : Piece.BLACK;
+        boolean castle = (board.getBitboard(us, Piece.KING) & (1L << from)) != 0
+                && (board.getBitboard(us, Piece.ROOK) & (1L << to)) != 0;
+
+        int[] moves = legalMoves.get();
+        int count = MoveGenerator.generateLegalMoves(board, moves);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (PackedMove.from(move) != from) {
+                continue;
+            }
+            if (castle) {
+                int side = to > from ? PackedMove.KING_CASTLE : PackedMove.QUEEN_CASTLE;
+                if (PackedMove.flags(move) == side) {
+                    return move;
+                }
+            } else if (PackedMove.to(move) == to
+                    && (promotionType == 0 ? !PackedMove.isPromotion(move)
+                    : PackedMove.isPromotion(move) && PackedMove.promotionType(move) == promotionType)) {
+                return move;
+            }
+        }
+        return PackedMove.NONE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,461 @@
+package chess.db;
+
+import chess.FEN;
+import chess.board.Board;
+import chess.pgn.PgnGame;
+import chess.pgn.PgnImporter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-disk game collection that finds every game reaching a position without replaying any of them.
+ * <p>
+ * A database is a directory holding:
+ * <pre>
+ *  games.dat    append-only game records: tags, result and main line moves, see encodeGame
+ *  games.idx    offset of each game's record in games.dat, 8 bytes per game, so game ids are dense from 0
+ *  index-N.seg  index segments mapping the Zobrist hash of each position to its postings, see IndexSegment
+ * </pre>
+ * Adding a game appends it to the store and queues a posting, game id and ply, for every position in its main line.
+ * Queued postings are sorted and written as a new segment by flush(), or automatically once FLUSH_ENTRIES are
+ * queued, and compact() merges all segments into one. Segments are never rewritten, so opening a database only maps
+ * them; games added after the last flush are indexed again from the store.
+ * <p>
+ * Lookups are by 64-bit hash, so a collision could in principle return a game that never reached the position.
+ * Methods are synchronized, apart from the work of replaying a game's moves, so several threads can add games at
+ * once, e.g from a PgnImporter.
+ */
+public final class GameDatabase implements Closeable {
+
+    /**
+     * Postings queued in memory before they are written as a segment: 64 MB
+     */
+    public static final int FLUSH_ENTRIES = 1 << 22;
+    public static final int MAX_PLIES = 0xFFFF;
+
+    private static final String STORE = "games.dat";
+    private static final String OFFSETS = "games.idx";
+    private static final ThreadLocal<Board> REPLAY_BOARD = ThreadLocal.withInitial(Board::new);
+
+    private final Path dir;
+    private final FileChannel store;
+    private final FileChannel offsets;
+    private final ByteBuffer storeBuffer = ByteBuffer.allocate(1 << 16);
+    private final ByteBuffer offsetBuffer = ByteBuffer.allocate(1 << 13);
+    private long storeSize;
+    private int gameCount;
+    /**
+     * Number of games whose store record and offset have reached the files, rather than the write buffers
+     */
+    private int writtenGames;
+
+    private volatile IndexSegment[] segments;
+    private int nextSegment;
+    private long[] pending = new long[2 * 1024];
+    private int pendingCount;
+    private int pendingFirstGame;
+
+    private GameDatabase(Path dir) throws IOException {
+        this.dir = dir;
+        this.store = FileChannel.open(dir.resolve(STORE), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.offsets = FileChannel.open(dir.resolve(OFFSETS), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Opens the database in a directory, creating it if there is none
+     */
+    public static GameDatabase open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        GameDatabase db = new GameDatabase(dir);
+        try {
+            db.recover();
+            db.loadSegments();
+            db.reindexUnflushedGames();
+        } catch (IOException | RuntimeException e) {
+            db.close();
+            throw e;
+        }
+        return db;
+    }
+
+    /**
+     * Drops anything written after the last complete game, e.g by a crash while adding games
+     */
+    private void recover() throws IOException {
+        gameCount = (int) (offsets.size() / 8);
+        storeSize = 0;
+        while (gameCount > 0) {
+            long offset = readLong(offsets, 8L * (gameCount - 1));
+            if (offset + 4 <= store.size()) {
+                long end = offset + 4 + readInt(store, offset);
+                if (end <= store.size()) {
+                    storeSize = end;
+                    break;
+                }
+            }
+            gameCount--;
+        }
+        offsets.truncate(8L * gameCount);
+        store.truncate(storeSize);
+        writtenGames = gameCount;
+    }
+
+    private void loadSegments() throws IOException {
+        List<IndexSegment> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "index-*.seg*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(file);
+                    continue;
+                }
+                loaded.add(IndexSegment.open(file));
+                nextSegment = Math.max(nextSegment, segmentNumber(name) + 1);
+            }
+        }
+        // A crash during compact() can leave the old segments beside the merged one, which covers the same games
+        // and has a higher number
+        List<IndexSegment> kept = new ArrayList<>();
+        for (IndexSegment segment : loaded) {
+            boolean covered = false;
+            for (IndexSegment other : loaded) {
+                covered |= number(other) > number(segment) && other.firstGame <= segment.firstGame
+                        && other.endGame >= segment.endGame;
+            }
+            if (covered || segment.firstGame >= gameCount) {
+                Files.delete(segment.path);
+            } else {
+                kept.add(segment);
+            }
+        }
+        segments = kept.toArray(new IndexSegment[0]);
+    }
+
+    private void reindexUnflushedGames() throws IOException {
+        int indexed = 0;
+        for (IndexSegment segment : segments) {
+            indexed = Math.max(indexed, segment.endGame);
+        }
+        pendingFirstGame = indexed;
+        for (int id = indexed; id < gameCount; id++) {
+            queuePostings(id, positionHashes(getGame(id)));
+        }
+    }
+
+    public synchronized int getGameCount() {
+        return gameCount;
+    }
+
+    /**
+     * Adds a game, indexing every position of its main line including the starting one
+     *
+     * @return id of the new game
+     * @throws IllegalArgumentException if the game has more than MAX_PLIES moves, or a tag too long to store, in which
+     *                                  case nothing is added
+     */
+    public int addGame(PgnGame game) throws IOException {
+        if (game.getMoveCount() > MAX_PLIES) {
+            throw new IllegalArgumentException("Game too long to index: " + game.getMoveCount() + " plies");
+        }
+        ByteBuffer record = encodeGame(game);
+        long[] hashes = positionHashes(game);
+        synchronized (this) {
+            writeRecord(record);
+            // Only counted once its offset is queued, so a failed write cannot shift the ids of later games
+            int id = gameCount++;
+            queuePostings(id, hashes);
+            if (pendingCount >= FLUSH_ENTRIES) {
+                flush();
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Writes queued postings as a new index segment and forces the store to disk, so everything added so far is
+     * found by lookups and survives a restart without being indexed again
+     */
+    public synchronized void flush() throws IOException {
+        flushBuffers();
+        store.force(false);
+        offsets.force(false);
+        if (pendingCount == 0) {
+            return;
+        }
+        Path path = dir.resolve(segmentName(nextSegment++));
+        IndexSegment segment = IndexSegment.write(path, pending, pendingCount, pendingFirstGame, gameCount);
+        IndexSegment[] next = Arrays.copyOf(segments, segments.length + 1);
+        next[segments.length] = segment;
+        segments = next;
+        pendingCount = 0;
+        pendingFirstGame = gameCount;
+        if (pending.length > 2 * FLUSH_ENTRIES) {
+            pending = new long[2 * 1024];
+        }
+    }
+
+    /**
+     * Flushes and merges all index segments into one, which makes lookups faster after many flushes
+     */
+    public synchronized void compact() throws IOException {
+        flush();
+        if (segments.length <= 1) {
+            return;
+        }
+        IndexSegment[] old = segments;
+        segments = new IndexSegment[]{IndexSegment.merge(dir.resolve(segmentName(nextSegment++)), old)};
+        for (IndexSegment segment : old) {
+            segment.close();
+            Files.delete(segment.path);
+        }
+    }
+
+    /**
+     * Finds every game and ply at which a position occurred, among the games indexed by the last flush
+     *
+     * @return postings, see gameOf and plyOf, in order of game and ply within each segment
+     */
+    public long[] find(long hash) {
+        long[] result = new long[16];
+        int count = 0;
+        for (IndexSegment segment : segments) {
+            for (long i = segment.lowerBound(hash); i < segment.entryCount && segment.hashAt(i) == hash; i++) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, 2 * count);
+                }
+                result[count++] = segment.postingAt(i);
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    public long[] find(Board board) {
+        return find(board.getHash());
+    }
+
+    public static long posting(int game, int ply) {
+        return ((long) game << 16) | ply;
+    }
+
+    public static int gameOf(long posting) {
+        return (int) (posting >>> 16);
+    }
+
+    public static int plyOf(long posting) {
+        return (int) (posting & 0xFFFF);
+    }
+
+    /**
+     * Reads a game back from the store
+     */
+    public synchronized PgnGame getGame(int id) throws IOException {
+        if (id < 0 || id >= gameCount) {
+            throw new IllegalArgumentException("No game " + id + " in a database of " + gameCount);
+        }
+        if (id >= writtenGames) {
+            flushBuffers();
+        }
+        long offset = readLong(offsets, 8L * id);
+        ByteBuffer record = ByteBuffer.allocate(readInt(store, offset));
+        readFully(store, record, offset + 4);
+        record.flip();
+        return readGame(record);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (store.isOpen()) {
+                flush();
+            }
+        } finally {
+            store.close();
+            offsets.close();
+            segments = new IndexSegment[0];
+        }
+    }
+
+    /**
+     * Builds a game's record: record length, result, tags as name and value pairs, then the moves. Strings are an
+     * unsigned short length followed by UTF-8, counts are unsigned shorts and moves are packed into unsigned shorts,
+     * see PackedMove.
+     *
+     * @return the record, ready to be written
+     * @throws IllegalArgumentException if a string or the number of tags does not fit in an unsigned short
+     */
+    private static ByteBuffer encodeGame(PgnGame game) {
+        if (game.getTags().size() > 0xFFFF) {
+            throw new IllegalArgumentException("Too many tags to store: " + game.getTags().size());
+        }
+        ByteBuffer record = ByteBuffer.allocate(recordSize(game));
+        record.putInt(record.capacity() - 4);
+        putString(record, game.getResult());
+        record.putShort((short) game.getTags().size());
+        for (Map.Entry<String, String> tag : game.getTags().entrySet()) {
+            putString(record, tag.getKey());
+            putString(record, tag.getValue());
+        }
+        record.putShort((short) game.getMoveCount());
+        for (int i = 0; i < game.getMoveCount(); i++) {
+            record.putShort((short) game.getMove(i));
+        }
+        record.flip();
+        return record;
+    }
+
+    /**
+     * Appends a record to the store and queues its offset. The offset is queued last, so if writing fails the game
+     * has no offset and is not counted.
+     */
+    private void writeRecord(ByteBuffer record) throws IOException {
+        if (storeBuffer.remaining() < record.remaining() || offsetBuffer.remaining() < 8) {
+            flushBuffers();
+        }
+        long offset = storeSize;
+        int length = record.remaining();
+        if (length > storeBuffer.capacity()) {
+            writeFully(store, record);
+        } else {
+            storeBuffer.put(record);
+        }
+        storeSize += length;
+        offsetBuffer.putLong(offset);
+    }
+
+    private static int recordSize(PgnGame game) {
+        int size = 4 + stringSize(game.getResult()) + 2 + 2 + 2 * game.getMoveCount();
+        for (Map.Entry<String, String> tag : game.getTags().entrySet()) {
+            size += stringSize(tag.getKey()) + stringSize(tag.getValue());
+        }
+        return size;
+    }
+
+    private static PgnGame readGame(ByteBuffer record) {
+        String result = getString(record);
+        Map<String, String> tags = new LinkedHashMap<>();
+        int tagCount = Short.toUnsignedInt(record.getShort());
+        for (int i = 0; i < tagCount; i++) {
+            tags.put(getString(record), getString(record));
+        }
+        int[] moves = new int[Short.toUnsignedInt(record.getShort())];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = Short.toUnsignedInt(record.getShort());
+        }
+        return new PgnGame(tags, moves, result);
+    }
+
+    private void flushBuffers() throws IOException {
+        storeBuffer.flip();
+        store.position(store.size());
+        writeFully(store, storeBuffer);
+        storeBuffer.clear();
+        // Offsets go after the records they point to, so a crash never leaves one pointing past the store
+        writtenGames += offsetBuffer.position() / 8;
+        offsetBuffer.flip();
+        offsets.position(offsets.size());
+        writeFully(offsets, offsetBuffer);
+        offsetBuffer.clear();
+    }
+
+    private void queuePostings(int id, long[] hashes) {
+        if (2 * (pendingCount + hashes.length) > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(2 * pending.length, 2 * (pendingCount + hashes.length)));
+        }
+        for (int ply = 0; ply < hashes.length; ply++) {
+            pending[2 * pendingCount] = hashes[ply];
+            pending[2 * pendingCount + 1] = posting(id, ply);
+            pendingCount++;
+        }
+    }
+
+    /**
+     * @return hash of the position before each move of the main line and after the last one
+     */
+    private static long[] positionHashes(PgnGame game) {
+        Board board = REPLAY_BOARD.get();
+        String fen = game.getStartingFen();
+        FEN.load(board, fen, 0, fen.length());
+        long[] hashes = new long[game.getMoveCount() + 1];
+        for (int i = 0; i < game.getMoveCount(); i++) {
+            hashes[i] = board.getHash();
+            board.makeMove(game.getMove(i));
+        }
+        hashes[game.getMoveCount()] = board.getHash();
+        return hashes;
+    }
+
+    private static String segmentName(int number) {
+        return String.format("index-%06d.seg", number);
+    }
+
+    private static int segmentNumber(String name) {
+        return Integer.parseInt(name.substring("index-".length(), name.indexOf('.')));
+    }
+
+    private static int number(IndexSegment segment) {
+        return segmentNumber(segment.path.getFileName().toString());
+    }
+
+    private static int stringSize(String str) {
+        return 2 + str.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void putString(ByteBuffer buf, String str) {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("String too long to store: " + bytes.length + " bytes");
+        }
+        buf.putShort((short) bytes.length);
+        buf.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int length = Short.toUnsignedInt(buf.getShort());
+        String str = new String(buf.array(), buf.arrayOffset() + buf.position(), length, StandardCharsets.UTF_8);
+        buf.position(buf.position() + length);
+        return str;
+    }
+
+    private static long readLong(FileChannel channel, long position) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(8);
+        readFully(channel, buf, position);
+        return buf.getLong(0);
+    }
+
+    private static int readInt(FileChannel channel, long position) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(4);
+        readFully(channel, buf, position);
+        return buf.getInt(0);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position);
+            if (n < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += n;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package chess.db;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.PriorityQueue;
+
+/**
+ * One immutable file of the position index: entries of (position hash, posting) sorted by hash and then posting,
+ * memory-mapped and binary searched. A segment covers the games with ids from firstGame up to endGame.
+ * <pre>
+ *  header  magic, version, entry count, first game, end game (32 bytes)
+ *  entry   position hash (8 bytes), posting (8 bytes), see GameDatabase.posting
+ * </pre>
+ * Files are written under a temporary name and moved into place, so a segment is either complete or absent.
+ */
+final class IndexSegment implements Closeable {
+
+    static final long MAGIC = 0x4348455353494458L;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int ENTRY_BYTES = 16;
+    /**
+     * Entries per mapped chunk, keeping each mapping under the 2 GB limit of a MappedByteBuffer
+     */
+    private static final int CHUNK_ENTRIES = 1 << 26;
+
+    final Path path;
+    final long entryCount;
+    final int firstGame;
+    final int endGame;
+    private final MappedByteBuffer[] chunks;
+
+    private IndexSegment(Path path, long entryCount, int firstGame, int endGame, MappedByteBuffer[] chunks) {
+        this.path = path;
+        this.entryCount = entryCount;
+        this.firstGame = firstGame;
+        this.endGame = endGame;
+        this.chunks = chunks;
+    }
+
+    static IndexSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getLong() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not an index segment: " + path);
+            }
+            long entryCount = header.getLong();
+            int firstGame = header.getInt();
+            int endGame = header.getInt();
+            if (channel.size() != HEADER_BYTES + entryCount * ENTRY_BYTES) {
+                throw new IOException("Truncated index segment: " + path);
+            }
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((entryCount + CHUNK_ENTRIES - 1) / CHUNK_ENTRIES)];
+            for (int i = 0; i < chunks.length; i++) {
+                long first = (long) i * CHUNK_ENTRIES;
+                long entries = Math.min(CHUNK_ENTRIES, entryCount - first);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * ENTRY_BYTES,
+                        entries * ENTRY_BYTES);
+            }
+            return new IndexSegment(path, entryCount, firstGame, endGame, chunks);
+        }
+    }
+
+    long hashAt(long index) {
+        return chunks[(int) (index / CHUNK_ENTRIES)].getLong((int) (index % CHUNK_ENTRIES) * ENTRY_BYTES);
+    }
+
+    long postingAt(long index) {
+        return chunks[(int) (index / CHUNK_ENTRIES)].getLong((int) (index % CHUNK_ENTRIES) * ENTRY_BYTES + 8);
+    }
+
+    /**
+     * @return index of the first entry with a hash not less than the given one, or entryCount if there is none
+     */
+    long lowerBound(long hash) {
+        long low = 0;
+        long high = entryCount;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (hashAt(mid) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public void close() {
+        // Mappings are released when the buffers are collected
+    }
+
+    /**
+     * Sorts and writes entries held as pairs in an array, (hash, posting, hash, posting, ...)
+     *
+     * @param count number of entries, i.e half the used length of the array
+     */
+    static IndexSegment write(Path path, long[] entries, int count, int firstGame, int endGame) throws IOException {
+        sort(entries, 0, count - 1);
+        Path tmp = tempPath(path);
+        try (DataOutputStream out = openOutput(tmp)) {
+            writeHeader(out, count, firstGame, endGame);
+            for (int i = 0; i < 2 * count; i++) {
+                out.writeLong(entries[i]);
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+        return open(path);
+    }
+
+    /**
+     * Merges segments into one file, keeping their sort order
+     */
+    static IndexSegment merge(Path path, IndexSegment[] segments) throws IOException {
+        long total = 0;
+        int firstGame = Integer.MAX_VALUE;
+        int endGame = 0;
+        PriorityQueue<Cursor> queue = new PriorityQueue<>();
+        for (IndexSegment segment : segments) {
+            total += segment.entryCount;
+            firstGame = Math.min(firstGame, segment.firstGame);
+            endGame = Math.max(endGame, segment.endGame);
+            Cursor cursor = new Cursor(segment);
+            if (cursor.load()) {
+                queue.add(cursor);
+            }
+        }
+        Path tmp = tempPath(path);
+        try (DataOutputStream out = openOutput(tmp)) {
+            writeHeader(out, total, firstGame == Integer.MAX_VALUE ? 0 : firstGame, endGame);
+            while (!queue.isEmpty()) {
+                Cursor cursor = queue.poll();
+                out.writeLong(cursor.hash);
+                out.writeLong(cursor.posting);
+                if (cursor.load()) {
+                    queue.add(cursor);
+                }
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+        return open(path);
+    }
+
+    private static Path tempPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    private static DataOutputStream openOutput(Path path) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 20));
+    }
+
+    private static void writeHeader(DataOutputStream out, long count, int firstGame, int endGame) throws IOException {
+        out.writeLong(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(count);
+        out.writeInt(firstGame);
+        out.writeInt(endGame);
+        out.writeInt(0);
+    }
+
+    /**
+     * Quicksort of the entries from first to last inclusive, ordered by hash and then posting
+     */
+    static void sort(long[] entries, int first, int last) {
+        while (last - first > 16) {
+            int mid = (first + last) >>> 1;
+            // Median of three as the pivot, so sorted runs don't degrade the sort
+            if (less(entries, mid, first)) {
+                swap(entries, mid, first);
+            }
+            if (less(entries, last, first)) {
+                swap(entries, last, first);
+            }
+            if (less(entries, last, mid)) {
+                swap(entries, last, mid);
+            }
+            long pivotHash = entries[2 * mid];
+            long pivotPosting = entries[2 * mid + 1];
+            int i = first;
+            int j = last;
+            while (i <= j) {
+                while (compare(entries, i, pivotHash, pivotPosting) < 0) {
+                    i++;
+                }
+                while (compare(entries, j, pivotHash, pivotPosting) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(entries, i++, j--);
+                }
+            }
+            // Recurse into the smaller half and loop on the larger to bound the stack depth
+            if (j - first < last - i) {
+                sort(entries, first, j);
+                first = i;
+            } else {
+                sort(entries, i, last);
+                last = j;
+            }
+        }
+        for (int i = first + 1; i <= last; i++) {
+            for (int j = i; j > first && less(entries, j, j - 1); j--) {
+                swap(entries, j, j - 1);
+            }
+        }
+    }
+
+    private static int compare(long[] entries, int i, long hash, long posting) {
+        int cmp = Long.compare(entries[2 * i], hash);
+        return cmp != 0 ? cmp : Long.compare(entries[2 * i + 1], posting);
+    }
+
+    private static boolean less(long[] entries, int i, int j) {
+        return compare(entries, i, entries[2 * j], entries[2 * j + 1]) < 0;
+    }
+
+    private static void swap(long[] entries, int i, int j) {
+        long hash = entries[2 * i];
+        long posting = entries[2 * i + 1];
+        entries[2 * i] = entries[2 * j];
+        entries[2 * i + 1] = entries[2 * j + 1];
+        entries[2 * j] = hash;
+        entries[2 * j + 1] = posting;
+    }
+
+    private static final class Cursor implements Comparable<Cursor> {
+
+        final IndexSegment segment;
+        long next;
+        long hash;
+        long posting;
+
+        Cursor(IndexSegment segment) {
+            this.segment = segment;
+        }
+
+        boolean load() {
+            if (next == segment.entryCount) {
+                return false;
+            }
+            hash = segment.hashAt(next);
+            posting = segment.postingAt(next);
+            next++;
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            int cmp = Long.compare(hash, other.hash);
+            return cmp != 0 ? cmp : Long.compare(posting, other.posting);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package chess.gui;
 
 import chess.Move;
+import chess.board.ConsoleBoardListener;
 import chess.board.pieces.*;
 import chess.ChessGame;
 
@@ -39,6 +40,8 @@ public class BoardGUI extends GridPane {
 
     public BoardGUI(ChessGame game){
         this.game = game;
+        // Keep explaining rejected moves and checks on the console while playing
+        game.board.setListener(new ConsoleBoardListener());
         drawBoard(isFlipped);
 
         this.addEventFilter(MouseEvent.MOUSE_CLICKED, dehighlightSquare);
@@ -43,6 +43,7 @@ public class ChessGUIv2 extends Application{
     Pane consoleArea = new Pane();
     TextFlow blackClock = new TextFlow();
     StackPane moveHistory = new StackPane();
+    Text moveHistoryText;
     StackPane controls = new StackPane();
     TextFlow whiteClock = new TextFlow();
 
@@ -76,20 +77,25 @@ public class ChessGUIv2 extends Application{
 
         buttons.setAlignment(Pos.CENTER);
     }
+    /**
+     * Shows the board's move history. The nodes are built once and only the text is replaced after that, as the
+     * history itself is kept up to date by the board.
+     */
     public void drawMoveHistory() {
-        moveHistory.getChildren().clear();
-        Rectangle background = new Rectangle(4.5*SQUARE_SIZE, 5*SQUARE_SIZE+5);
-        background.setStyle("-fx-fill: #4a4747;");
-
-        String moveHistoryString = game.board.printMoveHistory();
-        Text mh = new Text(moveHistoryString);
-        mh.setFill(Color.WHITE);
-        mh.setFont(Font.font ("Montserrat", FontWeight.BOLD, 14));
-        //Text mh = new Text("1. Nf3 Nf6 2. c4 g6 3. Nc3 Bg7 4. d4 O-O 5. Bf4 d5 6. Qb3 dxc4 7. Qxc4 c6 8. e4 Nbd7 9. Rd1 Nb6 10. Qc5 Bg4 11. Bg5 Na4 12. Qa3 Nxc3 13. bxc3 Nxe4 14. Bxe7 Qb6 15. Bc4 Nxc3 16. Bc5 Rfe8+ 17. Kf1 Be6 18. Bxb6 Bxc4+ 19. Kg1 Ne2+ 20. Kf1 Nxd4+ 21. Kg1 Ne2+ 22. Kf1 Nc3+ 23. Kg1 axb6 24. Qb4 Ra4 25. Qxb6 Nxd1 26. h3 Rxa2 27. Kh2 Nxf2 28. Re1 Rxe1 29. Qd8+ Bf8 30. Nxe1 Bd5 31. Nf3 Ne4 32. Qb8 b5 33. h4 h5 34. Ne5 Kg7 35. Kg1 Bc5+ 36. Kf1 Ng3+ 37. Ke1 Bb4+ 38. Kd1 Bb3+ 39. Kc1 Ne2+ 40. Kb1 Nc3+ 41. Kc1 Rc2# 0-1");
-        TextFlow PGN = new TextFlow(mh);
-        PGN.setMaxWidth(4.5*SQUARE_SIZE);
-        PGN.setMaxHeight(5*SQUARE_SIZE);
-        moveHistory.getChildren().addAll(background, PGN);
+        if (moveHistoryText == null) {
+            Rectangle background = new Rectangle(4.5*SQUARE_SIZE, 5*SQUARE_SIZE+5);
+            background.setStyle("-fx-fill: #4a4747;");
+
+            moveHistoryText = new Text();
+            moveHistoryText.setFill(Color.WHITE);
+            moveHistoryText.setFont(Font.font ("Montserrat", FontWeight.BOLD, 14));
+            //Text mh = new Text("1. Nf3 Nf6 2. c4 g6 3. Nc3 Bg7 4. d4 O-O 5. Bf4 d5 6. Qb3 dxc4 7. Qxc4 c6 8. e4 Nbd7 9. Rd1 Nb6 10. Qc5 Bg4 11. Bg5 Na4 12. Qa3 Nxc3 13. bxc3 Nxe4 14. Bxe7 Qb6 15. Bc4 Nxc3 16. Bc5 Rfe8+ 17. Kf1 Be6 18. Bxb6 Bxc4+ 19. Kg1 Ne2+ 20. Kf1 Nxd4+ 21. Kg1 Ne2+ 22. Kf1 Nc3+ 23. Kg1 axb6 24. Qb4 Ra4 25. Qxb6 Nxd1 26. h3 Rxa2 27. Kh2 Nxf2 28. Re1 Rxe1 29. Qd8+ Bf8 30. Nxe1 Bd5 31. Nf3 Ne4 32. Qb8 b5 33. h4 h5 34. Ne5 Kg7 35. Kg1 Bc5+ 36. Kf1 Ng3+ 37. Ke1 Bb4+ 38. Kd1 Bb3+ 39. Kc1 Ne2+ 40. Kb1 Nc3+ 41. Kc1 Rc2# 0-1");
+            TextFlow PGN = new TextFlow(moveHistoryText);
+            PGN.setMaxWidth(4.5*SQUARE_SIZE);
+            PGN.setMaxHeight(5*SQUARE_SIZE);
+            moveHistory.getChildren().addAll(background, PGN);
+        }
+        moveHistoryText.setText(game.board.printMoveHistory());
     }
 
     void drawConsoleArea() {
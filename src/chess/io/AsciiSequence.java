@@ -0,0 +1,44 @@
+package chess.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * CharSequence view of a range of ASCII bytes in a buffer, so text can be read from a mapped file without decoding it
+ * into Strings. The view is repointed rather than recreated as reading moves on.
+ */
+final class AsciiSequence implements CharSequence {
+
+    private ByteBuffer buffer;
+    private int offset;
+    private int length;
+
+    void set(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (buffer.get(offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        AsciiSequence sub = new AsciiSequence();
+        sub.set(buffer, offset + start, end - start);
+        return sub;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder(length);
+        str.append(this);
+        return str.toString();
+    }
+}
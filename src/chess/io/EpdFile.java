@@ -0,0 +1,129 @@
+package chess.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads positions from an EPD or FEN file, one per line, by memory mapping it rather than reading it through a stream.
+ * <p>
+ * Lines are parsed straight from the mapped bytes into a reused EpdRecord, so no String is made per line. Blank lines
+ * and lines starting with '#' are skipped. Files can be read in order with forEach, or in parallel with
+ * parallelForEach or stream(true), which split the file into line-aligned chunks, each read by its own record.
+ * <pre>
+ *     try (EpdFile file = EpdFile.open(path)) {
+ *         file.parallelForEach(record -> analyse(record.getBoard(), record.getId()));
+ *     }
+ * </pre>
+ * Files of any size can be read. They are mapped in segments of up to a gigabyte, each overlapping the next by
+ * MAX_LINE_LENGTH so that a line starting in one segment can be read entirely from it.
+ */
+public final class EpdFile implements Closeable {
+
+    static final int MAX_LINE_LENGTH = 1 << 16;
+    static final long SEGMENT_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    private EpdFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        int count = (int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        this.segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = i * SEGMENT_SIZE;
+            long length = Math.min(SEGMENT_SIZE + MAX_LINE_LENGTH, size - start);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        }
+    }
+
+    public static EpdFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new EpdFile(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return size of the file in bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Reads every position in file order. The record passed to the action is reused for the next line.
+     *
+     * @throws IllegalArgumentException if a line does not start with a valid FEN
+     */
+    public void forEach(Consumer<? super EpdRecord> action) {
+        spliterator().forEachRemaining(action);
+    }
+
+    /**
+     * Reads every position, spreading chunks of the file across the common ForkJoinPool. Positions are not passed to
+     * the action in file order, and the action may be called from several threads at once, each with its own record.
+     */
+    public void parallelForEach(Consumer<? super EpdRecord> action) {
+        stream(true).forEach(action);
+    }
+
+    /**
+     * Streams the positions in the file. As records are reused, operations that hold on to elements, such as
+     * sorted() or collect(), need to map them to something else first.
+     *
+     * @param parallel whether to read chunks of the file in parallel
+     */
+    public Stream<EpdRecord> stream(boolean parallel) {
+        return StreamSupport.stream(spliterator(), parallel);
+    }
+
+    public Spliterator<EpdRecord> spliterator() {
+        return new EpdSpliterator(this, 0, size);
+    }
+
+    /**
+     * @return the mapped segment that a line starting at the given byte can be read from
+     */
+    MappedByteBuffer segmentFor(long position) {
+        return segments[(int) (position / SEGMENT_SIZE)];
+    }
+
+    /**
+     * @return index of the first line feed at or after the given byte, or end if there is none before it
+     */
+    long findLineEnd(long position, long end) {
+        while (position < end) {
+            MappedByteBuffer segment = segmentFor(position);
+            int index = (int) (position % SEGMENT_SIZE);
+            int limit = (int) Math.min(SEGMENT_SIZE, end - position + index);
+            for (int i = index; i < limit; i++) {
+                if (segment.get(i) == '\n') {
+                    return position + i - index;
+                }
+            }
+            position += limit - index;
+        }
+        return end;
+    }
+
+    /**
+     * Unmaps nothing itself, as mapped buffers are released when collected, but closes the underlying file
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
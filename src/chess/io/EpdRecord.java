@@ -0,0 +1,267 @@
+package chess.io;
+
+import chess.FEN;
+import chess.MoveGenerator;
+import chess.PackedMove;
+import chess.board.Board;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * One position read from an EPD or FEN file: the board and any EPD operations that follow it, such as
+ * {@code bm Nf3; id "test 1"; ce 35;}.
+ * <p>
+ * A reader fills the same record with line after line, so a record and everything returned from it is only valid
+ * until the reader moves on. Copy what needs keeping, e.g with new Board(record.getBoard()) or toString().
+ */
+public final class EpdRecord {
+
+    private final Board board = new Board();
+    private final AsciiSequence line = new AsciiSequence();
+    private final StringBuilder san = new StringBuilder(8);
+    private final int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+    private long position;
+
+    // Operation i's opcode and operand, as offsets into the line
+    private int operationCount;
+    private int[] opcodeStart = new int[8];
+    private int[] opcodeEnd = new int[8];
+    private int[] operandStart = new int[8];
+    private int[] operandEnd = new int[8];
+    private AsciiSequence[] operands = new AsciiSequence[0];
+    private ByteBuffer buffer;
+    private int offset;
+
+    /**
+     * Parses a line into this record
+     *
+     * @param position byte offset of the line in its file, for error messages
+     * @throws IllegalArgumentException if the line does not start with a valid FEN
+     */
+    void load(ByteBuffer buffer, int offset, int length, long position) {
+        this.position = position;
+        this.buffer = buffer;
+        this.offset = offset;
+        line.set(buffer, offset, length);
+        int i;
+        try {
+            i = FEN.load(board, line, 0, length);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid position at byte " + position + ": " + line, e);
+        }
+        operationCount = 0;
+        while (true) {
+            while (i < length && line.charAt(i) == ' ') {
+                i++;
+            }
+            if (i >= length) {
+                break;
+            }
+            int start = i;
+            while (i < length && line.charAt(i) != ' ' && line.charAt(i) != ';') {
+                i++;
+            }
+            int end = i;
+            while (i < length && line.charAt(i) == ' ') {
+                i++;
+            }
+            int valueStart = i;
+            boolean quoted = false;
+            while (i < length && (quoted || line.charAt(i) != ';')) {
+                if (line.charAt(i) == '"') {
+                    quoted = !quoted;
+                }
+                i++;
+            }
+            int valueEnd = i;
+            while (valueEnd > valueStart && line.charAt(valueEnd - 1) == ' ') {
+                valueEnd--;
+            }
+            // A single quoted operand is given without its quotes
+            if (valueEnd - valueStart >= 2 && line.charAt(valueStart) == '"' && line.charAt(valueEnd - 1) == '"') {
+                valueStart++;
+                valueEnd--;
+            }
+            addOperation(start, end, valueStart, valueEnd);
+            i++;
+        }
+    }
+
+    private void addOperation(int start, int end, int valueStart, int valueEnd) {
+        if (operationCount == opcodeStart.length) {
+            int size = 2 * operationCount;
+            opcodeStart = Arrays.copyOf(opcodeStart, size);
+            opcodeEnd = Arrays.copyOf(opcodeEnd, size);
+            operandStart = Arrays.copyOf(operandStart, size);
+            operandEnd = Arrays.copyOf(operandEnd, size);
+        }
+        opcodeStart[operationCount] = start;
+        opcodeEnd[operationCount] = end;
+        operandStart[operationCount] = valueStart;
+        operandEnd[operationCount] = valueEnd;
+        operationCount++;
+    }
+
+    /**
+     * @return the position on this line
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * @return the whole line, without its line ending
+     */
+    public CharSequence getLine() {
+        return line;
+    }
+
+    /**
+     * @return byte offset of this line within the file
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    public int getOperationCount() {
+        return operationCount;
+    }
+
+    /**
+     * @return index of the first operation with the given opcode, or -1 if there is none
+     */
+    public int findOperation(CharSequence opcode) {
+        for (int i = 0; i < operationCount; i++) {
+            if (opcodeEquals(i, opcode)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean opcodeEquals(int index, CharSequence str) {
+        int length = opcodeEnd[index] - opcodeStart[index];
+        if (length != str.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(opcodeStart[index] + i) != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the operand of an operation, without surrounding quotes if it is a single string
+     */
+    public CharSequence getOperand(int index) {
+        if (operands.length < operationCount) {
+            int old = operands.length;
+            operands = Arrays.copyOf(operands, opcodeStart.length);
+            for (int i = old; i < operands.length; i++) {
+                operands[i] = new AsciiSequence();
+            }
+        }
+        AsciiSequence operand = operands[index];
+        operand.set(buffer, offset + operandStart[index], operandEnd[index] - operandStart[index]);
+        return operand;
+    }
+
+    /**
+     * @return the operand of the first operation with the given opcode, or null if there is none
+     */
+    public CharSequence getOperand(CharSequence opcode) {
+        int index = findOperation(opcode);
+        return index < 0 ? null : getOperand(index);
+    }
+
+    /**
+     * @return the "id" operation, or null if there is none
+     */
+    public CharSequence getId() {
+        return getOperand("id");
+    }
+
+    /**
+     * @return the "ce" (centipawn evaluation) operation, or defaultValue if there is none or it is not a number
+     */
+    public int getCentipawns(int defaultValue) {
+        CharSequence operand = getOperand("ce");
+        if (operand == null || operand.length() == 0) {
+            return defaultValue;
+        }
+        boolean negative = operand.charAt(0) == '-';
+        int i = negative || operand.charAt(0) == '+' ? 1 : 0;
+        if (i == operand.length()) {
+            return defaultValue;
+        }
+        int value = 0;
+        for (; i < operand.length(); i++) {
+            char c = operand.charAt(i);
+            if (c < '0' || c > '9') {
+                return defaultValue;
+            }
+            value = 10 * value + c - '0';
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Resolves the SAN moves of the "bm" (best move) operation against the position's legal moves
+     *
+     * @param moves buffer for the packed moves found
+     * @return number of moves written, which leaves out any that are not legal here
+     */
+    public int getBestMoves(int[] moves) {
+        CharSequence operand = getOperand("bm");
+        if (operand == null) {
+            return 0;
+        }
+        int legalCount = MoveGenerator.generateLegalMoves(board, legalMoves);
+        int count = 0;
+        int i = 0;
+        int length = operand.length();
+        while (i < length && count < moves.length) {
+            while (i < length && operand.charAt(i) == ' ') {
+                i++;
+            }
+            int start = i;
+            while (i < length && operand.charAt(i) != ' ') {
+                i++;
+            }
+            int end = i;
+            // Check and annotation marks are not part of the move itself
+            while (end > start && "+#!?".indexOf(operand.charAt(end - 1)) >= 0) {
+                end--;
+            }
+            if (end == start) {
+                continue;
+            }
+            for (int j = 0; j < legalCount; j++) {
+                san.setLength(0);
+                PackedMove.appendSan(san, board, legalMoves[j]);
+                if (san.length() == end - start && regionMatches(operand, start, san)) {
+                    moves[count++] = legalMoves[j];
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static boolean regionMatches(CharSequence text, int start, CharSequence str) {
+        for (int i = 0; i < str.length(); i++) {
+            if (text.charAt(start + i) != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return line.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package chess.io;
+
+import java.nio.MappedByteBuffer;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Reads the lines in a byte range of an EpdFile into its own EpdRecord. Splitting hands the second half of the range,
+ * starting from the next line, to a new spliterator.
+ */
+final class EpdSpliterator implements Spliterator<EpdRecord> {
+
+    /**
+     * Ranges smaller than this are not worth splitting any further
+     */
+    static final long MIN_SPLIT_SIZE = 1 << 16;
+    /**
+     * Rough line length, for estimating how many positions are left
+     */
+    private static final int TYPICAL_LINE_LENGTH = 64;
+
+    private final EpdFile file;
+    private final EpdRecord record = new EpdRecord();
+    private long position;
+    private long end;
+
+    /**
+     * @param start first byte of a line
+     * @param end   byte after the last line, i.e the start of another line or the end of the file
+     */
+    EpdSpliterator(EpdFile file, long start, long end) {
+        this.file = file;
+        this.position = start;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super EpdRecord> action) {
+        while (position < end) {
+            long lineStart = position;
+            long lineEnd = file.findLineEnd(lineStart, end);
+            position = lineEnd + 1;
+            if (lineEnd - lineStart > EpdFile.MAX_LINE_LENGTH) {
+                throw new IllegalArgumentException("Line at byte " + lineStart + " is too long");
+            }
+            MappedByteBuffer segment = file.segmentFor(lineStart);
+            int offset = (int) (lineStart % EpdFile.SEGMENT_SIZE);
+            int length = (int) (lineEnd - lineStart);
+            // Trim whitespace, including the carriage return of Windows line endings
+            while (length > 0 && segment.get(offset + length - 1) <= ' ') {
+                length--;
+            }
+            while (length > 0 && segment.get(offset) <= ' ') {
+                offset++;
+                length--;
+            }
+            if (length == 0 || segment.get(offset) == '#') {
+                continue;
+            }
+            record.load(segment, offset, length, lineStart);
+            action.accept(record);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator<EpdRecord> trySplit() {
+        if (end - position < 2 * MIN_SPLIT_SIZE) {
+            return null;
+        }
+        long middle = file.findLineEnd(position + (end - position) / 2, end) + 1;
+        if (middle >= end) {
+            return null;
+        }
+        EpdSpliterator second = new EpdSpliterator(file, middle, end);
+        this.end = middle;
+        return second;
+    }
+
+    @Override
+    public long estimateSize() {
+        return (end - position) / TYPICAL_LINE_LENGTH + 1;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+}
@@ -0,0 +1,233 @@
+package chess.io;
+
+import chess.board.Bitboard;
+import chess.board.Board;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Fixed size binary encoding of a position in 32 bytes, for storing large numbers of positions far more compactly than
+ * FEN. All values are big-endian.
+ * <pre>
+ *  bytes  0-7   occupancy bitboard (see Bitboard for square order)
+ *  bytes  8-23  4-bit piece code (Piece.getCode()) for each occupied square in square order, high nibble first;
+ *               unused nibbles are 0
+ *  byte   24    castling rights (see Board.getCastlingRights) in bits 0-3, bit 4 set if black is to move
+ *  byte   25    en passant square + 1, or 0 if there is none
+ *  bytes 26-27  halfmove clock, unsigned
+ *  bytes 28-31  fullmove number
+ * </pre>
+ * Positions with more than 32 pieces cannot be encoded. Comparing encodings byte by byte as unsigned values gives a
+ * total order, see COMPARATOR, so equal positions sort together.
+ */
+public final class PositionCodec {
+
+    public static final int BYTES = 32;
+    public static final int MAX_PIECES = 32;
+
+    /**
+     * Orders encoded positions as unsigned bytes. Two encodings compare equal only if they encode the same position.
+     */
+    public static final Comparator<byte[]> COMPARATOR = (a, b) -> compare(a, 0, b, 0);
+
+    private PositionCodec() {
+    }
+
+    public static byte[] encode(Board board) {
+        byte[] bytes = new byte[BYTES];
+        encode(board, bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Writes the encoding of a position into an array
+     *
+     * @throws IllegalArgumentException if the position has more than MAX_PIECES pieces
+     */
+    public static void encode(Board board, byte[] dst, int offset) {
+        long occupied = occupied(board);
+        putLong(dst, offset, occupied);
+        putLong(dst, offset + 8, pieceCodes(board, occupied));
+        putLong(dst, offset + 16, pieceCodes(board, skipPieces(occupied)));
+        putLong(dst, offset + 24, state(board));
+    }
+
+    /**
+     * Writes the encoding of a position at the buffer's position, advancing it by BYTES. Values are big-endian
+     * whatever the buffer's byte order.
+     *
+     * @throws BufferOverflowException  if fewer than BYTES bytes remain, in which case nothing is written
+     * @throws IllegalArgumentException if the position has more than MAX_PIECES pieces
+     */
+    public static void encode(Board board, ByteBuffer dst) {
+        if (dst.remaining() < BYTES) {
+            throw new BufferOverflowException();
+        }
+        int position = dst.position();
+        if (dst.hasArray()) {
+            encode(board, dst.array(), dst.arrayOffset() + position);
+        } else {
+            long occupied = occupied(board);
+            putLong(dst, position, occupied);
+            putLong(dst, position + 8, pieceCodes(board, occupied));
+            putLong(dst, position + 16, pieceCodes(board, skipPieces(occupied)));
+            putLong(dst, position + 24, state(board));
+        }
+        dst.position(position + BYTES);
+    }
+
+    public static Board decode(byte[] src, int offset) {
+        Board board = new Board();
+        decode(src, offset, board);
+        return board;
+    }
+
+    /**
+     * Loads an encoded position into an existing board, replacing everything on it. As with FEN.load, the board's
+     * squares and pieces are reused.
+     *
+     * @throws IllegalArgumentException if the bytes do not hold a valid encoding
+     */
+    public static void decode(byte[] src, int offset, Board board) {
+        decode(getLong(src, offset), getLong(src, offset + 8), getLong(src, offset + 16), getLong(src, offset + 24),
+                board);
+    }
+
+    /**
+     * Reads an encoded position from the buffer's position into a board, advancing it by BYTES
+     *
+     * @throws BufferUnderflowException if fewer than BYTES bytes remain, in which case nothing is read
+     */
+    public static void decode(ByteBuffer src, Board board) {
+        if (src.remaining() < BYTES) {
+            throw new BufferUnderflowException();
+        }
+        int position = src.position();
+        if (src.hasArray()) {
+            decode(src.array(), src.arrayOffset() + position, board);
+        } else {
+            decode(getLong(src, position), getLong(src, position + 8), getLong(src, position + 16),
+                    getLong(src, position + 24), board);
+        }
+        src.position(position + BYTES);
+    }
+
+    private static void decode(long occupied, long high, long low, long state, Board board) {
+        if (Long.bitCount(occupied) > MAX_PIECES) {
+            throw new IllegalArgumentException("Too many pieces in encoded position");
+        }
+        board.clearBoard();
+        int index = 0;
+        for (long pieces = occupied; pieces != 0; pieces &= pieces - 1, index++) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            long codes = index < 16 ? high : low;
+            int code = (int) (codes >>> (60 - 4 * (index & 15))) & 0xF;
+            if (code >= 12) {
+                throw new IllegalArgumentException("Invalid piece code in encoded position: " + code);
+            }
+            board.putPiece(board.recyclePiece(code % 6, code / 6), Bitboard.fileOf(square), Bitboard.rankOf(square));
+        }
+        int flags = (int) (state >>> 56) & 0xFF;
+        board.setCastlingRights(flags & 0xF);
+        board.whiteToMove = (flags & 0x10) == 0;
+        int enPassantSquare = ((int) (state >>> 48) & 0xFF) - 1;
+        if (enPassantSquare >= 64) {
+            throw new IllegalArgumentException("Invalid en passant square in encoded position");
+        }
+        board.setEnPassantSquare(enPassantSquare);
+        board.halfmoveClock = (int) (state >>> 32) & 0xFFFF;
+        board.moveNumber = (int) state;
+        board.updateHash();
+    }
+
+    private static long occupied(Board board) {
+        long occupied = board.occupied;
+        if (Long.bitCount(occupied) > MAX_PIECES) {
+            throw new IllegalArgumentException("Too many pieces to encode: " + Long.bitCount(occupied));
+        }
+        return occupied;
+    }
+
+    /**
+     * @return piece codes of the first 16 squares in pieces, high nibble first
+     */
+    private static long pieceCodes(Board board, long pieces) {
+        long codes = 0L;
+        for (int shift = 60; pieces != 0 && shift >= 0; pieces &= pieces - 1, shift -= 4) {
+            codes |= (long) board.getPiece(Long.numberOfTrailingZeros(pieces)).getCode() << shift;
+        }
+        return codes;
+    }
+
+    private static long skipPieces(long pieces) {
+        for (int i = 0; i < 16 && pieces != 0; i++) {
+            pieces &= pieces - 1;
+        }
+        return pieces;
+    }
+
+    /**
+     * @return bytes 24-31: side to move and castling rights, en passant square, halfmove clock and fullmove number
+     */
+    private static long state(Board board) {
+        long flags = board.getCastlingRights() | (board.whiteToMove ? 0 : 0x10);
+        long enPassant = (board.enPassantSquare + 1) & 0xFF;
+        long halfmoveClock = Math.min(board.halfmoveClock, 0xFFFF);
+        return flags << 56 | enPassant << 48 | halfmoveClock << 32 | (board.moveNumber & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Compares two encoded positions in arrays, as unsigned bytes
+     */
+    public static int compare(byte[] a, int aOffset, byte[] b, int bOffset) {
+        return Arrays.compareUnsigned(a, aOffset, aOffset + BYTES, b, bOffset, bOffset + BYTES);
+    }
+
+    /**
+     * Compares two encoded positions at absolute indices in buffers, as unsigned bytes
+     */
+    public static int compare(ByteBuffer a, int aIndex, ByteBuffer b, int bIndex) {
+        for (int i = 0; i < BYTES; i++) {
+            int cmp = Byte.compareUnsigned(a.get(aIndex + i), b.get(bIndex + i));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    private static void putLong(byte[] dst, int offset, long value) {
+        putInt(dst, offset, (int) (value >>> 32));
+        putInt(dst, offset + 4, (int) value);
+    }
+
+    private static void putInt(byte[] dst, int offset, int value) {
+        dst[offset] = (byte) (value >>> 24);
+        dst[offset + 1] = (byte) (value >>> 16);
+        dst[offset + 2] = (byte) (value >>> 8);
+        dst[offset + 3] = (byte) value;
+    }
+
+    private static void putLong(ByteBuffer dst, int index, long value) {
+        dst.putLong(index, dst.order() == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value));
+    }
+
+    private static long getLong(ByteBuffer src, int index) {
+        long value = src.getLong(index);
+        return src.order() == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value);
+    }
+
+    private static long getLong(byte[] src, int offset) {
+        return ((long) getInt(src, offset) << 32) | (getInt(src, offset + 4) & 0xFFFFFFFFL);
+    }
+
+    private static int getInt(byte[] src, int offset) {
+        return ((src[offset] & 0xFF) << 24) | ((src[offset + 1] & 0xFF) << 16) | ((src[offset + 2] & 0xFF) << 8)
+                | (src[offset + 3] & 0xFF);
+    }
+}
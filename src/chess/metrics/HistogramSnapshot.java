@@ -0,0 +1,63 @@
+package chess.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Summary of a LatencyHistogram at one point in time. All values are in nanoseconds, and percentiles are accurate to
+ * within about 6%.
+ */
+public final class HistogramSnapshot {
+
+    private final long count;
+    private final long mean;
+    private final long max;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+
+    @ConstructorProperties({"count", "mean", "max", "p50", "p90", "p99", "p999"})
+    public HistogramSnapshot(long count, long mean, long max, long p50, long p90, long p99, long p999) {
+        this.count = count;
+        this.mean = mean;
+        this.max = max;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMean() {
+        return mean;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + " mean=" + mean + "ns p50=" + p50 + "ns p90=" + p90 + "ns p99=" + p99
+                + "ns p99.9=" + p999 + "ns max=" + max + "ns";
+    }
+}
@@ -0,0 +1,162 @@
+package chess.metrics;
+
+import chess.board.BoardEventListener.IllegalMoveReason;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the engine's hot paths, for seeing where time goes in a running service without
+ * attaching a profiler.
+ * <p>
+ * Collection is switched on with {@code -Dchess.metrics=true}. ENABLED is a constant, so when it is off the JIT drops
+ * the instrumentation entirely and the hot paths run as if it wasn't there. Call sites follow the pattern
+ * <pre>
+ *     long start = Metrics.ENABLED ? System.nanoTime() : 0L;
+ *     ...
+ *     if (Metrics.ENABLED) {
+ *         Metrics.MOVE_GENERATION_LATENCY.record(System.nanoTime() - start);
+ *     }
+ * </pre>
+ * Counters are LongAdders, which stay cheap when many threads bump them at once. Read them with snapshot() or over
+ * JMX once register() has been called.
+ */
+public final class Metrics implements MetricsMXBean {
+
+    public static final boolean ENABLED = Boolean.getBoolean("chess.metrics");
+    public static final String OBJECT_NAME = "chess:type=Metrics";
+
+    public static final LongAdder LEGALITY_CHECKS = new LongAdder();
+    private static final LongAdder[] ILLEGAL_MOVES = new LongAdder[IllegalMoveReason.values().length];
+    public static final LongAdder MOVES_MADE = new LongAdder();
+    public static final LongAdder MOVES_UNDONE = new LongAdder();
+    public static final LongAdder ATTACKED_SQUARES_UPDATES = new LongAdder();
+    public static final LongAdder FEN_PARSES = new LongAdder();
+
+    public static final LatencyHistogram LEGALITY_CHECK_LATENCY = new LatencyHistogram();
+    public static final LatencyHistogram ATTACKED_SQUARES_UPDATE_LATENCY = new LatencyHistogram();
+    public static final LatencyHistogram MOVE_GENERATION_LATENCY = new LatencyHistogram();
+    public static final LatencyHistogram FEN_PARSE_LATENCY = new LatencyHistogram();
+
+    static {
+        for (int i = 0; i < ILLEGAL_MOVES.length; i++) {
+            ILLEGAL_MOVES[i] = new LongAdder();
+        }
+    }
+
+    private static final Metrics INSTANCE = new Metrics();
+
+    private Metrics() {
+    }
+
+    public static void illegalMove(IllegalMoveReason reason) {
+        ILLEGAL_MOVES[reason.ordinal()].increment();
+    }
+
+    /**
+     * Publishes the metrics as an MXBean named OBJECT_NAME on the platform MBean server. Calling it again does nothing.
+     */
+    public static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Already published
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register metrics MBean", e);
+        }
+    }
+
+    /**
+     * @return a copy of every metric as it stands now, which later activity does not change
+     */
+    public static MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(INSTANCE);
+    }
+
+    /**
+     * Sets every counter and histogram back to zero
+     */
+    public static void resetAll() {
+        INSTANCE.reset();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return ENABLED;
+    }
+
+    @Override
+    public long getLegalityChecks() {
+        return LEGALITY_CHECKS.sum();
+    }
+
+    @Override
+    public Map<String, Long> getIllegalMoves() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (IllegalMoveReason reason : IllegalMoveReason.values()) {
+            counts.put(reason.name(), ILLEGAL_MOVES[reason.ordinal()].sum());
+        }
+        return counts;
+    }
+
+    @Override
+    public long getMovesMade() {
+        return MOVES_MADE.sum();
+    }
+
+    @Override
+    public long getMovesUndone() {
+        return MOVES_UNDONE.sum();
+    }
+
+    @Override
+    public long getAttackedSquaresUpdates() {
+        return ATTACKED_SQUARES_UPDATES.sum();
+    }
+
+    @Override
+    public long getFenParses() {
+        return FEN_PARSES.sum();
+    }
+
+    @Override
+    public HistogramSnapshot getLegalityCheckLatency() {
+        return LEGALITY_CHECK_LATENCY.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getAttackedSquaresUpdateLatency() {
+        return ATTACKED_SQUARES_UPDATE_LATENCY.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getMoveGenerationLatency() {
+        return MOVE_GENERATION_LATENCY.snapshot();
+    }
+
+    @Override
+    public HistogramSnapshot getFenParseLatency() {
+        return FEN_PARSE_LATENCY.snapshot();
+    }
+
+    @Override
+    public void reset() {
+        LEGALITY_CHECKS.reset();
+        for (LongAdder adder : ILLEGAL_MOVES) {
+            adder.reset();
+        }
+        MOVES_MADE.reset();
+        MOVES_UNDONE.reset();
+        ATTACKED_SQUARES_UPDATES.reset();
+        FEN_PARSES.reset();
+        LEGALITY_CHECK_LATENCY.reset();
+        ATTACKED_SQUARES_UPDATE_LATENCY.reset();
+        MOVE_GENERATION_LATENCY.reset();
+        FEN_PARSE_LATENCY.reset();
+    }
+}
@@ -0,0 +1,37 @@
+package chess.metrics;
+
+import java.util.Map;
+
+/**
+ * Engine activity counters and timings, as published over JMX under Metrics.OBJECT_NAME. Counts are totals since
+ * startup or the last reset, and timings are in nanoseconds.
+ */
+public interface MetricsMXBean {
+
+    boolean isEnabled();
+
+    long getLegalityChecks();
+
+    /**
+     * @return number of moves rejected by MoveChecker.isMoveLegal, keyed by reason
+     */
+    Map<String, Long> getIllegalMoves();
+
+    long getMovesMade();
+
+    long getMovesUndone();
+
+    long getAttackedSquaresUpdates();
+
+    long getFenParses();
+
+    HistogramSnapshot getLegalityCheckLatency();
+
+    HistogramSnapshot getAttackedSquaresUpdateLatency();
+
+    HistogramSnapshot getMoveGenerationLatency();
+
+    HistogramSnapshot getFenParseLatency();
+
+    void reset();
+}
@@ -0,0 +1,91 @@
+package chess.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Frozen copy of the engine metrics, see Metrics.snapshot()
+ */
+public final class MetricsSnapshot {
+
+    private final long legalityChecks;
+    private final Map<String, Long> illegalMoves;
+    private final long movesMade;
+    private final long movesUndone;
+    private final long attackedSquaresUpdates;
+    private final long fenParses;
+    private final HistogramSnapshot legalityCheckLatency;
+    private final HistogramSnapshot attackedSquaresUpdateLatency;
+    private final HistogramSnapshot moveGenerationLatency;
+    private final HistogramSnapshot fenParseLatency;
+
+    MetricsSnapshot(MetricsMXBean metrics) {
+        this.legalityChecks = metrics.getLegalityChecks();
+        this.illegalMoves = Collections.unmodifiableMap(metrics.getIllegalMoves());
+        this.movesMade = metrics.getMovesMade();
+        this.movesUndone = metrics.getMovesUndone();
+        this.attackedSquaresUpdates = metrics.getAttackedSquaresUpdates();
+        this.fenParses = metrics.getFenParses();
+        this.legalityCheckLatency = metrics.getLegalityCheckLatency();
+        this.attackedSquaresUpdateLatency = metrics.getAttackedSquaresUpdateLatency();
+        this.moveGenerationLatency = metrics.getMoveGenerationLatency();
+        this.fenParseLatency = metrics.getFenParseLatency();
+    }
+
+    public long getLegalityChecks() {
+        return legalityChecks;
+    }
+
+    /**
+     * @return number of rejected moves keyed by IllegalMoveReason name
+     */
+    public Map<String, Long> getIllegalMoves() {
+        return illegalMoves;
+    }
+
+    public long getMovesMade() {
+        return movesMade;
+    }
+
+    public long getMovesUndone() {
+        return movesUndone;
+    }
+
+    public long getAttackedSquaresUpdates() {
+        return attackedSquaresUpdates;
+    }
+
+    public long getFenParses() {
+        return fenParses;
+    }
+
+    public HistogramSnapshot getLegalityCheckLatency() {
+        return legalityCheckLatency;
+    }
+
+    public HistogramSnapshot getAttackedSquaresUpdateLatency() {
+        return attackedSquaresUpdateLatency;
+    }
+
+    public HistogramSnapshot getMoveGenerationLatency() {
+        return moveGenerationLatency;
+    }
+
+    public HistogramSnapshot getFenParseLatency() {
+        return fenParseLatency;
+    }
+
+    @Override
+    public String toString() {
+        return "legality checks: " + legalityChecks + "\n"
+                + "illegal moves: " + illegalMoves + "\n"
+                + "moves made: " + movesMade + "\n"
+                + "moves undone: " + movesUndone + "\n"
+                + "attacked squares updates: " + attackedSquaresUpdates + "\n"
+                + "FEN parses: " + fenParses + "\n"
+                + "legality check latency: " + legalityCheckLatency + "\n"
+                + "attacked squares update latency: " + attackedSquaresUpdateLatency + "\n"
+                + "move generation latency: " + moveGenerationLatency + "\n"
+                + "FEN parse latency: " + fenParseLatency + "\n";
+    }
+}
@@ -0,0 +1,39 @@
+package chess.pgn;
+
+/**
+ * CharSequence view of a range of ASCII bytes, repointed rather than recreated as parsing moves on
+ */
+final class ByteSequence implements CharSequence {
+
+    private byte[] bytes;
+    private int offset;
+    private int length;
+
+    void set(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes[offset + index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        ByteSequence sub = new ByteSequence();
+        sub.set(bytes, offset + start, end - start);
+        return sub;
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, offset, length, java.nio.charset.StandardCharsets.ISO_8859_1);
+    }
+}
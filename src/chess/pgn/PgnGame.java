@@ -0,0 +1,152 @@
+package chess.pgn;
+
+import chess.FEN;
+import chess.Perft;
+import chess.board.Board;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The tags and main line of one game read from PGN. Comments, NAGs and variations are not kept; use a PgnVisitor
+ * directly for those.
+ */
+public final class PgnGame {
+
+    private final Map<String, String> tags;
+    private final int[] moves;
+    private final String result;
+
+    /**
+     * @param tags   tag pairs in the order they were read
+     * @param moves  main line as packed moves, see PackedMove
+     * @param result "1-0", "0-1", "1/2-1/2" or "*"
+     */
+    public PgnGame(Map<String, String> tags, int[] moves, String result) {
+        this.tags = Collections.unmodifiableMap(new LinkedHashMap<>(tags));
+        this.moves = moves.clone();
+        this.result = result;
+    }
+
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    /**
+     * @return value of the tag, or null if the game has no such tag
+     */
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * @return FEN of the position the game starts from, given by the FEN tag or else the standard start
+     */
+    public String getStartingFen() {
+        String fen = tags.get("FEN");
+        return fen == null ? Perft.START_FEN : fen;
+    }
+
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    /**
+     * @return packed move played at the given ply of the main line, counting from 0
+     */
+    public int getMove(int ply) {
+        return moves[ply];
+    }
+
+    public int[] getMoves() {
+        return moves.clone();
+    }
+
+    /**
+     * @return a new board with the first plies of the main line played from the starting position
+     */
+    public Board getBoard(int plies) {
+        if (plies < 0 || plies > moves.length) {
+            throw new IllegalArgumentException("No ply " + plies + " in a game of " + moves.length);
+        }
+        Board board = FEN.load(getStartingFen());
+        for (int i = 0; i < plies; i++) {
+            board.makeMove(moves[i]);
+        }
+        return board;
+    }
+
+    /**
+     * Reads every game in a string
+     *
+     * @throws IllegalArgumentException if any game cannot be read
+     */
+    public static List<PgnGame> parse(String pgn) {
+        List<PgnGame> games = new ArrayList<>();
+        new PgnParser().parse(pgn, new Builder(games::add));
+        return games;
+    }
+
+    /**
+     * Builds a PgnGame from each game a parser reads, ignoring moves inside variations, and passes it on
+     */
+    static class Builder implements PgnVisitor {
+
+        private final Consumer<? super PgnGame> consumer;
+        private final Map<String, String> tags = new LinkedHashMap<>();
+        private int[] moves = new int[256];
+        private int moveCount;
+        private int depth;
+
+        Builder(Consumer<? super PgnGame> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void startGame() {
+            tags.clear();
+            moveCount = 0;
+            depth = 0;
+        }
+
+        @Override
+        public void tag(String name, String value) {
+            tags.put(name, value);
+        }
+
+        @Override
+        public void move(Board board, int move) {
+            if (depth != 0) {
+                return;
+            }
+            if (moveCount == moves.length) {
+                moves = Arrays.copyOf(moves, moves.length * 2);
+            }
+            moves[moveCount++] = move;
+        }
+
+        @Override
+        public void startVariation() {
+            depth++;
+        }
+
+        @Override
+        public void endVariation() {
+            depth--;
+        }
+
+        @Override
+        public void endGame(String result) {
+            consumer.accept(new PgnGame(tags, Arrays.copyOf(moves, moveCount), result));
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package chess.pgn;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Imports large multi-game PGN files using several threads.
+ * <p>
+ * One thread reads the input into chunks, cutting each chunk at the start of a game so that no game is split between
+ * two chunks, and the rest parse the chunks with their own PgnParser. Chunks are recycled through a fixed pool, so
+ * memory use is bounded by the number of threads and the chunk size however long the input is. Only a game longer
+ * than a whole chunk makes its chunk grow.
+ * <p>
+ * Games are passed to the consumer from the parsing threads as soon as they are read, so the consumer must be thread
+ * safe and games arrive out of order. With one thread they arrive in order. Games that cannot be read are counted and
+ * skipped.
+ */
+public final class PgnImporter {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private static final Chunk END = new Chunk(0);
+
+    private final int threads;
+    private final int chunkSize;
+
+    /**
+     * @param threads   number of parsing threads
+     * @param chunkSize bytes of input handed to a parsing thread at a time
+     */
+    public PgnImporter(int threads, int chunkSize) {
+        if (threads < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("Invalid importer settings: threads " + threads + ", chunk size "
+                    + chunkSize);
+        }
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    public PgnImporter(int threads) {
+        this(threads, DEFAULT_CHUNK_SIZE);
+    }
+
+    public Summary importGames(Path file, Consumer<? super PgnGame> consumer) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return importGames(in, consumer);
+        }
+    }
+
+    /**
+     * Reads and parses every game in the stream, which is not closed
+     *
+     * @return counts of what was read
+     * @throws IOException if reading fails. Anything thrown by the consumer is rethrown once the threads have stopped.
+     */
+    public Summary importGames(InputStream in, Consumer<? super PgnGame> consumer) throws IOException {
+        // Enough chunks for every parser to have one while the reader fills the next
+        int chunks = 2 * threads + 1;
+        BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(chunks);
+        BlockingQueue<Chunk> full = new ArrayBlockingQueue<>(chunks + threads);
+        for (int i = 0; i < chunks; i++) {
+            free.add(new Chunk(chunkSize));
+        }
+        Summary summary = new Summary();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> parseChunks(free, full, consumer, summary, failure), "pgn-parser-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        try {
+            readChunks(in, free, full);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("PGN import interrupted");
+        } finally {
+            for (int i = 0; i < threads; i++) {
+                full.add(END);
+            }
+            for (Thread worker : workers) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return summary;
+    }
+
+    /**
+     * Fills chunks from the stream and queues them for parsing, carrying any partial game at the end of a chunk over
+     * to the start of the next
+     */
+    private static void readChunks(InputStream in, BlockingQueue<Chunk> free, BlockingQueue<Chunk> full)
+            throws IOException, InterruptedException {
+        Chunk chunk = free.take();
+        chunk.length = 0;
+        while (true) {
+            int n = in.read(chunk.bytes, chunk.length, chunk.bytes.length - chunk.length);
+            if (n < 0) {
+                break;
+            }
+            chunk.length += n;
+            if (chunk.length < chunk.bytes.length) {
+                continue;
+            }
+            int boundary = lastGameStart(chunk.bytes, chunk.length);
+            if (boundary <= 0) {
+                // A single game fills the chunk, so it has to grow
+                chunk.bytes = Arrays.copyOf(chunk.bytes, chunk.bytes.length * 2);
+                continue;
+            }
+            Chunk next = free.take();
+            int carried = chunk.length - boundary;
+            if (next.bytes.length < carried * 2) {
+                next.bytes = new byte[carried * 2];
+            }
+            System.arraycopy(chunk.bytes, boundary, next.bytes, 0, carried);
+            next.length = carried;
+            chunk.length = boundary;
+            full.put(chunk);
+            chunk = next;
+        }
+        if (chunk.length > 0) {
+            full.put(chunk);
+        }
+    }
+
+    private static void parseChunks(BlockingQueue<Chunk> free, BlockingQueue<Chunk> full,
+                                    Consumer<? super PgnGame> consumer, Summary summary,
+                                    AtomicReference<Throwable> failure) {
+        PgnParser parser = new PgnParser();
+        PgnGame.Builder builder = new PgnGame.Builder(game -> {
+            summary.games.increment();
+            summary.moves.add(game.getMoveCount());
+            consumer.accept(game);
+        }) {
+            @Override
+            public void error(IllegalArgumentException e) {
+                summary.failedGames.increment();
+            }
+        };
+        try {
+            while (true) {
+                Chunk chunk = full.take();
+                if (chunk == END) {
+                    return;
+                }
+                // After a failure chunks are only recycled, so the reader is never left waiting for one
+                if (failure.get() == null) {
+                    try {
+                        parser.parse(chunk.bytes, 0, chunk.length, builder);
+                    } catch (RuntimeException | Error e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+                summary.bytes.add(chunk.length);
+                free.put(chunk);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Finds the start of the last game in a buffer: a '[' opening a line whose previous non-blank line is not also a
+     * tag, so the tags of a game are never separated from each other
+     *
+     * @return index of the start of the game, or -1 if there is none
+     */
+    static int lastGameStart(byte[] bytes, int length) {
+        for (int i = length - 1; i > 0; i--) {
+            if (bytes[i] == '[' && bytes[i - 1] == '\n' && !isTagLineBefore(bytes, i - 1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param newline index of the newline ending a line
+     * @return true if the last non-blank line up to and including that one starts with '['
+     */
+    private static boolean isTagLineBefore(byte[] bytes, int newline) {
+        int end = newline;
+        while (true) {
+            int start = end;
+            while (start > 0 && bytes[start - 1] != '\n') {
+                start--;
+            }
+            int i = start;
+            while (i < end && (bytes[i] == ' ' || bytes[i] == '\t' || bytes[i] == '\r')) {
+                i++;
+            }
+            if (i < end) {
+                return bytes[i] == '[';
+            }
+            if (start == 0) {
+                return false;
+            }
+            end = start - 1;
+        }
+    }
+
+    private static final class Chunk {
+
+        byte[] bytes;
+        int length;
+
+        Chunk(int size) {
+            this.bytes = new byte[size];
+        }
+    }
+
+    /**
+     * Totals for one import. Counts are updated while the import runs.
+     */
+    public static final class Summary {
+
+        private final LongAdder games = new LongAdder();
+        private final LongAdder failedGames = new LongAdder();
+        private final LongAdder moves = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        public long getGameCount() {
+            return games.sum();
+        }
+
+        public long getFailedGameCount() {
+            return failedGames.sum();
+        }
+
+        /**
+         * @return number of main line moves in the games read
+         */
+        public long getMoveCount() {
+            return moves.sum();
+        }
+
+        public long getByteCount() {
+            return bytes.sum();
+        }
+
+        @Override
+        public String toString() {
+            return getGameCount() + " games, " + getMoveCount() + " moves, " + getFailedGameCount() + " failed";
+        }
+    }
+}
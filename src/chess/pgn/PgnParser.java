@@ -0,0 +1,491 @@
+package chess.pgn;
+
+import chess.FEN;
+import chess.MoveGenerator;
+import chess.PackedMove;
+import chess.Perft;
+import chess.board.Bitboard;
+import chess.board.Board;
+import chess.board.pieces.Piece;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads games in PGN from ASCII or Latin-1 bytes and passes them piece by piece to a PgnVisitor. Each SAN move is
+ * resolved against the legal moves of the position, so every move the visitor sees is legal. Comments, NAGs and
+ * nested variations are all read, and the board is wound back and forth around variations so their moves can be
+ * resolved too.
+ * <p>
+ * The parser keeps one board and move buffer and reuses them for every game, so apart from tag strings nothing is
+ * allocated per move or per game. A parser is not thread safe, but separate parsers can be used on separate threads.
+ */
+public final class PgnParser {
+
+    private static final String PIECE_LETTERS = "PNBRQK";
+    private static final int MAX_VARIATION_DEPTH = 64;
+
+    private final Board board = new Board();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final ByteSequence text = new ByteSequence();
+
+    private final int[] variationMoves = new int[MAX_VARIATION_DEPTH];
+    private final int[] variationUndoSizes = new int[MAX_VARIATION_DEPTH];
+
+    private byte[] buf;
+    private int end;
+    private int pos;
+    private String fen;
+    /**
+     * Set once the current game's tag section is over, so any tag at the start of a line belongs to the next game
+     */
+    private boolean inMoves;
+
+    /**
+     * Parses every game in a range of bytes. A game that cannot be read is reported to visitor.error() and skipped.
+     *
+     * @return number of games read successfully
+     */
+    public int parse(byte[] buf, int offset, int length, PgnVisitor visitor) {
+        this.buf = buf;
+        this.pos = offset;
+        this.end = offset + length;
+        int games = 0;
+        while (skipWhitespace() < end) {
+            int start = pos;
+            try {
+                parseGame(visitor);
+                games++;
+            } catch (IllegalArgumentException e) {
+                visitor.error(e);
+                pos = Math.max(pos, start + 1);
+                skipToNextGame(inMoves);
+            }
+        }
+        this.buf = null;
+        return games;
+    }
+
+    public int parse(byte[] buf, PgnVisitor visitor) {
+        return parse(buf, 0, buf.length, visitor);
+    }
+
+    public int parse(String pgn, PgnVisitor visitor) {
+        return parse(pgn.getBytes(StandardCharsets.ISO_8859_1), visitor);
+    }
+
+    private void parseGame(PgnVisitor visitor) {
+        visitor.startGame();
+        fen = null;
+        inMoves = false;
+        while (skipWhitespace() < end && buf[pos] == '[') {
+            parseTag(visitor);
+        }
+        inMoves = true;
+        if (fen == null) {
+            FEN.load(board, Perft.START_FEN, 0, Perft.START_FEN.length());
+        } else {
+            FEN.load(board, fen, 0, fen.length());
+        }
+        visitor.startMoves(board);
+
+        int depth = 0;
+        int lastMove = PackedMove.NONE;
+        while (skipWhitespace() < end) {
+            int c = buf[pos];
+            if (c == '{') {
+                int close = indexOf('}', pos + 1);
+                if (close < 0) {
+                    throw error("Unterminated comment");
+                }
+                text.set(buf, pos + 1, close - pos - 1);
+                visitor.comment(text);
+                pos = close + 1;
+            } else if (c == ';') {
+                int close = indexOf('\n', pos + 1);
+                close = close < 0 ? end : close;
+                text.set(buf, pos + 1, close - pos - 1);
+                visitor.comment(text);
+                pos = close;
+            } else if (c == '$') {
+                pos++;
+                int nag = 0;
+                while (pos < end && isDigit(buf[pos])) {
+                    nag = nag * 10 + buf[pos++] - '0';
+                }
+                visitor.nag(nag);
+            } else if (c == '(') {
+                if (lastMove == PackedMove.NONE) {
+                    throw error("Variation without a move to replace");
+                }
+                if (depth == MAX_VARIATION_DEPTH) {
+                    throw error("Variations nested too deeply");
+                }
+                // A variation replaces the last move, so take it back and remember how to return to it
+                board.undoMove();
+                variationMoves[depth] = lastMove;
+                variationUndoSizes[depth] = board.getUndoSize();
+                depth++;
+                lastMove = PackedMove.NONE;
+                pos++;
+                visitor.startVariation();
+            } else if (c == ')') {
+                if (depth == 0) {
+                    throw error("Unmatched ')'");
+                }
+                depth--;
+                while (board.getUndoSize() > variationUndoSizes[depth]) {
+                    board.undoMove();
+                }
+                lastMove = variationMoves[depth];
+                board.makeMove(lastMove);
+                pos++;
+                visitor.endVariation();
+            } else if (c == '[' && depth == 0 && isLineStart(pos)) {
+                // Next game started without a result
+                visitor.endGame("*");
+                return;
+            } else {
+                int start = pos;
+                int tokenEnd = tokenEnd(pos);
+                if (tokenEnd == start) {
+                    throw error("Unexpected '" + (char) c + "'");
+                }
+                String result = result(start, tokenEnd);
+                if (result != null) {
+                    if (depth != 0) {
+                        throw error("Unterminated variation");
+                    }
+                    pos = tokenEnd;
+                    visitor.endGame(result);
+                    return;
+                }
+                // Move numbers, with or without a space before the move: "12.", "12...", "12.e4"
+                int i = start;
+                while (i < tokenEnd && isDigit(buf[i])) {
+                    i++;
+                }
+                if (i < tokenEnd && i > start && buf[i] == '.') {
+                    while (i < tokenEnd && buf[i] == '.') {
+                        i++;
+                    }
+                    start = i;
+                }
+                pos = tokenEnd;
+                if (start < tokenEnd) {
+                    lastMove = resolveSan(start, tokenEnd);
+                    visitor.move(board, lastMove);
+                    board.makeMove(lastMove);
+                }
+            }
+        }
+        if (depth != 0) {
+            throw error("Unterminated variation");
+        }
+        visitor.endGame("*");
+    }
+
+    private void parseTag(PgnVisitor visitor) {
+        int i = pos + 1;
+        while (i < end && isSpace(buf[i])) {
+            i++;
+        }
+        int nameStart = i;
+        while (i < end && !isSpace(buf[i]) && buf[i] != '"' && buf[i] != ']') {
+            i++;
+        }
+        String name = new String(buf, nameStart, i - nameStart, StandardCharsets.ISO_8859_1);
+        while (i < end && isSpace(buf[i])) {
+            i++;
+        }
+        if (i >= end || buf[i] != '"') {
+            throw error("Tag " + name + " has no value");
+        }
+        StringBuilder value = new StringBuilder();
+        for (i++; i < end && buf[i] != '"'; i++) {
+            if (buf[i] == '\\' && i + 1 < end) {
+                i++;
+            }
+            value.append((char) (buf[i] & 0xFF));
+        }
+        int close = indexOf(']', i);
+        if (i >= end || close < 0) {
+            throw error("Unterminated tag");
+        }
+        pos = close + 1;
+        String str = value.toString();
+        if (name.equals("FEN")) {
+            fen = str;
+        }
+        visitor.tag(name, str);
+    }
+
+    /**
+     * Finds the legal move matching the SAN in buf[start, end), e.g "Nbd7", "exd5", "e8=Q+", "O-O-O" or "0-0".
+     * Check and annotation suffixes are ignored.
+     */
+    private int resolveSan(int start, int end) {
+        while (end > start && isSuffix(buf[end - 1])) {
+            end--;
+        }
+        if (buf[start] == 'O' || buf[start] == '0') {
+            int castle = isQueensideCastle(start, end) ? PackedMove.QUEEN_CASTLE
+                    : isKingsideCastle(start, end) ? PackedMove.KING_CASTLE : -1;
+            if (castle < 0) {
+                throw error("Invalid move " + text(start, end));
+            }
+            int n = MoveGenerator.generateLegalMoves(board, moves);
+            for (int i = 0; i < n; i++) {
+                if (PackedMove.flags(moves[i]) == castle) {
+                    return moves[i];
+                }
+            }
+            throw error("Illegal move " + text(start, end));
+        }
+
+        int sanStart = start;
+        int type = PIECE_LETTERS.indexOf(buf[start]);
+        if (type > 0) {
+            start++;
+        } else {
+            type = Piece.PAWN;
+        }
+        int promotion = -1;
+        if (end - start >= 3 && PIECE_LETTERS.indexOf(buf[end - 1]) > 0) {
+            promotion = PIECE_LETTERS.indexOf(buf[end - 1]);
+            end -= buf[end - 2] == '=' ? 2 : 1;
+        }
+        if (end - start < 2 || !isFile(buf[end - 2]) || !isRank(buf[end - 1])) {
+            throw error("Invalid move " + text(sanStart, end));
+        }
+        int to = Bitboard.square(buf[end - 2] - 'a', '8' - buf[end - 1]);
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int i = start; i < end - 2; i++) {
+            if (isFile(buf[i])) {
+                fromFile = buf[i] - 'a';
+            } else if (isRank(buf[i])) {
+                fromRank = '8' - buf[i];
+            } else if (buf[i] != 'x' && buf[i] != ':' && buf[i] != '-') {
+                throw error("Invalid move " + text(sanStart, end));
+            }
+        }
+
+        int us = board.whiteToMove ? Piece.WHITE : Piece.BLACK;
+        long toBit = Bitboard.bit(to);
+        if ((board.getOccupancy(us) & toBit) != 0) {
+            throw error("Illegal move " + text(sanStart, end));
+        }
+        int flags = (board.occupied & toBit) != 0 ? PackedMove.CAPTURE : PackedMove.QUIET;
+        long candidates;
+        if (type == Piece.PAWN) {
+            candidates = pawnOrigins(us, to, fromFile, flags);
+            if (fromFile >= 0 && fromFile != Bitboard.fileOf(to) && to == board.enPassantSquare) {
+                flags = PackedMove.EN_PASSANT;
+            } else if (candidates != 0 && Math.abs(Bitboard.first(candidates) - to) == 16) {
+                flags = PackedMove.DOUBLE_PAWN_PUSH;
+            }
+            boolean lastRank = Bitboard.rankOf(to) == (us == Piece.WHITE ? 0 : 7);
+            if (lastRank != promotion >= Piece.KNIGHT || promotion == Piece.KING) {
+                throw error("Illegal move " + text(sanStart, end));
+            }
+        } else {
+            if (promotion >= 0) {
+                throw error("Invalid move " + text(sanStart, end));
+            }
+            candidates = MoveGenerator.attacks(type, to, board.occupied) & board.getBitboard(us, type);
+        }
+        if (fromFile >= 0) {
+            candidates &= Bitboard.FILE_A << fromFile;
+        }
+        if (fromRank >= 0) {
+            candidates &= Bitboard.RANK_8 << (8 * fromRank);
+        }
+
+        // Only the few pieces that could make the move are checked for legality, rather than generating every move
+        int match = PackedMove.NONE;
+        for (; candidates != 0; candidates &= candidates - 1) {
+            int from = Long.numberOfTrailingZeros(candidates);
+            int move = promotion >= 0
+                    ? PackedMove.encodePromotion(from, to, promotion, flags == PackedMove.CAPTURE)
+                    : PackedMove.encode(from, to, flags);
+            if (!MoveGenerator.isLegal(board, move)) {
+                continue;
+            }
+            if (match != PackedMove.NONE) {
+                throw error("Ambiguous move " + text(sanStart, end));
+            }
+            match = move;
+        }
+        if (match == PackedMove.NONE) {
+            throw error("Illegal move " + text(sanStart, end));
+        }
+        return match;
+    }
+
+    /**
+     * @return the square of the pawn that could move to a square, if there is one: a capture from the given file, or
+     * else a single or double push
+     */
+    private long pawnOrigins(int us, int to, int fromFile, int flags) {
+        int forward = us == Piece.WHITE ? -8 : 8;
+        long pawns = board.getBitboard(us, Piece.PAWN);
+        int behind = to - forward;
+        if (behind < 0 || behind >= 64) {
+            return 0L;
+        }
+        if (fromFile >= 0 && fromFile != Bitboard.fileOf(to)) {
+            if (Math.abs(fromFile - Bitboard.fileOf(to)) != 1
+                    || (flags != PackedMove.CAPTURE && to != board.enPassantSquare)) {
+                return 0L;
+            }
+            return pawns & Bitboard.bit(Bitboard.square(fromFile, Bitboard.rankOf(behind)));
+        }
+        if (flags == PackedMove.CAPTURE) {
+            return 0L;
+        }
+        if ((pawns & Bitboard.bit(behind)) != 0) {
+            return Bitboard.bit(behind);
+        }
+        int doubleRank = us == Piece.WHITE ? 4 : 3;
+        if (Bitboard.rankOf(to) == doubleRank && (board.occupied & Bitboard.bit(behind)) == 0) {
+            return pawns & Bitboard.bit(behind - forward);
+        }
+        return 0L;
+    }
+
+    private boolean isKingsideCastle(int start, int end) {
+        return end - start == 3 && buf[start + 1] == '-' && buf[start + 2] == buf[start];
+    }
+
+    private boolean isQueensideCastle(int start, int end) {
+        return end - start == 5 && buf[start + 1] == '-' && buf[start + 2] == buf[start] && buf[start + 3] == '-'
+                && buf[start + 4] == buf[start];
+    }
+
+    /**
+     * @return the result if buf[start, end) is one, otherwise null
+     */
+    private String result(int start, int end) {
+        int length = end - start;
+        if (length == 1 && buf[start] == '*') {
+            return "*";
+        }
+        if (length == 3 && buf[start + 1] == '-') {
+            if (buf[start] == '1' && buf[start + 2] == '0') {
+                return "1-0";
+            }
+            if (buf[start] == '0' && buf[start + 2] == '1') {
+                return "0-1";
+            }
+        }
+        if (length == 7 && equals(start, "1/2-1/2")) {
+            return "1/2-1/2";
+        }
+        return null;
+    }
+
+    /**
+     * Moves past the rest of a game that failed to parse, to the first tag of the next one
+     *
+     * @param inMoves whether the failed game's tags had all been read, otherwise tags up to its first move are skipped
+     */
+    private void skipToNextGame(boolean inMoves) {
+        while (pos < end) {
+            int lineStart = pos;
+            int lineEnd = indexOf('\n', pos);
+            lineEnd = lineEnd < 0 ? end : lineEnd;
+            int i = lineStart;
+            while (i < lineEnd && isSpace(buf[i])) {
+                i++;
+            }
+            if (i < lineEnd) {
+                if (buf[i] == '[' && isLineStart(lineStart)) {
+                    if (inMoves) {
+                        pos = lineStart;
+                        return;
+                    }
+                } else {
+                    inMoves = true;
+                }
+            }
+            pos = Math.min(lineEnd + 1, end);
+        }
+    }
+
+    private int skipWhitespace() {
+        while (pos < end) {
+            int c = buf[pos];
+            if (isSpace(c)) {
+                pos++;
+            } else if (c == '%' && isLineStart(pos)) {
+                // Escape line, ignored by definition
+                int lineEnd = indexOf('\n', pos);
+                pos = lineEnd < 0 ? end : lineEnd;
+            } else {
+                break;
+            }
+        }
+        return pos;
+    }
+
+    private int tokenEnd(int i) {
+        while (i < end) {
+            int c = buf[i];
+            if (isSpace(c) || c == '{' || c == '}' || c == '(' || c == ')' || c == ';' || c == '$' || c == '[') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private int indexOf(char c, int from) {
+        for (int i = from; i < end; i++) {
+            if (buf[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isLineStart(int i) {
+        return i == 0 || buf[i - 1] == '\n' || buf[i - 1] == '\r';
+    }
+
+    private boolean equals(int start, String str) {
+        for (int i = 0; i < str.length(); i++) {
+            if (buf[start + i] != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String text(int start, int end) {
+        return new String(buf, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid PGN at byte " + pos + ": " + message);
+    }
+
+    private static boolean isSpace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isFile(int c) {
+        return c >= 'a' && c <= 'h';
+    }
+
+    private static boolean isRank(int c) {
+        return c >= '1' && c <= '8';
+    }
+
+    private static boolean isSuffix(int c) {
+        return c == '+' || c == '#' || c == '!' || c == '?';
+    }
+}
@@ -0,0 +1,67 @@
+package chess.pgn;
+
+import chess.board.Board;
+
+/**
+ * Receives the parts of each game as PgnParser reads them. Every method does nothing by default, so a visitor only
+ * overrides what it needs.
+ * <p>
+ * Text passed as a CharSequence is a view into the parser's input and is only valid during the call.
+ */
+public interface PgnVisitor {
+
+    default void startGame() {
+    }
+
+    default void tag(String name, String value) {
+    }
+
+    /**
+     * Called once the tags have been read, before the first move
+     *
+     * @param board starting position of the game, from the FEN tag or the standard start
+     */
+    default void startMoves(Board board) {
+    }
+
+    /**
+     * Called for each move, in the main line or a variation, before it is made
+     *
+     * @param board position the move is made from
+     * @param move  packed move, see PackedMove
+     */
+    default void move(Board board, int move) {
+    }
+
+    /**
+     * Called at the start of a variation. Its moves are alternatives to the last move passed to move().
+     */
+    default void startVariation() {
+    }
+
+    default void endVariation() {
+    }
+
+    default void comment(CharSequence comment) {
+    }
+
+    /**
+     * @param nag numeric annotation glyph, e.g 1 for "!"
+     */
+    default void nag(int nag) {
+    }
+
+    /**
+     * @param result "1-0", "0-1", "1/2-1/2" or "*"
+     */
+    default void endGame(String result) {
+    }
+
+    /**
+     * Called instead of endGame when a game cannot be read, e.g because of an illegal move. The parser carries on from
+     * the next game if this returns normally. By default the error is rethrown.
+     */
+    default void error(IllegalArgumentException e) {
+        throw e;
+    }
+}
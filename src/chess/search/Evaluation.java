@@ -0,0 +1,27 @@
+package chess.search;
+
+import chess.board.Board;
+import chess.board.PieceSquareTables;
+
+/**
+ * Static evaluation of a position in centipawns, from the point of view of the side to move
+ */
+public final class Evaluation {
+
+    private Evaluation() {
+    }
+
+    /**
+     * Tapered material and piece-square evaluation: the board's middlegame and endgame scores, which it keeps up to
+     * date as pieces move, blended by how much material is left. Nothing is scanned, so this is cheap enough for every
+     * leaf and quiescence node.
+     *
+     * @return positive if the side to move is ahead
+     */
+    public static int evaluate(Board board) {
+        int phase = Math.min(board.getPhase(), PieceSquareTables.MAX_PHASE);
+        int score = (board.getMiddlegameScore() * phase
+                + board.getEndgameScore() * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+        return board.whiteToMove ? score : -score;
+    }
+}
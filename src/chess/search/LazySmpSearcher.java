@@ -0,0 +1,139 @@
+package chess.search;
+
+import chess.board.Board;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Searches with several threads using Lazy SMP: every thread runs its own Searcher on its own copy of the board from
+ * the same root, and they cooperate only through a shared TranspositionTable. Results one thread stores cut off or
+ * reorder the others' searches, and helpers are varied in start depth and move ordering so they fill the table ahead
+ * of the main search instead of all searching the same nodes.
+ * <p>
+ * The calling thread runs the main search, which alone applies the limits and reports iterations to the listener.
+ * Helpers are stopped as soon as it finishes, and the answer is the deepest completed iteration of any thread, the
+ * higher scoring on a tie. With one thread this is just a Searcher.
+ */
+public final class LazySmpSearcher {
+
+    private final TranspositionTable table;
+    private final Searcher main;
+    private Searcher[] helpers = new Searcher[0];
+
+    /**
+     * @param threads number of searching threads, including the calling one
+     * @param table   table shared by the threads
+     */
+    public LazySmpSearcher(int threads, TranspositionTable table) {
+        this.table = table;
+        this.main = new Searcher(table);
+        setThreads(threads);
+    }
+
+    public LazySmpSearcher(int threads) {
+        this(threads, new TranspositionTable());
+    }
+
+    /**
+     * Changes the number of threads used by later searches. Must not be called while a search is running.
+     */
+    public synchronized void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid thread count: " + threads);
+        }
+        Searcher[] resized = new Searcher[threads - 1];
+        for (int i = 0; i < resized.length; i++) {
+            resized[i] = i < helpers.length ? helpers[i] : new Searcher(table);
+        }
+        helpers = resized;
+    }
+
+    public synchronized int getThreads() {
+        return helpers.length + 1;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Searches until a limit is reached or stop is called
+     *
+     * @param position position to search, which is not changed
+     * @param listener told about each iteration the main search completes
+     * @return the best result of all the threads, with their nodes added up
+     */
+    public SearchResult search(Board position, SearchLimits limits, SearchListener listener) {
+        long start = System.nanoTime();
+        Searcher[] helpers;
+        synchronized (this) {
+            helpers = this.helpers;
+        }
+        table.newSearch();
+        main.resetStop();
+        SearchResult[] results = new SearchResult[helpers.length + 1];
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        SearchLimits helperLimits = SearchLimits.depth(limits.getDepth());
+        Thread[] threads = new Thread[helpers.length];
+        for (int i = 0; i < helpers.length; i++) {
+            Searcher helper = helpers[i];
+            int index = i + 1;
+            helper.resetStop();
+            threads[i] = new Thread(() -> {
+                try {
+                    results[index] = helper.run(position, helperLimits, SearchListener.NONE, index);
+                } catch (RuntimeException | Error e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "search-helper-" + index);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        try {
+            results[0] = main.run(position, limits, listener, 0);
+        } finally {
+            for (Searcher helper : helpers) {
+                helper.stop();
+            }
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+
+        SearchResult best = results[0];
+        long nodes = 0;
+        for (SearchResult result : results) {
+            if (result == null) {
+                continue;
+            }
+            nodes += result.getNodes();
+            if (result.getDepth() > best.getDepth()
+                    || (result.getDepth() == best.getDepth() && result.getScore() > best.getScore())) {
+                best = result;
+            }
+        }
+        return new SearchResult(best.getDepth(), best.getScore(), best.getPv(), nodes, System.nanoTime() - start);
+    }
+
+    public SearchResult search(Board position, SearchLimits limits) {
+        return search(position, limits, SearchListener.NONE);
+    }
+
+    /**
+     * Asks a running search to stop as soon as it can. May be called from any thread.
+     */
+    public void stop() {
+        main.stop();
+    }
+}
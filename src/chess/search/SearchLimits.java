@@ -0,0 +1,66 @@
+package chess.search;
+
+/**
+ * When a search should stop: after a depth, a number of nodes or an amount of time, whichever comes first. Limits are
+ * immutable, e.g {@code SearchLimits.millis(500).withDepth(12)}.
+ */
+public final class SearchLimits {
+
+    public static final SearchLimits INFINITE = new SearchLimits(Searcher.MAX_DEPTH, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final int depth;
+    private final long nodes;
+    private final long millis;
+
+    private SearchLimits(int depth, long nodes, long millis) {
+        if (depth < 1 || depth > Searcher.MAX_DEPTH || nodes < 1 || millis < 1) {
+            throw new IllegalArgumentException("Invalid search limits: depth " + depth + ", nodes " + nodes
+                    + ", millis " + millis);
+        }
+        this.depth = depth;
+        this.nodes = nodes;
+        this.millis = millis;
+    }
+
+    public static SearchLimits depth(int depth) {
+        return INFINITE.withDepth(depth);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return INFINITE.withNodes(nodes);
+    }
+
+    public static SearchLimits millis(long millis) {
+        return INFINITE.withMillis(millis);
+    }
+
+    /**
+     * @param depth deepest iteration to search, from 1 to Searcher.MAX_DEPTH
+     */
+    public SearchLimits withDepth(int depth) {
+        return new SearchLimits(depth, nodes, millis);
+    }
+
+    public SearchLimits withNodes(long nodes) {
+        return new SearchLimits(depth, nodes, millis);
+    }
+
+    public SearchLimits withMillis(long millis) {
+        return new SearchLimits(depth, nodes, millis);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return time allowed in milliseconds, or Long.MAX_VALUE for no limit
+     */
+    public long getMillis() {
+        return millis;
+    }
+}
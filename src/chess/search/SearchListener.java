@@ -0,0 +1,18 @@
+package chess.search;
+
+/**
+ * Receives progress from a running search, e.g to show the current best line. Called on the searching thread, so an
+ * implementation should return quickly.
+ */
+public interface SearchListener {
+
+    SearchListener NONE = result -> {
+    };
+
+    /**
+     * Called each time an iteration of iterative deepening completes
+     *
+     * @param result best move, score and principal variation found at that depth
+     */
+    void iterationComplete(SearchResult result);
+}
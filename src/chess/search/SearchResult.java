@@ -0,0 +1,89 @@
+package chess.search;
+
+import chess.PackedMove;
+
+/**
+ * Outcome of a search, or of one of its iterations: the principal variation, its score and the work done to find it
+ */
+public final class SearchResult {
+
+    private final int depth;
+    private final int score;
+    private final int[] pv;
+    private final long nodes;
+    private final long nanos;
+
+    /**
+     * @param score centipawns for the side to move, see Searcher.MATE for mate scores
+     * @param pv    packed moves of the principal variation, see PackedMove
+     */
+    public SearchResult(int depth, int score, int[] pv, long nodes, long nanos) {
+        this.depth = depth;
+        this.score = score;
+        this.pv = pv.clone();
+        this.nodes = nodes;
+        this.nanos = nanos;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return first move of the principal variation, or PackedMove.NONE if the position has no legal moves
+     */
+    public int getBestMove() {
+        return pv.length == 0 ? PackedMove.NONE : pv[0];
+    }
+
+    public int[] getPv() {
+        return pv.clone();
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public boolean isMate() {
+        return Math.abs(score) >= Searcher.MATE - Searcher.MAX_PLY;
+    }
+
+    /**
+     * @return moves until mate, negative if the side to move is being mated, or 0 if the score is not a mate
+     */
+    public int getMateIn() {
+        if (!isMate()) {
+            return 0;
+        }
+        int plies = Searcher.MATE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2;
+    }
+
+    /**
+     * @return summary in the style of UCI info output, e.g "depth 6 score cp 35 nodes 81234 time 52 ms pv e2e4 e7e5"
+     */
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder();
+        str.append("depth ").append(depth).append(" score ");
+        if (isMate()) {
+            str.append("mate ").append(getMateIn());
+        } else {
+            str.append("cp ").append(score);
+        }
+        str.append(" nodes ").append(nodes).append(" time ").append(nanos / 1_000_000).append(" ms pv");
+        for (int move : pv) {
+            str.append(' ');
+            PackedMove.appendUci(str, move);
+        }
+        return str.toString();
+    }
+}
@@ -0,0 +1,521 @@
+package chess.search;
+
+import chess.MoveGenerator;
+import chess.PackedMove;
+import chess.board.Board;
+import chess.board.BoardEventListener;
+import chess.board.pieces.Piece;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Finds the best move in a position with a negamax alpha-beta search.
+ * <p>
+ * The search deepens one ply at a time, so a result is always ready when a limit stops it, and each iteration starts
+ * from the principal variation of the one before. Later iterations search a narrow aspiration window around the
+ * previous score and only widen it when the score falls outside. Within the tree the first move of a node is searched
+ * with the full window and the rest with a null window (principal variation search), re-searching only the moves that
+ * turn out better. Moves are tried in the order PV move, transposition table move, captures by most valuable victim
+ * and least valuable attacker, killer moves, then quiet moves by history. Checks are extended by a ply, and captures
+ * are resolved by a quiescence search at the leaves.
+ * <p>
+ * Every node's result is stored in a TranspositionTable, and null-window nodes are cut off by a deep enough stored
+ * bound, so positions reached by transposition or in earlier iterations are not searched again.
+ * <p>
+ * A searcher works on its own copy of the board and reuses its buffers between searches, so it allocates little. It
+ * is not thread safe, except for stop, which may be called from any thread.
+ */
+public final class Searcher {
+
+    public static final int MAX_DEPTH = 64;
+    /**
+     * Deepest ply the search reaches, including check extensions and quiescence
+     */
+    public static final int MAX_PLY = 128;
+    /**
+     * Score of being mated now. Mate in n plies scores MATE - n.
+     */
+    public static final int MATE = 32000;
+    static final int INFINITY = MATE + 1;
+
+    /**
+     * Half width of the first aspiration window in centipawns
+     */
+    static final int ASPIRATION_WINDOW = 25;
+    static final int ASPIRATION_DEPTH = 4;
+    /**
+     * The clock is read every this many nodes plus one
+     */
+    private static final int TIME_CHECK_MASK = 1023;
+
+    private static final int PV_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 28;
+    private static final int KILLER_SCORE = 1 << 27;
+    private static final int HISTORY_LIMIT = 1 << 26;
+    /**
+     * Helpers' history starts with random counts below this, enough to reorder quiet moves that have no history yet
+     */
+    private static final int HELPER_HISTORY_NOISE = 32;
+
+    private final int[][] moves = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+    private final int[][] moveScores = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private final int[][] killers = new int[MAX_PLY][2];
+    /**
+     * Cutoffs by each quiet move, indexed [colour][from * 64 + to]
+     */
+    private final int[][] history = new int[2][64 * 64];
+    /**
+     * Hashes of the positions before the root, then of each ply of the current line, for finding repetitions
+     */
+    private long[] hashes = new long[MAX_PLY + 1];
+    private final TranspositionTable table;
+    private int rootIndex;
+    private int[] previousPv = new int[0];
+    private boolean followPv;
+
+    private Board board;
+    private long maxNodes;
+    private boolean timed;
+    private long deadline;
+    private long startTime;
+    private long nodes;
+    private boolean stopped;
+    private volatile boolean stopRequested;
+
+    /**
+     * @param table cache of results, which may be shared with other searchers
+     */
+    public Searcher(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Creates a searcher with a table of its own of TranspositionTable.DEFAULT_MEGABYTES
+     */
+    public Searcher() {
+        this(new TranspositionTable());
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Searches until a limit is reached or stop is called
+     *
+     * @param position position to search, which is not changed
+     * @param listener told about each completed iteration
+     * @return the result of the deepest completed iteration
+     */
+    public SearchResult search(Board position, SearchLimits limits, SearchListener listener) {
+        stopRequested = false;
+        table.newSearch();
+        return run(position, limits, listener, 0);
+    }
+
+    public SearchResult search(Board position, SearchLimits limits) {
+        return search(position, limits, SearchListener.NONE);
+    }
+
+    /**
+     * Runs a search without resetting stop or starting a new table age, for a LazySmpSearcher to manage
+     *
+     * @param helper 0 for the main search, or the number of a helper thread. Helpers with odd numbers start a ply
+     *               deeper, and every helper starts with its own random history, so that helpers sharing a table
+     *               spread out over different parts of the tree rather than repeating each other's work.
+     */
+    SearchResult run(Board position, SearchLimits limits, SearchListener listener, int helper) {
+        startTime = System.nanoTime();
+        board = new Board(position);
+        board.setListener(BoardEventListener.NONE);
+        maxNodes = limits.getNodes();
+        timed = limits.getMillis() < Long.MAX_VALUE / 1_000_000;
+        deadline = timed ? startTime + limits.getMillis() * 1_000_000 : 0;
+        nodes = 0;
+        stopped = false;
+        loadHistory(position);
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, PackedMove.NONE);
+        }
+        Arrays.fill(history[0], 0);
+        Arrays.fill(history[1], 0);
+        if (helper > 0) {
+            SplittableRandom random = new SplittableRandom(helper);
+            for (int[] counts : history) {
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] = random.nextInt(HELPER_HISTORY_NOISE);
+                }
+            }
+        }
+        previousPv = new int[0];
+
+        SearchResult result = null;
+        int score = 0;
+        for (int depth = 1 + helper % 2; depth <= limits.getDepth(); depth++) {
+            score = searchRoot(depth, score);
+            if (stopped) {
+                break;
+            }
+            previousPv = Arrays.copyOf(pv[0], pvLength[0]);
+            result = new SearchResult(depth, score, previousPv, nodes, System.nanoTime() - startTime);
+            listener.iterationComplete(result);
+            if (pvLength[0] == 0 || Math.abs(score) >= MATE - depth) {
+                // No legal moves, or a forced mate has been found that deeper searches cannot improve on
+                break;
+            }
+            // An iteration takes longer than all the ones before it, so don't start one that can't finish
+            if (timed && System.nanoTime() - startTime > (deadline - startTime) / 2) {
+                break;
+            }
+        }
+        if (result == null) {
+            // Stopped during the first iteration: fall back on the best move found so far, or any legal move
+            int[] fallback = pvLength[0] > 0 ? Arrays.copyOf(pv[0], 1) : Arrays.copyOf(moves[0],
+                    Math.min(1, MoveGenerator.generateLegalMoves(board, moves[0])));
+            result = new SearchResult(0, 0, fallback, nodes, System.nanoTime() - startTime);
+        }
+        board = null;
+        return result;
+    }
+
+    void resetStop() {
+        stopRequested = false;
+    }
+
+    /**
+     * Asks a running search to stop as soon as it can. The search still returns its best result so far.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * @return nodes visited by the current or last search
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Copies the hashes of the positions since the last capture or pawn move, as only those can repeat
+     */
+    private void loadHistory(Board position) {
+        int count = Math.min(position.getUndoSize(), position.halfmoveClock);
+        if (hashes.length < count + MAX_PLY + 1) {
+            hashes = new long[count + MAX_PLY + 1];
+        }
+        for (int i = 0; i < count; i++) {
+            hashes[i] = position.getHistoryHash(position.getUndoSize() - count + i);
+        }
+        rootIndex = count;
+    }
+
+    /**
+     * Searches the root in a window around the last iteration's score, widening it until the score falls inside
+     */
+    private int searchRoot(int depth, int previous) {
+        int delta = ASPIRATION_WINDOW;
+        int alpha = -INFINITY;
+        int beta = INFINITY;
+        if (depth >= ASPIRATION_DEPTH && Math.abs(previous) < MATE - MAX_PLY) {
+            alpha = previous - delta;
+            beta = previous + delta;
+        }
+        while (true) {
+            followPv = true;
+            int score = negamax(depth, alpha, beta, 0);
+            if (stopped) {
+                return score;
+            }
+            if (score <= alpha) {
+                delta *= 4;
+                alpha = Math.max(score - delta, -INFINITY);
+            } else if (score >= beta) {
+                delta *= 4;
+                beta = Math.min(score + delta, INFINITY);
+            } else {
+                return score;
+            }
+        }
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        hashes[rootIndex + ply] = board.getHash();
+        if (ply > 0 && (board.halfmoveClock >= 100 || isRepetition(ply))) {
+            return 0;
+        }
+        int us = board.whiteToMove ? Piece.WHITE : Piece.BLACK;
+        boolean inCheck = board.isInCheck(us);
+        if (inCheck && ply < MAX_PLY / 2) {
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiesce(alpha, beta, ply);
+        }
+        if (countNode() || ply >= MAX_PLY - 1) {
+            return stopped ? 0 : Evaluation.evaluate(board);
+        }
+
+        long hash = board.getHash();
+        long entry = table.probe(hash);
+        int tableMove = TranspositionTable.move(entry);
+        // Cut off from the table only in null-window nodes, so the principal variation is always searched out
+        if (entry != 0 && ply > 0 && beta - alpha == 1 && TranspositionTable.depth(entry) >= depth) {
+            int score = scoreFromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && score >= beta)
+                    || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                return score;
+            }
+        }
+
+        int[] plyMoves = moves[ply];
+        int count = MoveGenerator.generateLegalMoves(board, plyMoves);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        int pvMove = followPv && ply < previousPv.length ? previousPv[ply] : PackedMove.NONE;
+        scoreMoves(ply, count, pvMove, tableMove);
+        if (moves[ply][0] != pvMove) {
+            followPv = false;
+        }
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = PackedMove.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = pickMove(ply, i, count);
+            board.makeMove(move);
+            int score;
+            if (i == 0) {
+                score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            } else {
+                score = -negamax(depth - 1, -alpha - 1, -alpha, ply + 1);
+                if (score > alpha && score < beta) {
+                    score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+                }
+            }
+            board.undoMove();
+            followPv = false;
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        if (!PackedMove.isCapture(move) && !PackedMove.isPromotion(move)) {
+                            addKiller(ply, move);
+                            addHistory(us, move, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(hash, bestMove, scoreToTable(best, ply), Math.min(depth, 255), bound);
+        return best;
+    }
+
+    /**
+     * Mate scores are stored as distance from the node rather than from the root, so they stay right when the
+     * position is reached at another ply
+     */
+    static int scoreToTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    static int scoreFromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Searches captures and promotions until the position is quiet, so leaves are not scored in the middle of an
+     * exchange. The side to move may stand pat on the static evaluation, except in check where every evasion is tried.
+     */
+    private int quiesce(int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        followPv = false;
+        if (countNode() || ply >= MAX_PLY - 1) {
+            return stopped ? 0 : Evaluation.evaluate(board);
+        }
+        int us = board.whiteToMove ? Piece.WHITE : Piece.BLACK;
+        boolean inCheck = board.isInCheck(us);
+        int best = -INFINITY;
+        if (!inCheck) {
+            best = Evaluation.evaluate(board);
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+        }
+
+        int[] plyMoves = moves[ply];
+        int count = MoveGenerator.generateLegalMoves(board, plyMoves);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        if (!inCheck) {
+            int tactical = 0;
+            for (int i = 0; i < count; i++) {
+                if (PackedMove.isCapture(plyMoves[i]) || PackedMove.isPromotion(plyMoves[i])) {
+                    plyMoves[tactical++] = plyMoves[i];
+                }
+            }
+            count = tactical;
+        }
+        scoreMoves(ply, count, PackedMove.NONE, PackedMove.NONE);
+
+        for (int i = 0; i < count; i++) {
+            int move = pickMove(ply, i, count);
+            board.makeMove(move);
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            board.undoMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Counts a node and checks the limits
+     *
+     * @return true if the search has to stop
+     */
+    private boolean countNode() {
+        nodes++;
+        if (nodes >= maxNodes || stopRequested
+                || (timed && (nodes & TIME_CHECK_MASK) == 0 && System.nanoTime() - deadline >= 0)) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    /**
+     * @return true if the position at this ply already occurred since the last capture or pawn move, with the same
+     * side to move. A single repetition is scored as a draw, as repeating is never better than it was the first time.
+     */
+    private boolean isRepetition(int ply) {
+        long hash = hashes[rootIndex + ply];
+        int oldest = Math.max(0, rootIndex + ply - board.halfmoveClock);
+        for (int i = rootIndex + ply - 2; i >= oldest; i -= 2) {
+            if (hashes[i] == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void scoreMoves(int ply, int count, int pvMove, int tableMove) {
+        int[] plyMoves = moves[ply];
+        int[] scores = moveScores[ply];
+        int[] plyHistory = history[board.whiteToMove ? Piece.WHITE : Piece.BLACK];
+        for (int i = 0; i < count; i++) {
+            int move = plyMoves[i];
+            int score;
+            if (move == pvMove) {
+                score = PV_SCORE;
+            } else if (move == tableMove) {
+                score = PV_SCORE - 1;
+            } else if (PackedMove.isCapture(move)) {
+                int victim = PackedMove.isEnPassant(move) ? Piece.PAWN
+                        : board.getPiece(PackedMove.to(move)).getType();
+                int attacker = board.getPiece(PackedMove.from(move)).getType();
+                score = CAPTURE_SCORE + victim * 8 - attacker + (PackedMove.isPromotion(move) ? 64 : 0);
+            } else if (PackedMove.isPromotion(move)) {
+                score = CAPTURE_SCORE + PackedMove.promotionType(move) - 8;
+            } else if (move == killers[ply][0]) {
+                score = KILLER_SCORE + 1;
+            } else if (move == killers[ply][1]) {
+                score = KILLER_SCORE;
+            } else {
+                score = plyHistory[move & 0xFFF];
+            }
+            scores[i] = score;
+        }
+        // Put the best first, so the PV check in negamax can look at it before any picking
+        pickMove(ply, 0, count);
+    }
+
+    /**
+     * Swaps the best scored of the remaining moves into place, a selection sort step done only as far as moves are
+     * actually searched
+     */
+    private int pickMove(int ply, int index, int count) {
+        int[] plyMoves = moves[ply];
+        int[] scores = moveScores[ply];
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = plyMoves[best];
+        int score = scores[best];
+        plyMoves[best] = plyMoves[index];
+        scores[best] = scores[index];
+        plyMoves[index] = move;
+        scores[index] = score;
+        return move;
+    }
+
+    private void updatePv(int ply, int move) {
+        int[] line = pv[ply];
+        line[ply] = move;
+        int length = pvLength[ply + 1];
+        System.arraycopy(pv[ply + 1], ply + 1, line, ply + 1, length - ply - 1);
+        pvLength[ply] = Math.max(length, ply + 1);
+    }
+
+    private void addKiller(int ply, int move) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+    }
+
+    private void addHistory(int colour, int move, int depth) {
+        int[] counts = history[colour];
+        // from and to are the low 12 bits of a packed move
+        int index = move & 0xFFF;
+        counts[index] += depth * depth;
+        if (counts[index] >= HISTORY_LIMIT) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] /= 2;
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package chess.search;
+
+import chess.PackedMove;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed size cache of search results keyed by position hash, shared between searching threads without locking.
+ * <p>
+ * Each entry is two longs: the data packed as below, and the hash XORed with the data. As in PerftHashTable, threads
+ * read and write with plain array accesses, so a racing write can pair the key of one entry with the data of another.
+ * Such a pair no longer XORs back to the hash being probed and is simply a miss, so a torn entry is never used.
+ * <pre>
+ *  bits 0-15   best move, see PackedMove
+ *  bits 16-31  score, as a signed 16-bit value
+ *  bits 32-39  depth searched
+ *  bits 40-41  bound, one of LOWER, UPPER or EXACT (0 for an empty slot)
+ *  bits 42-49  age, the search that stored the entry
+ * </pre>
+ * Entries are grouped in buckets of four, 64 bytes, that a hash can use any of. A new entry replaces the same
+ * position if it is found in the bucket, and otherwise the entry that is shallowest after counting each search of
+ * age as 8 plies less depth, so deep results survive the current search but stale ones make way for new ones.
+ */
+public final class TranspositionTable {
+
+    public static final int DEFAULT_MEGABYTES = 16;
+
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+    public static final int EXACT = 3;
+
+    static final int BUCKET_ENTRIES = 4;
+    private static final int ENTRY_BYTES = 16;
+    private static final int AGE_SHIFT = 42;
+    private static final int AGE_MASK = 0xFF;
+
+    private final long[] entries;
+    private final int bucketMask;
+    private final int megabytes;
+    private volatile int age;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder overwrites = new LongAdder();
+
+    /**
+     * @param megabytes memory to use, rounded down to a power of two number of buckets
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Invalid transposition table size: " + megabytes + " MB");
+        }
+        long buckets = (long) megabytes * 1024 * 1024 / (BUCKET_ENTRIES * ENTRY_BYTES);
+        int size = Integer.highestOneBit((int) Math.min(buckets, 1 << 26));
+        this.entries = new long[size * BUCKET_ENTRIES * 2];
+        this.bucketMask = size - 1;
+        this.megabytes = megabytes;
+    }
+
+    public TranspositionTable() {
+        this(DEFAULT_MEGABYTES);
+    }
+
+    /**
+     * @return the entry's data, to be read with move, score, depth and bound, or 0 if the position is not stored
+     */
+    public long probe(long hash) {
+        probes.increment();
+        int index = bucket(hash);
+        for (int i = index; i < index + 2 * BUCKET_ENTRIES; i += 2) {
+            long data = entries[i + 1];
+            if ((entries[i] ^ data) == hash && data != 0) {
+                hits.increment();
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Stores a search result, replacing the position's old entry or the least useful one in its bucket
+     *
+     * @param move  best move found, or PackedMove.NONE to keep the one already stored for the position
+     * @param score score from the search, between Short.MIN_VALUE and Short.MAX_VALUE
+     * @param depth depth searched, from 0 to 255
+     * @param bound LOWER if the score is at least the true score, UPPER if at most, EXACT if equal
+     */
+    public void store(long hash, int move, int score, int depth, int bound) {
+        stores.increment();
+        int currentAge = age;
+        int index = bucket(hash);
+        int victim = index;
+        int victimWorth = Integer.MAX_VALUE;
+        for (int i = index; i < index + 2 * BUCKET_ENTRIES; i += 2) {
+            long data = entries[i + 1];
+            if (data == 0) {
+                if (victimWorth > Integer.MIN_VALUE) {
+                    victim = i;
+                    victimWorth = Integer.MIN_VALUE;
+                }
+                continue;
+            }
+            if ((entries[i] ^ data) == hash) {
+                // Keep a deeper result of this search unless the new one is exact
+                if (bound != EXACT && depth(data) > depth + 2 && age(data) == currentAge) {
+                    return;
+                }
+                if (move == PackedMove.NONE) {
+                    move = move(data);
+                }
+                victim = i;
+                victimWorth = Integer.MIN_VALUE;
+                break;
+            }
+            int worth = depth(data) - 8 * ((currentAge - age(data)) & AGE_MASK);
+            if (worth < victimWorth) {
+                victim = i;
+                victimWorth = worth;
+            }
+        }
+        long old = entries[victim + 1];
+        if (old != 0 && (entries[victim] ^ old) != hash) {
+            overwrites.increment();
+        }
+        long data = (move & 0xFFFFL)
+                | ((score & 0xFFFFL) << 16)
+                | ((long) (depth & 0xFF) << 32)
+                | ((long) bound << 40)
+                | ((long) currentAge << AGE_SHIFT);
+        entries[victim] = hash ^ data;
+        entries[victim + 1] = data;
+    }
+
+    private int bucket(long hash) {
+        return ((int) hash & bucketMask) * BUCKET_ENTRIES * 2;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 40) & 3;
+    }
+
+    static int age(long data) {
+        return (int) (data >>> AGE_SHIFT) & AGE_MASK;
+    }
+
+    /**
+     * Marks the start of a new search, so entries from earlier ones are replaced first
+     */
+    public void newSearch() {
+        age = (age + 1) & AGE_MASK;
+    }
+
+    /**
+     * Empties the table and resets its statistics. Must not be called while a search is using it.
+     */
+    public void clear() {
+        Arrays.fill(entries, 0L);
+        age = 0;
+        resetStatistics();
+    }
+
+    public void resetStatistics() {
+        probes.reset();
+        hits.reset();
+        stores.reset();
+        overwrites.reset();
+    }
+
+    public int getMegabytes() {
+        return megabytes;
+    }
+
+    /**
+     * @return number of entries the table holds
+     */
+    public int getCapacity() {
+        return entries.length / 2;
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getStores() {
+        return stores.sum();
+    }
+
+    /**
+     * @return stores that replaced an entry for a different position
+     */
+    public long getOverwrites() {
+        return overwrites.sum();
+    }
+
+    /**
+     * @return per mille of entries written by the current search, estimated from the first thousand
+     */
+    public int getHashfull() {
+        int sampled = Math.min(1000, getCapacity());
+        int used = 0;
+        int currentAge = age;
+        for (int i = 0; i < sampled; i++) {
+            long data = entries[2 * i + 1];
+            if (data != 0 && age(data) == currentAge) {
+                used++;
+            }
+        }
+        return used * 1000 / sampled;
+    }
+
+    @Override
+    public String toString() {
+        long probeCount = getProbes();
+        return megabytes + " MB, " + probeCount + " probes, " + getHits() + " hits ("
+                + (probeCount == 0 ? 0 : getHits() * 100 / probeCount) + "%), " + getStores() + " stores, "
+                + getOverwrites() + " overwrites, hashfull " + getHashfull();
+    }
+}
@@ -52,4 +52,68 @@ class FENTest {
         String fenOut = FEN.toFEN(board);
         assertEquals("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", fenOut);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLoadFromBufferRange() {
+        String buffer = "id 1: r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1\nnext line";
+        Board board = new Board();
+        int start = buffer.indexOf(':') + 2;
+        int end = FEN.load(board, buffer, start, buffer.indexOf('\n') - start);
+        assertEquals(buffer.indexOf('\n'), end);
+        assertEquals("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", FEN.toFEN(board));
+    }
+
+    @Test
+    void testLoadWithoutClocks() {
+        String epd = "rnbqkb1r/pppppppp/5n2/8/3P4/8/PPP1PPPP/RNBQKBNR w KQkq - bm c4; id \"test\";";
+        Board board = new Board();
+        int end = FEN.load(board, epd, 0, epd.length());
+        assertEquals(" bm c4;", epd.substring(end, end + 7));
+        assertEquals("rnbqkb1r/pppppppp/5n2/8/3P4/8/PPP1PPPP/RNBQKBNR w KQkq - 0 1", FEN.toFEN(board));
+    }
+
+    @Test
+    void testInvalidFENRejected() {
+        Board board = new Board();
+        for (String fen : new String[]{"", "rnbqkbnr/pppppppp/8/8 w - - 0 1", "9/8/8/8/8/8/8/8 w - - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNX w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e4 0 1"}) {
+            assertThrows(IllegalArgumentException.class, () -> FEN.load(board, fen, 0, fen.length()), fen);
+        }
+    }
+
+    @Test
+    void testReloadClearsMoveHistory() {
+        Board board = new Board();
+        assertTrue(board.makeLegalMove(new Move(board, 4, 6, 4, 4)));
+        assertEquals("1. e4 ", board.printMoveHistory());
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        FEN.load(board, fen, 0, fen.length());
+        assertEquals("", board.printMoveHistory());
+        assertTrue(board.moveHistory.isEmpty());
+    }
+
+    @Test
+    void testReloadingBoardDoesNotAllocate() {
+        var threads = (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        String[] fens = {
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/3P4/8/PPP1PPPP/RNBQKBNR b KQkq d3 0 1",
+        };
+        Board board = new Board();
+        for (int i = 0; i < 20000; i++) {
+            String fen = fens[i % fens.length];
+            FEN.load(board, fen, 0, fen.length());
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 3000; i++) {
+            String fen = fens[i % fens.length];
+            FEN.load(board, fen, 0, fen.length());
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        // Allow a little for the measurement itself
+        assertTrue(allocated < 1000, allocated + " bytes allocated");
+    }
+}
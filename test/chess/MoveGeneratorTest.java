@@ -0,0 +1,136 @@
+package chess;
+
+import chess.board.Board;
+import chess.board.pieces.Piece;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveGeneratorTest {
+
+    static int countLegalMoves(String fen) {
+        Board board = FEN.load(fen);
+        return MoveGenerator.generateLegalMoves(board, new int[MoveGenerator.MAX_MOVES]);
+    }
+
+    @Test
+    void testStartingPosition() {
+        assertEquals(20, countLegalMoves("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"));
+    }
+
+    @Test
+    void testKiwipete() {
+        assertEquals(48, countLegalMoves("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"));
+    }
+
+    @Test
+    void testPinnedEnPassant() {
+        // Taking en passant would expose the king along the fifth rank
+        assertEquals(4, countLegalMoves("8/8/8/KPp4r/8/8/8/7k w - c6 0 1"));
+    }
+
+    @Test
+    void testPromotionsAndChecks() {
+        assertEquals(6, countLegalMoves("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"));
+        assertEquals(44, countLegalMoves("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"));
+    }
+
+    @Test
+    void testPinsAndEvasions() {
+        // Double check by knight and rook, only the king may move
+        assertEquals(3, countLegalMoves("4r3/8/8/8/8/3n4/8/4K3 w - - 0 1"));
+        // The pinned knight cannot move, the pinned rook can only slide along the pin, so 4 king and 6 rook moves
+        assertEquals(4 + 6, countLegalMoves("4r3/8/8/8/1b6/2N5/4R3/4K3 w - - 0 1"));
+    }
+
+    @Test
+    void testMatchesPseudoLegalFiltering() {
+        String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+        };
+        int[] legal = new int[MoveGenerator.MAX_MOVES];
+        int[] pseudo = new int[MoveGenerator.MAX_MOVES];
+        int[] replies = new int[MoveGenerator.MAX_MOVES];
+        for (String fen : fens) {
+            Board board = FEN.load(fen);
+            int n = MoveGenerator.generateLegalMoves(board, legal);
+            for (int i = 0; i < n; i++) {
+                board.makeMove(legal[i]);
+                int expected = 0;
+                int count = MoveGenerator.generatePseudoLegalMoves(board, pseudo);
+                for (int j = 0; j < count; j++) {
+                    if (MoveGenerator.isLegal(board, pseudo[j])) {
+                        expected++;
+                    }
+                }
+                assertEquals(expected, MoveGenerator.generateLegalMoves(board, replies), FEN.toFEN(board));
+                board.undoMove();
+            }
+        }
+    }
+
+    @Test
+    void testMoveCheckerAgrees() {
+        String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "4k3/4r3/8/8/1b6/8/3NB3/4K3 w - - 0 1",
+                "r3k2r/8/8/8/8/8/8/R3K1qR w KQkq - 0 1",
+                "r3k2r/8/8/8/4r3/8/8/R3K2R w KQkq - 0 1"};
+        for (String fen : fens) {
+            Board board = FEN.load(fen);
+            int[] legal = MoveGenerator.generateLegalMoves(board);
+            for (int from = 0; from < 64; from++) {
+                for (int to = 0; to < 64; to++) {
+                    boolean expected = false;
+                    for (int move : legal) {
+                        expected |= PackedMove.from(move) == from && PackedMove.to(move) == to;
+                    }
+                    assertEquals(expected, MoveChecker.isMoveLegal(board, from % 8, from / 8, to % 8, to / 8),
+                            fen + " " + from + "-" + to);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testBufferIsReused() {
+        Board board = new Board();
+        int[] buffer = new int[MoveGenerator.MAX_MOVES];
+        int first = MoveGenerator.generateLegalMoves(board, buffer);
+        int[] firstMoves = Arrays.copyOf(buffer, first);
+        int second = MoveGenerator.generateLegalMoves(board, buffer);
+        assertArrayEquals(firstMoves, Arrays.copyOf(buffer, second));
+    }
+
+    @Test
+    void testGivesCheckMatchesMakingTheMove() {
+        String[] fens = {Perft.START_FEN, "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                "5k2/8/8/8/8/8/8/4K2R w K - 0 1", "8/8/8/KPp4r/8/8/8/5k2 w - c6 0 1"};
+        int[][] buffers = MoveGenerator.createBuffers(4);
+        for (String fen : fens) {
+            assertGivesCheck(FEN.load(fen), 3, buffers);
+        }
+    }
+
+    static void assertGivesCheck(Board board, int depth, int[][] buffers) {
+        int n = MoveGenerator.generateLegalMoves(board, buffers[depth]);
+        for (int i = 0; i < n; i++) {
+            int move = buffers[depth][i];
+            boolean givesCheck = MoveGenerator.givesCheck(board, move);
+            board.makeMove(move);
+            assertEquals(board.isInCheck(board.whiteToMove ? Piece.WHITE : Piece.BLACK), givesCheck,
+                    FEN.toFEN(board) + " after " + PackedMove.toUci(move));
+            if (depth > 1) {
+                assertGivesCheck(board, depth - 1, buffers);
+            }
+            board.undoMove();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package chess;
+
+import chess.board.Bitboard;
+import chess.board.Board;
+import chess.board.pieces.Piece;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedMoveTest {
+
+    static int sq(String square) {
+        return Bitboard.fromAlgebraic(square);
+    }
+
+    @Test
+    void testFieldsRoundTrip() {
+        int move = PackedMove.encodePromotion(sq("b7"), sq("a8"), Piece.KNIGHT, true);
+        assertEquals(sq("b7"), PackedMove.from(move));
+        assertEquals(sq("a8"), PackedMove.to(move));
+        assertTrue(PackedMove.isCapture(move));
+        assertTrue(PackedMove.isPromotion(move));
+        assertEquals(Piece.KNIGHT, PackedMove.promotionType(move));
+        assertEquals("b7a8n", PackedMove.toUci(move));
+        // Upper bits are free for callers to use
+        assertEquals(sq("a8"), PackedMove.to(move | (1234 << 16)));
+    }
+
+    @Test
+    void testFlagsFromMove() {
+        Board board = FEN.load("r3k2r/p1pp1pp1/8/3Pp3/8/8/PPP2PpP/R3K2R w KQkq e6 0 1");
+        assertEquals(PackedMove.DOUBLE_PAWN_PUSH, PackedMove.flags(new Move(board, 0, 6, 0, 4).pack()));
+        assertEquals(PackedMove.EN_PASSANT, PackedMove.flags(new Move(board, 3, 3, 4, 2).pack()));
+        assertEquals(PackedMove.KING_CASTLE, PackedMove.flags(new Move(board, 4, 7, 6, 7).pack()));
+        assertEquals(PackedMove.QUEEN_CASTLE, PackedMove.flags(new Move(board, 4, 7, 2, 7).pack()));
+        assertEquals(PackedMove.CAPTURE, PackedMove.flags(new Move(board, 7, 7, 7, 0).pack()));
+        assertEquals(PackedMove.QUIET, PackedMove.flags(new Move(board, 3, 3, 3, 2).pack()));
+
+        Move m = PackedMove.toMove(board, PackedMove.fromUci(board, "d5e6"));
+        assertEquals(3, m.fromFile);
+        assertEquals(3, m.fromRank);
+        assertEquals(4, m.toFile);
+        assertEquals(2, m.toRank);
+    }
+
+    @Test
+    void testSan() {
+        Board board = FEN.load("r3k2r/p1pp1pp1/8/3Pp3/8/5N2/PPP2PpP/RN2K2R b KQkq - 0 1");
+        assertEquals("O-O", PackedMove.toSan(board, PackedMove.fromUci(board, "e8g8")));
+        assertEquals("gxh1=Q", PackedMove.toSan(board, PackedMove.fromUci(board, "g2h1q")));
+        assertEquals("g1=N", PackedMove.toSan(board, PackedMove.fromUci(board, "g2g1n")));
+        assertEquals("Rxh2", PackedMove.toSan(board, PackedMove.fromUci(board, "h8h2")));
+        board.whiteToMove = true;
+        assertEquals("Nbd2", PackedMove.toSan(board, PackedMove.fromUci(board, "b1d2")));
+        assertEquals("Nfd2", PackedMove.toSan(board, PackedMove.fromUci(board, "f3d2")));
+        assertEquals("Ng1", PackedMove.toSan(board, PackedMove.fromUci(board, "f3g1")));
+    }
+
+    @Test
+    void testSanIgnoresPinnedRival() {
+        Board board = FEN.load("4r2k/8/8/8/8/1N6/4N3/4K3 w - - 0 1");
+        assertEquals("Nd4", PackedMove.toSan(board, PackedMove.fromUci(board, "b3d4")));
+        board = FEN.load("7k/8/8/8/8/1N6/4N3/4K3 w - - 0 1");
+        assertEquals("Nbd4", PackedMove.toSan(board, PackedMove.fromUci(board, "b3d4")));
+    }
+}
@@ -0,0 +1,37 @@
+package chess;
+
+import chess.board.Board;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelPerftTest {
+
+    @Test
+    void testMatchesSerialPerft() {
+        ParallelPerft parallel = new ParallelPerft(4, 16);
+        try {
+            Board board = FEN.load(Perft.START_FEN);
+            assertEquals(4865609, parallel.perft(board, 5));
+            // Second run is answered largely from the hash table
+            assertEquals(4865609, parallel.perft(board, 5));
+            assertEquals(Perft.START_FEN, FEN.toFEN(board));
+
+            Board kiwipete = FEN.load("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+            assertEquals(Perft.divide(kiwipete, 3), parallel.divide(kiwipete, 3));
+            assertEquals(4085603, parallel.perft(kiwipete, 4));
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    void testHashTable() {
+        PerftHashTable table = new PerftHashTable(1);
+        assertEquals(-1, table.get(0x1234L, 3));
+        table.put(0x1234L, 3, 97862);
+        assertEquals(97862, table.get(0x1234L, 3));
+        assertEquals(-1, table.get(0x1234L, 4));
+        assertEquals(-1, table.get(0x1234L ^ (1L << 40), 3));
+    }
+}
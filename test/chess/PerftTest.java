@@ -0,0 +1,63 @@
+package chess;
+
+import chess.board.Board;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Standard perft positions and counts, see https://www.chessprogramming.org/Perft_Results. Depths are kept low enough
+ * for the suite to run in a few seconds.
+ */
+class PerftTest {
+
+    static void assertPerft(String fen, long... expected) {
+        Board board = FEN.load(fen);
+        for (int depth = 1; depth <= expected.length; depth++) {
+            assertEquals(expected[depth - 1], Perft.perft(board, depth), "depth " + depth);
+        }
+        // Making and undoing every move should leave the position as it was
+        assertEquals(fen, FEN.toFEN(board));
+    }
+
+    @Test
+    void testStartingPosition() {
+        assertPerft(Perft.START_FEN, 20, 400, 8902, 197281);
+    }
+
+    @Test
+    void testKiwipete() {
+        assertPerft("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 48, 2039, 97862);
+    }
+
+    @Test
+    void testPosition3() {
+        assertPerft("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 14, 191, 2812, 43238);
+    }
+
+    @Test
+    void testPosition4() {
+        assertPerft("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 6, 264, 9467);
+    }
+
+    @Test
+    void testPosition5() {
+        assertPerft("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 44, 1486, 62379);
+    }
+
+    @Test
+    void testPosition6() {
+        assertPerft("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 46, 2079, 89890);
+    }
+
+    @Test
+    void testDivideSumsToPerft() {
+        Board board = FEN.load(Perft.START_FEN);
+        Map<String, Long> divide = Perft.divide(board, 3);
+        assertEquals(20, divide.size());
+        assertEquals(600, divide.get("e2e4"));
+        assertEquals(8902, divide.values().stream().mapToLong(Long::longValue).sum());
+    }
+}
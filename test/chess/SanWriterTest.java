@@ -0,0 +1,48 @@
+package chess;
+
+import chess.board.Board;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SanWriterTest {
+
+    static int[] uci(Board board, String... moves) {
+        Board copy = new Board(board);
+        int[] packed = new int[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            packed[i] = PackedMove.fromUci(copy, moves[i]);
+            copy.makeMove(packed[i]);
+        }
+        return packed;
+    }
+
+    @Test
+    void testCheckAndMateSuffixes() {
+        SanWriter writer = new SanWriter();
+        Board board = FEN.load("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1");
+        StringBuilder str = new StringBuilder();
+        writer.append(str, board, PackedMove.fromUci(board, "a1a8"));
+        assertEquals("Ra8#", str.toString());
+        assertEquals("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1", FEN.toFEN(board));
+
+        board = FEN.load("6k1/5pp1/8/8/8/8/5PPP/R5K1 w - - 0 1");
+        str.setLength(0);
+        writer.append(str, board, PackedMove.fromUci(board, "a1a8"));
+        assertEquals("Ra8+", str.toString());
+    }
+
+    @Test
+    void testMovetext() {
+        SanWriter writer = new SanWriter();
+        Board board = FEN.load(Perft.START_FEN);
+        StringBuilder str = new StringBuilder();
+        writer.appendMoves(str, board, uci(board, "e2e4", "e7e5", "d1h5", "b8c6", "f1c4", "g8f6", "h5f7"), 7);
+        assertEquals("1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7#", str.toString());
+
+        board = FEN.load("r3k2r/8/8/8/8/8/8/R3K2R b KQkq - 3 20");
+        str.setLength(0);
+        writer.appendMoves(str, board, uci(board, "e8c8", "e1g1"), 2);
+        assertEquals("20... O-O-O 21. O-O", str.toString());
+    }
+}
@@ -0,0 +1,41 @@
+package chess.board;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttacksTest {
+
+    @Test
+    void testMagicsMatchRayWalk() {
+        Random random = new Random(1110);
+        for (int i = 0; i < 2000; i++) {
+            long occupied = random.nextLong() & random.nextLong();
+            for (int square = 0; square < 64; square++) {
+                assertEquals(Attacks.rookAttacksSlow(square, occupied), Attacks.rookAttacks(square, occupied));
+                assertEquals(Attacks.bishopAttacksSlow(square, occupied), Attacks.bishopAttacks(square, occupied));
+            }
+        }
+    }
+
+    @Test
+    void testEmptyBoardAttacks() {
+        int d4 = Bitboard.fromAlgebraic("d4");
+        assertEquals(14, Bitboard.count(Attacks.rookAttacks(d4, 0L)));
+        assertEquals(13, Bitboard.count(Attacks.bishopAttacks(d4, 0L)));
+        assertEquals(27, Bitboard.count(Attacks.queenAttacks(d4, 0L)));
+        assertEquals(8, Bitboard.count(Attacks.KNIGHT[d4]));
+        assertEquals(2, Bitboard.count(Attacks.KNIGHT[Bitboard.fromAlgebraic("a1")]));
+    }
+
+    @Test
+    void testPawnAttacks() {
+        int e4 = Bitboard.fromAlgebraic("e4");
+        long whiteTargets = Bitboard.bit(Bitboard.fromAlgebraic("d5")) | Bitboard.bit(Bitboard.fromAlgebraic("f5"));
+        long blackTargets = Bitboard.bit(Bitboard.fromAlgebraic("d3")) | Bitboard.bit(Bitboard.fromAlgebraic("f3"));
+        assertEquals(whiteTargets, Attacks.PAWN[0][e4]);
+        assertEquals(blackTargets, Attacks.PAWN[1][e4]);
+    }
+}
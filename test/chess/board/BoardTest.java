@@ -0,0 +1,295 @@
+package chess.board;
+
+import chess.FEN;
+import chess.Move;
+import chess.MoveChecker;
+import chess.MoveGenerator;
+import chess.PackedMove;
+import chess.Perft;
+import chess.board.BoardEventListener.IllegalMoveReason;
+import chess.board.pieces.Piece;
+import javafx.util.Pair;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoardTest {
+
+    /**
+     * Checks every bitboard agrees with the contents of Board.squares
+     */
+    static void assertBitboardsMatchSquares(Board board) {
+        long[] expected = new long[12];
+        for (int file = 0; file < 8; file++) {
+            for (int rank = 0; rank < 8; rank++) {
+                Piece p = board.squares[file][rank].getOccupier();
+                if (p != null) {
+                    expected[p.getCode()] |= Bitboard.bit(Bitboard.square(file, rank));
+                }
+            }
+        }
+        long white = 0;
+        long black = 0;
+        for (int i = 0; i < 6; i++) {
+            white |= expected[i];
+            black |= expected[i + 6];
+        }
+        assertArrayEquals(expected, board.pieceBitboards);
+        assertEquals(white, board.getOccupancy(Piece.WHITE));
+        assertEquals(black, board.getOccupancy(Piece.BLACK));
+        assertEquals(white | black, board.occupied);
+        for (int colour = 0; colour < 2; colour++) {
+            long listed = 0;
+            for (int i = 0; i < board.getPieceCount(colour); i++) {
+                listed |= Bitboard.bit(board.getPieceSquare(colour, i));
+            }
+            assertEquals(board.getOccupancy(colour), listed);
+            assertEquals(Long.bitCount(listed), board.getPieceCount(colour));
+        }
+    }
+
+    /**
+     * Checks the incrementally updated attack map against one built from scratch
+     */
+    static void assertAttackMapMatchesBoard(Board board) {
+        int[][] counts = new int[2][64];
+        for (int square = 0; square < 64; square++) {
+            Piece p = board.getPiece(square);
+            if (p == null) {
+                assertEquals(0L, board.attackMap.getAttacksFrom(square));
+                continue;
+            }
+            long attacks = AttackMap.attacksOf(p.getType(), p.getColour(), square, board.occupied);
+            assertEquals(attacks, board.attackMap.getAttacksFrom(square));
+            for (int target = 0; target < 64; target++) {
+                if (Bitboard.contains(attacks, target)) {
+                    counts[p.getColour()][target]++;
+                }
+            }
+        }
+        for (int colour = 0; colour < 2; colour++) {
+            long attacked = 0L;
+            for (int square = 0; square < 64; square++) {
+                assertEquals(counts[colour][square], board.attackMap.getAttackerCount(colour, square));
+                if (counts[colour][square] > 0) {
+                    attacked |= Bitboard.bit(square);
+                }
+            }
+            assertEquals(attacked, board.getAttackedSquares(colour));
+        }
+    }
+
+    @Test
+    void testStartingPositionBitboards() {
+        Board board = new Board();
+        assertBitboardsMatchSquares(board);
+        assertEquals(Bitboard.RANK_2, board.getBitboard(Piece.WHITE, Piece.PAWN));
+        assertEquals(Bitboard.RANK_7, board.getBitboard(Piece.BLACK, Piece.PAWN));
+        assertEquals(Bitboard.fromAlgebraic("e1"), board.getKingSquare(Piece.WHITE));
+        assertEquals(Bitboard.fromAlgebraic("e8"), board.getKingSquare(Piece.BLACK));
+        assertEquals(32, Bitboard.count(board.occupied));
+    }
+
+    @Test
+    void testBitboardsFollowMoves() {
+        Board board = FEN.load("r3k2r/pppppppp/8/8/8/8/PPPPPPPP/R3K2R w KQkq - 0 1");
+        assertBitboardsMatchSquares(board);
+        // e2-e4, then kingside castle for black
+        Board.makeMove(new Move(board, 4, 6, 4, 4));
+        assertBitboardsMatchSquares(board);
+        assertEquals(Bitboard.fromAlgebraic("e3"), board.enPassantSquare);
+        Board.makeMove(new Move(board, 4, 0, 6, 0));
+        assertBitboardsMatchSquares(board);
+        assertEquals(Bitboard.fromAlgebraic("g8"), board.getKingSquare(Piece.BLACK));
+        assertTrue(Bitboard.contains(board.getBitboard(Piece.BLACK, Piece.ROOK), Bitboard.fromAlgebraic("f8")));
+    }
+
+    @Test
+    void testPieceLocationsFromPieceList() {
+        Board board = FEN.load("8/8/4k3/8/2p5/8/1P6/K7 w - - 0 1");
+        var white = board.getPieceLocations(true);
+        assertEquals(2, white.size());
+        assertTrue(white.contains(new Pair<>(0, 7)));
+        assertTrue(white.contains(new Pair<>(1, 6)));
+        assertEquals(2, board.getPieceLocations(false).size());
+        assertTrue(board.getPawnPassantLocations().isEmpty());
+
+        board.makeMove(PackedMove.fromUci(board, "b2b4"));
+        assertEquals(List.of(new Pair<>(1, 4)), board.getPawnPassantLocations());
+        board.makeMove(PackedMove.fromUci(board, "c4b3"));
+        assertEquals(1, board.getPieceCount(Piece.WHITE));
+        assertBitboardsMatchSquares(board);
+        board.undoMove();
+        assertEquals(2, board.getPieceCount(Piece.WHITE));
+        assertBitboardsMatchSquares(board);
+    }
+
+    @Test
+    void testCopyIsIndependent() {
+        Board board = FEN.load("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w Kq - 0 1");
+        Board copy = new Board(board);
+        assertEquals(FEN.toFEN(board), FEN.toFEN(copy));
+        assertEquals(board.getHash(), copy.getHash());
+
+        copy.makeMove(PackedMove.fromUci(copy, "e1g1"));
+        assertEquals("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w Kq - 0 1", FEN.toFEN(board));
+        assertNotSame(board.getPiece(Bitboard.fromAlgebraic("a8")), copy.getPiece(Bitboard.fromAlgebraic("a8")));
+        assertBitboardsMatchSquares(board);
+        assertBitboardsMatchSquares(copy);
+        assertAttackMapMatchesBoard(board);
+        assertAttackMapMatchesBoard(copy);
+    }
+
+    @Test
+    void testListenerReceivesEvents() {
+        Board board = FEN.load("4k3/8/8/8/8/8/4r3/R3K3 w - - 0 1");
+        List<String> events = new ArrayList<>();
+        board.setListener(new BoardEventListener() {
+            @Override
+            public void moveMade(Board board, int move) {
+                events.add("move " + PackedMove.toUci(move));
+            }
+
+            @Override
+            public void checkDetected(Board board, int colour) {
+                events.add("check " + colour);
+            }
+
+            @Override
+            public void illegalMove(Board board, int from, int to, IllegalMoveReason reason) {
+                events.add(Bitboard.toAlgebraic(from) + Bitboard.toAlgebraic(to) + " " + reason);
+            }
+        });
+        board.updateChecks();
+        assertFalse(MoveChecker.isMoveLegal(board, 0, 7, 1, 7));
+        assertFalse(MoveChecker.isMoveLegal(board, 3, 3, 3, 4));
+        assertFalse(MoveChecker.isMoveLegal(board, 4, 6, 4, 5));
+        assertTrue(MoveChecker.isMoveLegal(board, 4, 7, 4, 6));
+        board.makeMove(PackedMove.fromUci(board, "e1e2"));
+        assertEquals(List.of("check 0", "a1b1 KING_IN_CHECK", "d5d4 NO_PIECE", "e2e3 WRONG_COLOUR", "move e1e2"),
+                events);
+
+        board.setListener(null);
+        board.makeMove(PackedMove.fromUci(board, "e8d8"));
+        assertEquals(5, events.size());
+    }
+
+    @Test
+    void testEnPassantSquareFromFEN() {
+        Board board = FEN.load("rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 3");
+        assertEquals(Bitboard.fromAlgebraic("e3"), board.enPassantSquare);
+        // Target pawn is the one on e4
+        assertEquals(4, board.enPassantTarget.getKey());
+        assertEquals(4, board.enPassantTarget.getValue());
+    }
+
+    @Test
+    void testUndoRestoresPositionExactly() {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        Board board = FEN.load(fen);
+        int[][] buffers = MoveGenerator.createBuffers(2);
+        int n = MoveGenerator.generateLegalMoves(board, buffers[0]);
+        for (int i = 0; i < n; i++) {
+            board.makeMove(buffers[0][i]);
+            String afterFirst = FEN.toFEN(board);
+            int m = MoveGenerator.generateLegalMoves(board, buffers[1]);
+            for (int j = 0; j < m; j++) {
+                board.makeMove(buffers[1][j]);
+                assertBitboardsMatchSquares(board);
+                assertEquals(Zobrist.compute(board), board.getHash());
+                assertAttackMapMatchesBoard(board);
+                board.undoMove();
+                assertEquals(afterFirst, FEN.toFEN(board));
+            }
+            board.undoMove();
+            assertEquals(fen, FEN.toFEN(board));
+            assertBitboardsMatchSquares(board);
+            assertAttackMapMatchesBoard(board);
+        }
+        assertEquals(0, board.getUndoSize());
+        assertFalse(board.undoMove());
+    }
+
+    @Test
+    void testMoveUpdatesStateForFEN() {
+        Board board = FEN.load("r3k2r/8/8/8/1p6/8/P7/R3K2R w KQkq - 3 20");
+        board.makeMove(PackedMove.fromUci(board, "a2a4"));
+        assertEquals("r3k2r/8/8/8/Pp6/8/8/R3K2R b KQkq a3 0 20", FEN.toFEN(board));
+        board.makeMove(PackedMove.fromUci(board, "b4a3"));
+        assertEquals("r3k2r/8/8/8/8/p7/8/R3K2R w KQkq - 0 21", FEN.toFEN(board));
+        board.makeMove(PackedMove.fromUci(board, "a1a3"));
+        assertEquals("r3k2r/8/8/8/8/R7/8/4K2R b Kkq - 0 21", FEN.toFEN(board));
+        board.makeMove(PackedMove.fromUci(board, "e8c8"));
+        assertEquals("2kr3r/8/8/8/8/R7/8/4K2R w K - 1 22", FEN.toFEN(board));
+        board.undoMove();
+        board.undoMove();
+        board.undoMove();
+        board.undoMove();
+        assertEquals("r3k2r/8/8/8/1p6/8/P7/R3K2R w KQkq - 3 20", FEN.toFEN(board));
+    }
+
+    @Test
+    void testHashOfTransposedPositions() {
+        Board board = new Board();
+        long start = board.getHash();
+        assertEquals(Zobrist.compute(board), start);
+        for (String uci : new String[]{"g1f3", "g8f6", "f3g1"}) {
+            board.makeMove(PackedMove.fromUci(board, uci));
+            assertNotEquals(start, board.getHash());
+        }
+        board.makeMove(PackedMove.fromUci(board, "f6g8"));
+        // Same position and rights, only the clocks differ
+        assertEquals(start, board.getHash());
+
+        Board viaE3 = FEN.load("rnbqkbnr/pppp1ppp/8/4p3/8/4P3/PPPP1PPP/RNBQKBNR w KQkq - 0 2");
+        Board viaE4 = FEN.load("rnbqkbnr/pppp1ppp/8/4p3/8/4P3/PPPP1PPP/RNBQKBNR w KQkq e6 0 2");
+        // Nothing can take on e6, so the en passant square does not change the position
+        assertEquals(viaE3.getHash(), viaE4.getHash());
+        Board lostRights = FEN.load("rnbqkbnr/pppp1ppp/8/4p3/8/4P3/PPPP1PPP/RNBQKBNR w Kkq - 0 2");
+        assertNotEquals(viaE3.getHash(), lostRights.getHash());
+    }
+
+    @Test
+    void testChecksReadFromAttackMap() {
+        Board board = FEN.load("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+        assertTrue(board.isInCheck(Piece.WHITE));
+        assertFalse(board.isInCheck(Piece.BLACK));
+        assertEquals(1, board.attackMap.getAttackerCount(Piece.BLACK, board.getKingSquare(Piece.WHITE)));
+        // f2 is attacked through the gap left by the f-pawn
+        assertTrue(board.isSquareAttacked(Bitboard.fromAlgebraic("f2"), Piece.BLACK));
+        board.updateChecks();
+        assertTrue(board.whiteInCheck);
+    }
+
+    @Test
+    void testMoveHistoryFollowsMovesAndUndos() {
+        Board board = FEN.load(Perft.START_FEN);
+        int[][] moves = {{4, 6, 4, 4}, {4, 1, 4, 3}, {3, 7, 7, 3}, {1, 0, 2, 2}, {5, 7, 2, 4}, {6, 0, 5, 2},
+                {7, 3, 5, 1}};
+        Move last = null;
+        for (int[] m : moves) {
+            last = new Move(board, m[0], m[1], m[2], m[3]);
+            assertTrue(board.makeLegalMove(last));
+        }
+        assertEquals("1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# ", board.printMoveHistory());
+        assertEquals("Qxf7#", last.toString());
+
+        assertTrue(Board.undoMove(last));
+        assertEquals("1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 ", board.printMoveHistory());
+        assertTrue(board.makeLegalMove(new Move(board, 7, 3, 5, 1)));
+        assertEquals("1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# ", new Board(board).printMoveHistory());
+    }
+
+    @Test
+    void testMoveHistoryNumbersFromFEN() {
+        Board board = FEN.load("r3k2r/8/8/8/8/8/8/R3K2R b KQkq - 3 20");
+        assertTrue(board.makeLegalMove(new Move(board, 4, 0, 2, 0)));
+        Move castle = new Move(board, 4, 7, 6, 7);
+        assertTrue(board.makeLegalMove(castle));
+        assertEquals("20... O-O-O 21. O-O ", board.printMoveHistory());
+        assertEquals("O-O", castle.toString());
+    }
+}
@@ -0,0 +1,87 @@
+package chess.board;
+
+import chess.FEN;
+import chess.MoveGenerator;
+import chess.PackedMove;
+import chess.board.pieces.Piece;
+import chess.search.Evaluation;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PieceSquareTablesTest {
+
+    static void assertScoresMatchBoard(Board board) {
+        int[] totals = PieceSquareTables.compute(board);
+        assertEquals(totals[0], board.getMiddlegameScore());
+        assertEquals(totals[1], board.getEndgameScore());
+        assertEquals(totals[2], board.getPhase());
+    }
+
+    @Test
+    void testStartingPosition() {
+        Board board = new Board();
+        assertScoresMatchBoard(board);
+        assertEquals(PieceSquareTables.MAX_PHASE, board.getPhase());
+        assertEquals(0, board.getMiddlegameScore());
+        assertEquals(0, board.getEndgameScore());
+        assertEquals(0, Evaluation.evaluate(board));
+
+        // Black's tables mirror white's
+        int whiteKnight = Piece.WHITE * 6 + Piece.KNIGHT;
+        int blackKnight = Piece.BLACK * 6 + Piece.KNIGHT;
+        int f3 = Bitboard.square(5, 5);
+        assertEquals(-PieceSquareTables.middlegame(whiteKnight, f3), PieceSquareTables.middlegame(blackKnight, f3 ^ 56));
+
+        board.makeMove(PackedMove.fromUci(board, "e2e4"));
+        assertTrue(board.getMiddlegameScore() > 0);
+        // Scored for the side to move
+        Board flipped = new Board(board);
+        flipped.whiteToMove = true;
+        assertEquals(-Evaluation.evaluate(board), Evaluation.evaluate(flipped));
+    }
+
+    @Test
+    void testScoresFollowMovesAndUndos() {
+        // Castling, en passant and promotions between them
+        String[] fens = {
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1"};
+        int[][] buffers = MoveGenerator.createBuffers(2);
+        for (String fen : fens) {
+            Board board = FEN.load(fen);
+            assertScoresMatchBoard(board);
+            int n = MoveGenerator.generateLegalMoves(board, buffers[0]);
+            for (int i = 0; i < n; i++) {
+                board.makeMove(buffers[0][i]);
+                assertScoresMatchBoard(board);
+                int m = MoveGenerator.generateLegalMoves(board, buffers[1]);
+                for (int j = 0; j < m; j++) {
+                    board.makeMove(buffers[1][j]);
+                    assertScoresMatchBoard(board);
+                    board.undoMove();
+                }
+                board.undoMove();
+                assertScoresMatchBoard(board);
+            }
+        }
+    }
+
+    @Test
+    void testCopyAndReload() {
+        Board board = FEN.load("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        board.makeMove(PackedMove.fromUci(board, "e1g1"));
+        Board copy = new Board(board);
+        assertEquals(board.getMiddlegameScore(), copy.getMiddlegameScore());
+        assertEquals(board.getEndgameScore(), copy.getEndgameScore());
+        assertEquals(board.getPhase(), copy.getPhase());
+
+        String fen = "4k3/8/8/8/8/8/4P3/4K3 w - - 0 1";
+        FEN.load(copy, fen, 0, fen.length());
+        assertScoresMatchBoard(copy);
+        assertEquals(0, copy.getPhase());
+        // With no pieces left only the endgame score counts
+        assertEquals(copy.getEndgameScore(), Evaluation.evaluate(copy));
+    }
+}
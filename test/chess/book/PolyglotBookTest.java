@@ -0,0 +1,132 @@
+package chess.book;
+
+import chess.FEN;
+import chess.MoveGenerator;
+import chess.PackedMove;
+import chess.board.Bitboard;
+import chess.board.Board;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolyglotBookTest {
+
+    static final String CASTLING_FEN = "r3k2r/pppqbppp/2np1n2/4p3/4P3/2NP1N2/PPPQBPPP/R3K2R w KQkq - 0 8";
+
+    @TempDir
+    Path dir;
+
+    static int bookMove(String uci, int promotion) {
+        int from = Bitboard.fromAlgebraic(uci.substring(0, 2)) ^ 56;
+        int to = Bitboard.fromAlgebraic(uci.substring(2, 4)) ^ 56;
+        return to | (from << 6) | (promotion << 12);
+    }
+
+    /**
+     * Writes entries of (key, book move, weight), sorted by unsigned key as Polyglot does
+     */
+    static Path writeBook(Path path, List<long[]> entries) throws IOException {
+        entries.sort((a, b) -> Long.compareUnsigned(a[0], b[0]));
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(path))) {
+            for (long[] entry : entries) {
+                out.writeLong(entry[0]);
+                out.writeShort((int) entry[1]);
+                out.writeShort((int) entry[2]);
+                out.writeInt(0);
+            }
+        }
+        return path;
+    }
+
+    PolyglotBook openTestBook() throws IOException {
+        PolyglotKeys keys = new PolyglotKeys();
+        List<long[]> entries = new ArrayList<>();
+        long start = keys.key(new Board());
+        entries.add(new long[]{start, bookMove("e2e4", 0), 10});
+        entries.add(new long[]{start, bookMove("d2d4", 0), 30});
+        entries.add(new long[]{start, bookMove("g1f3", 0), 0});
+        long castling = keys.key(FEN.load(CASTLING_FEN));
+        entries.add(new long[]{castling, bookMove("e1h1", 0), 5});
+        entries.add(new long[]{castling, bookMove("e1a1", 0), 7});
+        // A key collision: not a legal move in the position, so it must be skipped
+        entries.add(new long[]{castling, bookMove("e4e5", 0), 100});
+        long promotion = keys.key(FEN.load("8/1P4k1/8/8/8/8/6K1/8 w - - 0 1"));
+        entries.add(new long[]{promotion, bookMove("b7b8", 3), 1});
+        SplittableRandom random = new SplittableRandom(16);
+        for (int i = 0; i < 1000; i++) {
+            entries.add(new long[]{random.nextLong(), bookMove("a2a3", 0), 1});
+        }
+        return PolyglotBook.open(writeBook(dir.resolve("test.bin"), entries));
+    }
+
+    @Test
+    public void testFindsMovesByKey() throws IOException {
+        PolyglotKeys keys = new PolyglotKeys();
+        try (PolyglotBook book = openTestBook()) {
+            assertEquals(1007, book.size());
+            Board board = new Board();
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int[] weights = new int[MoveGenerator.MAX_MOVES];
+            assertEquals(3, book.getMoves(board, moves, weights));
+            List<String> found = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                found.add(PackedMove.toUci(moves[i]) + " " + weights[i]);
+            }
+            assertTrue(found.containsAll(List.of("e2e4 10", "d2d4 30", "g1f3 0")), found.toString());
+
+            int index = book.lowerBound(keys.key(board));
+            assertEquals(keys.key(board), book.getKey(index));
+            assertTrue(index == 0 || Long.compareUnsigned(book.getKey(index - 1), keys.key(board)) < 0);
+
+            assertEquals(PackedMove.fromUci(board, "d2d4"), book.getBestMove(board));
+            board.makeMove(PackedMove.fromUci(board, "e2e4"));
+            assertEquals(PackedMove.NONE, book.getBestMove(board));
+            assertEquals(PackedMove.NONE, book.getWeightedMove(board, 1));
+            assertEquals(0, book.getMoves(board, moves, null));
+        }
+    }
+
+    @Test
+    public void testWeightedMovesFollowWeights() throws IOException {
+        try (PolyglotBook book = openTestBook()) {
+            Board board = new Board();
+            int e4 = PackedMove.fromUci(board, "e2e4");
+            int d4 = PackedMove.fromUci(board, "d2d4");
+            SplittableRandom random = new SplittableRandom(7);
+            int e4Count = 0;
+            for (int i = 0; i < 4000; i++) {
+                int move = book.getWeightedMove(board, random.nextLong());
+                assertTrue(move == e4 || move == d4, "Weight 0 moves are never picked");
+                if (move == e4) {
+                    e4Count++;
+                }
+            }
+            // 10 of every 40
+            assertTrue(e4Count > 850 && e4Count < 1150, "e4 picked " + e4Count + " times");
+        }
+    }
+
+    @Test
+    public void testConvertsCastlingAndPromotion() throws IOException {
+        try (PolyglotBook book = openTestBook()) {
+            Board board = FEN.load(CASTLING_FEN);
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            assertEquals(2, book.getMoves(board, moves, null));
+            assertEquals(PackedMove.encode(60, 62, PackedMove.KING_CASTLE), book.toPackedMove(board, bookMove("e1h1", 0)));
+            assertEquals(PackedMove.encode(60, 58, PackedMove.QUEEN_CASTLE), book.getBestMove(board));
+
+            Board promotion = FEN.load("8/1P4k1/8/8/8/8/6K1/8 w - - 0 1");
+            assertEquals(PackedMove.fromUci(promotion, "b7b8r"), book.getBestMove(promotion));
+            assertEquals(PackedMove.fromUci(promotion, "b7b8q"), book.toPackedMove(promotion, bookMove("b7b8", 4)));
+        }
+    }
+}
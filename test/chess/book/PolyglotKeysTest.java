@@ -0,0 +1,52 @@
+package chess.book;
+
+import chess.FEN;
+import chess.PackedMove;
+import chess.Perft;
+import chess.board.Board;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolyglotKeysTest {
+
+    static long keyAfter(PolyglotKeys keys, String... moves) {
+        Board board = FEN.load(Perft.START_FEN);
+        for (String uci : moves) {
+            board.makeMove(PackedMove.fromUci(board, uci));
+        }
+        return keys.key(board);
+    }
+
+    @Test
+    void testPublishedKeys() {
+        // Examples from the Polyglot book format description
+        PolyglotKeys keys = new PolyglotKeys();
+        assertEquals(0x463B96181691FC9CL, keyAfter(keys));
+        assertEquals(0x823C9B50FD114196L, keyAfter(keys, "e2e4"));
+        assertEquals(0x0756B94461C50FB0L, keyAfter(keys, "e2e4", "d7d5"));
+        assertEquals(0x662FAFB965DB29D4L, keyAfter(keys, "e2e4", "d7d5", "e4e5"));
+        // En passant on f6 is keyed, as e5 can take
+        assertEquals(0x22A48B5A8E47FF78L, keyAfter(keys, "e2e4", "d7d5", "e4e5", "f7f5"));
+        assertEquals(0x652A607CA3F242C1L, keyAfter(keys, "e2e4", "d7d5", "e4e5", "f7f5", "e1e2"));
+        assertEquals(0x00FDD303C946BDD9L, keyAfter(keys, "e2e4", "d7d5", "e4e5", "f7f5", "e1e2", "e8f7"));
+        assertEquals(0x3C8123EA7B067637L, keyAfter(keys, "a2a4", "b7b5", "h2h4", "b5b4", "c2c4"));
+        assertEquals(0x5C3F9B829B279560L, keyAfter(keys, "a2a4", "b7b5", "h2h4", "b5b4", "c2c4", "b4c3", "a1a3"));
+    }
+
+    @Test
+    void testKeysFollowPolyglotRules() {
+        PolyglotKeys keys = new PolyglotKeys();
+        // En passant is only keyed when the capture is possible
+        assertEquals(keys.key(FEN.load("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1")),
+                keys.key(FEN.load("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1")));
+        assertNotEquals(keys.key(FEN.load("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3")),
+                keys.key(FEN.load("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq - 0 3")));
+
+        // A table of a book's own is used as given
+        long[] table = new long[PolyglotKeys.TABLE_SIZE];
+        table[PolyglotKeys.TURN] = 1;
+        assertEquals(1, new PolyglotKeys(table).key(FEN.load("4k3/8/8/8/8/8/8/4K3 w - - 0 1")));
+        assertThrows(IllegalArgumentException.class, () -> new PolyglotKeys(new long[10]));
+    }
+}
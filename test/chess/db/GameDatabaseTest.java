@@ -0,0 +1,161 @@
+package chess.db;
+
+import chess.FEN;
+import chess.Perft;
+import chess.board.Board;
+import chess.pgn.PgnGame;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameDatabaseTest {
+
+    static final String GAMES = "[Event \"Ruy Lopez\"]\n\n1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 1-0\n\n"
+            + "[Event \"Transposed\"]\n\n1. Nf3 Nc6 2. e4 e5 3. Bc4 0-1\n\n"
+            + "[Event \"Queen's pawn\"]\n[FEN \"" + Perft.START_FEN + "\"]\n\n1. d4 d5 1/2-1/2\n";
+
+    @TempDir
+    Path dir;
+
+    static List<String> find(GameDatabase db, Board board) {
+        List<String> found = new ArrayList<>();
+        for (long posting : db.find(board)) {
+            found.add(GameDatabase.gameOf(posting) + ":" + GameDatabase.plyOf(posting));
+        }
+        found.sort(null);
+        return found;
+    }
+
+    static Board afterMoves(GameDatabase db, int game, int plies) throws IOException {
+        return db.getGame(game).getBoard(plies);
+    }
+
+    void addGames(GameDatabase db, boolean flushEach) throws IOException {
+        for (PgnGame game : PgnGame.parse(GAMES)) {
+            db.addGame(game);
+            if (flushEach) {
+                db.flush();
+            }
+        }
+    }
+
+    int segmentFiles() throws IOException {
+        int count = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "index-*")) {
+            for (Path ignored : files) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    void testFindsGamesReachingAPosition() throws IOException {
+        try (GameDatabase db = GameDatabase.open(dir)) {
+            addGames(db, false);
+            assertEquals(0, db.find(FEN.load(Perft.START_FEN)).length, "nothing is found before a flush");
+            db.flush();
+            assertEquals(3, db.getGameCount());
+            assertEquals(List.of("0:0", "1:0", "2:0"), find(db, FEN.load(Perft.START_FEN)));
+            // Both move orders reach the position after 2... Nc6
+            assertEquals(List.of("0:4", "1:4"), find(db, afterMoves(db, 0, 4)));
+            assertEquals(List.of("2:2"), find(db, afterMoves(db, 2, 2)));
+
+            PgnGame game = db.getGame(1);
+            assertEquals("Transposed", game.getTag("Event"));
+            assertEquals("0-1", game.getResult());
+            assertEquals(5, game.getMoveCount());
+        }
+    }
+
+    @Test
+    void testReopenUsesSegmentsAndReindexesUnflushedGames() throws IOException {
+        try (GameDatabase db = GameDatabase.open(dir)) {
+            addGames(db, false);
+        }
+        assertEquals(1, segmentFiles());
+        try (GameDatabase db = GameDatabase.open(dir)) {
+            assertEquals(3, db.getGameCount());
+            assertEquals(List.of("0:4", "1:4"), find(db, afterMoves(db, 0, 4)));
+            addGames(db, false);
+            db.flush();
+            assertEquals(6, db.getGameCount());
+            assertEquals(List.of("0:4", "1:4", "3:4", "4:4"), find(db, afterMoves(db, 0, 4)));
+        }
+        // Without its segments the index is rebuilt from the store
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "index-*")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        try (GameDatabase db = GameDatabase.open(dir)) {
+            db.flush();
+            assertEquals(List.of("0:4", "1:4", "3:4", "4:4"), find(db, afterMoves(db, 0, 4)));
+        }
+    }
+
+    @Test
+    void testRejectedGameDoesNotShiftIds() throws IOException {
+        List<PgnGame> games = PgnGame.parse(GAMES);
+        PgnGame first = games.get(0);
+        Map<String, String> tags = new LinkedHashMap<>(first.getTags());
+        tags.put("Annotator", "x".repeat(0x10000));
+        PgnGame oversized = new PgnGame(tags, new int[]{first.getMove(0)}, first.getResult());
+        try (GameDatabase db = GameDatabase.open(dir)) {
+            db.addGame(first);
+            assertThrows(IllegalArgumentException.class, () -> db.addGame(oversized));
+            assertEquals(1, db.addGame(games.get(1)));
+            db.flush();
+            assertEquals(2, db.getGameCount());
+            assertEquals("Transposed", db.getGame(1).getTag("Event"));
+            assertEquals(List.of("0:4", "1:4"), find(db, afterMoves(db, 1, 4)));
+        }
+        try (GameDatabase db = GameDatabase.open(dir)) {
+            assertEquals(2, db.getGameCount());
+            assertEquals("Transposed", db.getGame(1).getTag("Event"));
+        }
+    }
+
+    @Test
+    void testCompactMergesSegments() throws IOException {
+        try (GameDatabase db = GameDatabase.open(dir)) {
+            addGames(db, true);
+            addGames(db, true);
+            assertEquals(6, segmentFiles());
+            List<String> before = find(db, FEN.load(Perft.START_FEN));
+            db.compact();
+            assertEquals(1, segmentFiles());
+            assertEquals(before, find(db, FEN.load(Perft.START_FEN)));
+            assertEquals(List.of("0:4", "1:4", "3:4", "4:4"), find(db, afterMoves(db, 0, 4)));
+        }
+        try (GameDatabase db = GameDatabase.open(dir)) {
+            assertEquals(6, find(db, FEN.load(Perft.START_FEN)).size());
+        }
+    }
+
+    @Test
+    void testSortOrdersByHashThenPosting() {
+        long[] entries = new long[2 * 1000];
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            entries[2 * i] = random.nextInt(50) - 25;
+            entries[2 * i + 1] = random.nextLong();
+        }
+        IndexSegment.sort(entries, 0, 999);
+        for (int i = 1; i < 1000; i++) {
+            int cmp = Long.compare(entries[2 * i - 2], entries[2 * i]);
+            assertTrue(cmp < 0 || cmp == 0 && entries[2 * i - 1] <= entries[2 * i + 1]);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package chess.io;
+
+import chess.FEN;
+import chess.PackedMove;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EpdFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testReadsPositionsAndOperations() throws IOException {
+        Path path = dir.resolve("test.epd");
+        Files.writeString(path, "# Test suite\r\n"
+                + "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - bm e4 d4; id \"start; 1\"; ce 35;\r\n"
+                + "\r\n"
+                + "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1\n"
+                + "   4k3/8/8/8/8/8/8/R3K3 w Q - bm Ra8+; ce -12;");
+        List<String> lines = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        List<Integer> scores = new ArrayList<>();
+        List<String> bestMoves = new ArrayList<>();
+        int[] moves = new int[4];
+        try (EpdFile file = EpdFile.open(path)) {
+            file.forEach(record -> {
+                lines.add(FEN.toFEN(record.getBoard()));
+                ids.add(record.getId() == null ? null : record.getId().toString());
+                scores.add(record.getCentipawns(0));
+                int n = record.getBestMoves(moves);
+                StringBuilder str = new StringBuilder();
+                for (int i = 0; i < n; i++) {
+                    str.append(PackedMove.toUci(moves[i])).append(' ');
+                }
+                bestMoves.add(str.toString().trim());
+            });
+        }
+        assertEquals(List.of("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "4k3/8/8/8/8/8/8/R3K3 w Q - 0 1"), lines);
+        assertEquals(Arrays.asList("start; 1", null, null), ids);
+        assertEquals(List.of(35, 0, -12), scores);
+        assertEquals(List.of("e2e4 d2d4", "", "a1a8"), bestMoves);
+    }
+
+    @Test
+    void testParallelReadMatchesSequential() throws IOException {
+        String[] fens = {
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+        };
+        Path path = dir.resolve("large.epd");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            text.append(fens[i % fens.length]).append(" id \"").append(i).append("\";\n");
+        }
+        Files.writeString(path, text);
+
+        try (EpdFile file = EpdFile.open(path)) {
+            assertNotNull(file.spliterator().trySplit());
+            AtomicLong sequential = new AtomicLong();
+            LongAdder count = new LongAdder();
+            file.forEach(record -> {
+                sequential.addAndGet(record.getBoard().getHash() ^ Long.parseLong(record.getId().toString()));
+                count.increment();
+            });
+            assertEquals(20000, count.sum());
+
+            AtomicLong parallel = new AtomicLong();
+            file.parallelForEach(record ->
+                    parallel.addAndGet(record.getBoard().getHash() ^ Long.parseLong(record.getId().toString())));
+            assertEquals(sequential.get(), parallel.get());
+            assertEquals(20000, file.stream(true).count());
+        }
+    }
+
+    @Test
+    void testInvalidLineReportsPosition() throws IOException {
+        Path path = dir.resolve("bad.epd");
+        Files.writeString(path, "8/8/8/8/8/8/8/8 w - -\nnot a fen\n");
+        try (EpdFile file = EpdFile.open(path)) {
+            var e = assertThrows(IllegalArgumentException.class, () -> file.forEach(record -> { }));
+            assertTrue(e.getMessage().contains("byte 22"), e.getMessage());
+        }
+    }
+}
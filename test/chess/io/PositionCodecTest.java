@@ -0,0 +1,93 @@
+package chess.io;
+
+import chess.FEN;
+import chess.board.Board;
+import org.junit.jupiter.api.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionCodecTest {
+
+    static final String[] FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/3P4/8/PPP1PPPP/RNBQKBNR b KQkq d3 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w Kq - 3 17",
+            "1b1r2k1/1q2rpn1/p1p3p1/Pp1p1pPp/1P1P1P1P/2PNP1Q1/2BR4/1K1R4 b - - 46 59",
+            "8/8/8/8/8/8/8/K6k w - - 300 1000",
+    };
+
+    @Test
+    void testRoundTrip() {
+        Board board = new Board();
+        for (String fen : FENS) {
+            byte[] bytes = PositionCodec.encode(FEN.load(fen));
+            assertEquals(PositionCodec.BYTES, bytes.length);
+            PositionCodec.decode(bytes, 0, board);
+            assertEquals(fen, FEN.toFEN(board));
+            assertEquals(FEN.load(fen).getHash(), board.getHash());
+        }
+    }
+
+    @Test
+    void testByteBuffer() {
+        ByteBuffer heap = ByteBuffer.allocate(3 + FENS.length * PositionCodec.BYTES);
+        // Encodings are big-endian whatever the buffer's order
+        ByteBuffer direct = ByteBuffer.allocateDirect(FENS.length * PositionCodec.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        heap.position(3);
+        for (String fen : FENS) {
+            PositionCodec.encode(FEN.load(fen), heap);
+            PositionCodec.encode(FEN.load(fen), direct);
+        }
+        heap.position(3);
+        direct.flip();
+        Board board = new Board();
+        for (int i = 0; i < FENS.length; i++) {
+            assertEquals(0, PositionCodec.compare(heap, heap.position(), direct, direct.position()));
+            byte[] bytes = new byte[PositionCodec.BYTES];
+            direct.get(direct.position(), bytes);
+            assertArrayEquals(PositionCodec.encode(FEN.load(FENS[i])), bytes);
+            PositionCodec.decode(heap, board);
+            assertEquals(FENS[i], FEN.toFEN(board));
+            PositionCodec.decode(direct, board);
+            assertEquals(FENS[i], FEN.toFEN(board));
+        }
+        assertFalse(heap.hasRemaining());
+    }
+
+    @Test
+    void testBufferTooSmall() {
+        Board board = FEN.load(FENS[0]);
+        for (ByteBuffer buf : new ByteBuffer[]{ByteBuffer.allocate(40), ByteBuffer.allocateDirect(40)}) {
+            buf.position(4).limit(35);
+            assertThrows(BufferOverflowException.class, () -> PositionCodec.encode(board, buf));
+            assertThrows(BufferUnderflowException.class, () -> PositionCodec.decode(buf, board));
+            assertEquals(4, buf.position());
+            for (int i = 0; i < buf.limit(); i++) {
+                assertEquals(0, buf.get(i));
+            }
+        }
+        assertEquals(FENS[0], FEN.toFEN(board));
+    }
+
+    @Test
+    void testComparator() {
+        byte[] start = PositionCodec.encode(FEN.load(FENS[0]));
+        byte[] same = PositionCodec.encode(FEN.load(FENS[0]));
+        byte[] blackToMove = PositionCodec.encode(FEN.load(FENS[0].replace(" w ", " b ")));
+        assertEquals(0, PositionCodec.COMPARATOR.compare(start, same));
+        int cmp = PositionCodec.COMPARATOR.compare(start, blackToMove);
+        assertNotEquals(0, cmp);
+        assertEquals(-Integer.signum(cmp), Integer.signum(PositionCodec.COMPARATOR.compare(blackToMove, start)));
+    }
+
+    @Test
+    void testTooManyPieces() {
+        Board board = FEN.load("pppppppp/pppppppp/pppppppp/pppppppp/PPPPPPPP/8/8/K6k w - - 0 1");
+        assertThrows(IllegalArgumentException.class, () -> PositionCodec.encode(board));
+    }
+}
@@ -0,0 +1,47 @@
+package chess.metrics;
+
+import chess.board.BoardEventListener.IllegalMoveReason;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    void testSnapshotIsFrozen() {
+        Metrics.resetAll();
+        Metrics.MOVES_MADE.add(3);
+        Metrics.illegalMove(IllegalMoveReason.KING_IN_CHECK);
+        Metrics.MOVE_GENERATION_LATENCY.record(250);
+
+        MetricsSnapshot snapshot = Metrics.snapshot();
+        Metrics.MOVES_MADE.increment();
+        assertEquals(3, snapshot.getMovesMade());
+        assertEquals(1, snapshot.getIllegalMoves().get("KING_IN_CHECK"));
+        assertEquals(0, snapshot.getIllegalMoves().get("NO_PIECE"));
+        assertEquals(1, snapshot.getMoveGenerationLatency().getCount());
+        assertEquals(4, Metrics.snapshot().getMovesMade());
+        Metrics.resetAll();
+    }
+
+    @Test
+    void testPublishedOverJmx() throws Exception {
+        Metrics.register();
+        Metrics.register();
+        Metrics.resetAll();
+        Metrics.FEN_PARSES.increment();
+        Metrics.FEN_PARSE_LATENCY.record(1000);
+
+        var server = ManagementFactory.getPlatformMBeanServer();
+        var name = new ObjectName(Metrics.OBJECT_NAME);
+        assertEquals(1L, server.getAttribute(name, "FenParses"));
+        var latency = (CompositeData) server.getAttribute(name, "FenParseLatency");
+        assertEquals(1L, latency.get("count"));
+        assertEquals(Metrics.ENABLED, server.getAttribute(name, "Enabled"));
+        Metrics.resetAll();
+    }
+}
@@ -0,0 +1,70 @@
+package chess.pgn;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PgnImporterTest {
+
+    static String games(int count) {
+        StringBuilder str = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            str.append("[Event \"Game ").append(i).append("\"]\n[Round \"").append(i).append("\"]\n\n");
+            // Every fifth game is much longer than a chunk, every seventh has an illegal move
+            int repeats = i % 5 == 0 ? 40 : 1;
+            str.append("1. e4 e5 ");
+            for (int j = 0; j < repeats; j++) {
+                str.append("Nf3 Nf6 Ng1 Ng8 {shuffle} ");
+            }
+            str.append(i % 7 == 0 ? "Ke3 " : "").append("1/2-1/2\n\n");
+        }
+        return str.toString();
+    }
+
+    @Test
+    void testThreadsReadTheSameGamesAsOne() throws IOException {
+        byte[] pgn = games(200).getBytes(StandardCharsets.US_ASCII);
+        List<String> expected = new ArrayList<>();
+        new PgnParser().parse(pgn, new PgnGame.Builder(game -> expected.add(game.getTag("Event")
+                + ":" + game.getMoveCount())) {
+            @Override
+            public void error(IllegalArgumentException e) {
+            }
+        });
+        assertEquals(200 - 29, expected.size());
+
+        List<String> games = Collections.synchronizedList(new ArrayList<>());
+        PgnImporter.Summary summary = new PgnImporter(3, 512).importGames(new ByteArrayInputStream(pgn),
+                game -> games.add(game.getTag("Event") + ":" + game.getMoveCount()));
+        assertEquals(expected.size(), summary.getGameCount());
+        assertEquals(29, summary.getFailedGameCount());
+        assertEquals(pgn.length, summary.getByteCount());
+        Collections.sort(expected);
+        Collections.sort(games);
+        assertEquals(expected, games);
+    }
+
+    @Test
+    void testConsumerFailureIsRethrown() {
+        byte[] pgn = games(50).getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IllegalStateException.class, () -> new PgnImporter(2, 256).importGames(
+                new ByteArrayInputStream(pgn), game -> {
+                    throw new IllegalStateException();
+                }));
+    }
+
+    @Test
+    void testLastGameStartKeepsTagsTogether() {
+        byte[] pgn = "[A \"1\"]\n[B \"2\"]\n\n1. e4 *\n\n[A \"3\"]\n\n[B \"4\"]\n\n1. d4".getBytes(
+                StandardCharsets.US_ASCII);
+        assertEquals(26, PgnImporter.lastGameStart(pgn, pgn.length));
+        assertEquals(-1, PgnImporter.lastGameStart(pgn, 20));
+    }
+}
@@ -0,0 +1,134 @@
+package chess.pgn;
+
+import chess.FEN;
+import chess.PackedMove;
+import chess.board.Board;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PgnParserTest {
+
+    static final String GAME = "[Event \"Test \\\"quoted\\\"\"]\n"
+            + "[Site \"?\"]\n"
+            + "[Result \"1-0\"]\n"
+            + "\n"
+            + "1. e4 {best by test} e5 2. Nf3 $1 (2. f4 exf4 (2... d5) 3. Nf3) 2... Nc6 ; rest of line\n"
+            + "3.Bb5 a6 4. Ba4 Nf6 5. O-O Be7 6. Re1 b5 7. Bb3 d6 8. c3 O-O 9. h3 Nb8 10. d4 Nbd7! 1-0\n";
+
+    @Test
+    void testReadsTagsMovesAndResult() {
+        List<PgnGame> games = PgnGame.parse(GAME);
+        assertEquals(1, games.size());
+        PgnGame game = games.get(0);
+        assertEquals("Test \"quoted\"", game.getTag("Event"));
+        assertEquals(List.of("Event", "Site", "Result"), new ArrayList<>(game.getTags().keySet()));
+        assertEquals("1-0", game.getResult());
+        assertEquals(20, game.getMoveCount());
+        assertEquals("e2e4", PackedMove.toUci(game.getMove(0)));
+        assertEquals("e1g1", PackedMove.toUci(game.getMove(8)));
+        assertEquals("b8d7", PackedMove.toUci(game.getMove(19)));
+        assertEquals("r1bq1rk1/2pnbppp/p2p1n2/1p2p3/3PP3/1BP2N1P/PP3PP1/RNBQR1K1 w - - 1 11",
+                FEN.toFEN(game.getBoard(20)));
+    }
+
+    @Test
+    void testVisitorSeesCommentsNagsAndVariations() {
+        List<String> events = new ArrayList<>();
+        new PgnParser().parse(GAME, new PgnVisitor() {
+            @Override
+            public void move(Board board, int move) {
+                events.add(PackedMove.toSan(board, move));
+            }
+
+            @Override
+            public void startVariation() {
+                events.add("(");
+            }
+
+            @Override
+            public void endVariation() {
+                events.add(")");
+            }
+
+            @Override
+            public void comment(CharSequence comment) {
+                events.add("{" + comment + "}");
+            }
+
+            @Override
+            public void nag(int nag) {
+                events.add("$" + nag);
+            }
+
+            @Override
+            public void endGame(String result) {
+                events.add(result);
+            }
+        });
+        assertEquals(List.of("e4", "{best by test}", "e5", "Nf3", "$1", "(", "f4", "exf4", "(", "d5", ")", "Nf3",
+                ")", "Nc6", "{ rest of line}", "Bb5"), events.subList(0, 16));
+        assertEquals("1-0", events.get(events.size() - 1));
+    }
+
+    @Test
+    void testSetUpPromotionAndDisambiguation() {
+        List<PgnGame> games = PgnGame.parse("[FEN \"4k3/1P6/8/8/8/8/8/R3K2R w KQ - 0 1\"]\n\n"
+                + "1. b8=Q+ Kd7 2. Rad1+ Kc6 3. 0-0 *\n"
+                + "[FEN \"4k3/8/8/8/8/8/8/R3K2R w KQ - 0 1\"]\n\n"
+                + "1. O-O-O Kf7 2. Rhh8 *");
+        assertEquals(2, games.size());
+        assertEquals("4k3/1P6/8/8/8/8/8/R3K2R w KQ - 0 1", games.get(0).getStartingFen());
+        assertEquals("b7b8q", PackedMove.toUci(games.get(0).getMove(0)));
+        assertEquals("a1d1", PackedMove.toUci(games.get(0).getMove(2)));
+        assertEquals("e1g1", PackedMove.toUci(games.get(0).getMove(4)));
+        assertEquals("*", games.get(0).getResult());
+        assertEquals("e1c1", PackedMove.toUci(games.get(1).getMove(0)));
+        assertEquals("h1h8", PackedMove.toUci(games.get(1).getMove(2)));
+    }
+
+    @Test
+    void testAmbiguousAndIllegalMovesAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> PgnGame.parse("[FEN \"4k3/8/8/8/8/8/4K3/R6R w - - 0 1\"]\n\n1. Rd1 *"));
+        assertThrows(IllegalArgumentException.class, () -> PgnGame.parse("1. e5 *"));
+        assertThrows(IllegalArgumentException.class, () -> PgnGame.parse("1. e4 (e5 *"));
+        assertThrows(IllegalArgumentException.class, () -> PgnGame.parse("1. e4 {unclosed"));
+    }
+
+    @Test
+    void testBadGameIsSkipped() {
+        List<String> results = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        PgnVisitor visitor = new PgnVisitor() {
+            @Override
+            public void endGame(String result) {
+                results.add(result);
+            }
+
+            @Override
+            public void error(IllegalArgumentException e) {
+                errors.add(e.getMessage());
+            }
+        };
+        int games = new PgnParser().parse("[Event \"1\"]\n\n1. e4 e5 1-0\n\n"
+                + "[Event \"2\"]\n\n1. e4 e5 2. Ke3 0-1\n\n"
+                + "[Event \"3\"]\n\n1. d4 1/2-1/2\n", visitor);
+        assertEquals(2, games);
+        assertEquals(List.of("1-0", "1/2-1/2"), results);
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).contains("Illegal move Ke3"), errors.get(0));
+
+        // The next game's tags straight after the bad move still start a new game
+        results.clear();
+        errors.clear();
+        games = new PgnParser().parse("[Event \"1\"]\n\n1. e4 e5 2. Ke3\n[Event \"2\"]\n\n1. d4 d5 *\n\n"
+                + "[Event \"3\"]\n\n1. c4 *\n", visitor);
+        assertEquals(2, games);
+        assertEquals(List.of("*", "*"), results);
+        assertEquals(1, errors.size());
+    }
+}
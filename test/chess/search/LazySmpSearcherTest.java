@@ -0,0 +1,72 @@
+package chess.search;
+
+import chess.ChessGame;
+import chess.FEN;
+import chess.MoveGenerator;
+import chess.PackedMove;
+import chess.board.Board;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazySmpSearcherTest {
+
+    @Test
+    public void testThreadsAgreeOnTacticalMoves() {
+        LazySmpSearcher searcher = new LazySmpSearcher(4, new TranspositionTable(8));
+        assertEquals(4, searcher.getThreads());
+
+        Board board = FEN.load("4k3/8/8/3q4/4P3/8/8/4K3 w - - 0 1");
+        long hash = board.getHash();
+        SearchResult result = searcher.search(board, SearchLimits.depth(5));
+        assertEquals("e4d5", PackedMove.toUci(result.getBestMove()));
+        assertEquals(5, result.getDepth());
+        assertEquals(hash, board.getHash());
+
+        SearchResult mate = searcher.search(FEN.load("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"), SearchLimits.depth(4));
+        assertEquals(Searcher.MATE - 1, mate.getScore());
+    }
+
+    @Test
+    public void testNodesAddUpAcrossThreads() {
+        Board board = FEN.load("r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4");
+        LazySmpSearcher searcher = new LazySmpSearcher(3, new TranspositionTable(8));
+        List<SearchResult> iterations = new ArrayList<>();
+        SearchResult result = searcher.search(board, SearchLimits.depth(5), iterations::add);
+        // Only the main thread reports, and the helpers' nodes are added to its own
+        assertEquals(5, iterations.size());
+        assertTrue(result.getNodes() >= iterations.get(4).getNodes());
+        assertTrue(contains(MoveGenerator.generateLegalMoves(board), result.getBestMove()));
+
+        searcher.setThreads(1);
+        assertEquals(1, searcher.getThreads());
+        assertEquals(5, searcher.search(board, SearchLimits.depth(5)).getDepth());
+        assertThrows(IllegalArgumentException.class, () -> searcher.setThreads(0));
+    }
+
+    @Test
+    public void testStopEndsAnUnlimitedSearch() throws InterruptedException {
+        ChessGame game = new ChessGame();
+        game.setSearchThreads(2);
+        SearchResult[] result = new SearchResult[1];
+        Thread thread = new Thread(() -> result[0] = game.findBestMove(SearchLimits.INFINITE));
+        thread.start();
+        Thread.sleep(200);
+        game.stopSearch();
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+        assertNotEquals(PackedMove.NONE, result[0].getBestMove());
+    }
+
+    static boolean contains(int[] moves, int move) {
+        for (int m : moves) {
+            if (m == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,112 @@
+package chess.search;
+
+import chess.ChessGame;
+import chess.FEN;
+import chess.MoveGenerator;
+import chess.PackedMove;
+import chess.Perft;
+import chess.board.Board;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearcherTest {
+
+    static String bestUci(String fen, int depth) {
+        return PackedMove.toUci(new Searcher().search(FEN.load(fen), SearchLimits.depth(depth)).getBestMove());
+    }
+
+    @Test
+    public void testFindsMates() {
+        SearchResult mateIn1 = new Searcher().search(FEN.load("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"),
+                SearchLimits.depth(4));
+        assertEquals("a1a8", PackedMove.toUci(mateIn1.getBestMove()));
+        assertEquals(Searcher.MATE - 1, mateIn1.getScore());
+        assertEquals(1, mateIn1.getMateIn());
+
+        // Mate in 2: 1. Nf6+ gxf6 2. Bxf7#, the only move that mates this quickly
+        SearchResult mateIn2 = new Searcher().search(
+                FEN.load("r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 1"), SearchLimits.depth(6));
+        assertEquals("d5f6", PackedMove.toUci(mateIn2.getBestMove()), mateIn2.toString());
+        assertEquals(Searcher.MATE - 3, mateIn2.getScore());
+        assertEquals(2, mateIn2.getMateIn());
+
+        // Being mated: black to move, mated next move whatever it does
+        SearchResult mated = new Searcher().search(FEN.load("k7/8/1K6/8/8/8/8/7R b - - 0 1"), SearchLimits.depth(4));
+        assertTrue(mated.getScore() < 0);
+    }
+
+    @Test
+    public void testWinsMaterialAndAvoidsLosingIt() {
+        // The queen on d5 is free
+        assertEquals("e4d5", bestUci("4k3/8/8/3q4/4P3/8/8/4K3 w - - 0 1", 3));
+        // Taking the defended pawn loses the queen
+        assertNotEquals("d1d7", bestUci("4k3/2rp4/8/8/8/8/8/3QK3 w - - 0 1", 4));
+    }
+
+    @Test
+    public void testNoMovesAndDraws() {
+        SearchResult stalemate = new Searcher().search(FEN.load("k7/8/1Q6/8/8/8/8/7K b - - 0 1"),
+                SearchLimits.depth(3));
+        assertEquals(PackedMove.NONE, stalemate.getBestMove());
+        assertEquals(0, stalemate.getScore());
+
+        // Black is two rooks down but has perpetual check with Qe1+ Kh2 Qh4+ Kg1
+        Board board = FEN.load("6k1/RR3ppp/8/8/4q3/8/5PP1/6K1 b - - 0 1");
+        SearchResult perpetual = new Searcher().search(board, SearchLimits.depth(6));
+        assertTrue(Math.abs(perpetual.getScore()) < 500, perpetual.toString());
+    }
+
+    @Test
+    public void testIterationsAndLimits() {
+        Board board = FEN.load(Perft.START_FEN);
+        long hash = board.getHash();
+        List<SearchResult> iterations = new ArrayList<>();
+        SearchResult result = new Searcher().search(board, SearchLimits.depth(5), iterations::add);
+        assertEquals(5, iterations.size());
+        for (int i = 0; i < iterations.size(); i++) {
+            assertEquals(i + 1, iterations.get(i).getDepth());
+        }
+        assertSame(iterations.get(4), result);
+        assertEquals(hash, board.getHash(), "The board searched is not changed");
+        assertEquals(0, board.getUndoSize());
+
+        // The principal variation is a line of legal moves
+        Board line = FEN.load(Perft.START_FEN);
+        for (int move : result.getPv()) {
+            assertTrue(contains(MoveGenerator.generateLegalMoves(line), move));
+            line.makeMove(move);
+        }
+        assertTrue(result.toString().startsWith("depth 5 score cp "), result.toString());
+
+        SearchResult limited = new Searcher().search(board, SearchLimits.nodes(500));
+        assertTrue(limited.getNodes() <= 500);
+        assertNotEquals(PackedMove.NONE, limited.getBestMove());
+
+        long start = System.nanoTime();
+        SearchResult timed = new Searcher().search(board, SearchLimits.millis(100));
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+        assertTrue(timed.getDepth() >= 1);
+
+        assertThrows(IllegalArgumentException.class, () -> SearchLimits.depth(0));
+    }
+
+    @Test
+    public void testChessGameSearch() {
+        ChessGame game = new ChessGame("4k3/8/8/3q4/4P3/8/8/4K3 w - - 0 1");
+        SearchResult result = game.findBestMove(SearchLimits.depth(3));
+        assertEquals("e4d5", PackedMove.toUci(result.getBestMove()));
+    }
+
+    static boolean contains(int[] moves, int move) {
+        for (int m : moves) {
+            if (m == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
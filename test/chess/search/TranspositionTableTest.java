@@ -0,0 +1,129 @@
+package chess.search;
+
+import chess.FEN;
+import chess.PackedMove;
+import chess.board.Board;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+
+    /**
+     * Hashes that differ only above the bucket index bits, so they share a bucket
+     */
+    static long sameBucket(int i) {
+        return ((long) (i + 1) << 40) | 12345;
+    }
+
+    @Test
+    public void testStoresAndProbes() {
+        TranspositionTable table = new TranspositionTable(1);
+        long hash = 0x0123456789ABCDEFL;
+        int move = PackedMove.encode(52, 36, PackedMove.DOUBLE_PAWN_PUSH);
+        assertEquals(0L, table.probe(hash));
+
+        table.store(hash, move, -1234, 7, TranspositionTable.LOWER);
+        long entry = table.probe(hash);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(-1234, TranspositionTable.score(entry));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        assertEquals(0L, table.probe(hash ^ 1L << 50));
+
+        // Storing without a move keeps the old one
+        table.store(hash, PackedMove.NONE, 20, 8, TranspositionTable.UPPER);
+        assertEquals(move, TranspositionTable.move(table.probe(hash)));
+        assertEquals(20, TranspositionTable.score(table.probe(hash)));
+
+        assertEquals(5, table.getProbes());
+        assertEquals(3, table.getHits());
+        assertEquals(2, table.getStores());
+        assertEquals(1024 * 1024 / 16, table.getCapacity());
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+    }
+
+    @Test
+    public void testReplacementPrefersDepthAndAge() {
+        TranspositionTable table = new TranspositionTable(1);
+        int[] depths = {9, 3, 12, 6};
+        for (int i = 0; i < depths.length; i++) {
+            table.store(sameBucket(i), PackedMove.NONE, 0, depths[i], TranspositionTable.EXACT);
+        }
+        assertEquals(0, table.getOverwrites());
+
+        // A full bucket gives up its shallowest entry
+        table.store(sameBucket(4), PackedMove.NONE, 0, 1, TranspositionTable.EXACT);
+        assertEquals(0L, table.probe(sameBucket(1)));
+        assertNotEquals(0L, table.probe(sameBucket(4)));
+        assertEquals(1, table.getOverwrites());
+
+        // A deeper result of the same search is not replaced by a shallow bound
+        table.store(sameBucket(2), PackedMove.NONE, 50, 2, TranspositionTable.LOWER);
+        assertEquals(12, TranspositionTable.depth(table.probe(sameBucket(2))));
+
+        // Each search of age counts as 8 plies less, so old entries make way for new shallow ones
+        table.newSearch();
+        table.newSearch();
+        for (int i = 5; i < 8; i++) {
+            table.store(sameBucket(i), PackedMove.NONE, 0, 1, TranspositionTable.EXACT);
+        }
+        assertEquals(0L, table.probe(sameBucket(0)), "depth 9 two searches old counts as -7");
+        assertNotEquals(0L, table.probe(sameBucket(2)), "depth 12 two searches old counts as -4");
+        for (int i = 5; i < 8; i++) {
+            assertNotEquals(0L, table.probe(sameBucket(i)));
+        }
+    }
+
+    @Test
+    public void testConcurrentWritersNeverShowTornEntries() throws InterruptedException {
+        TranspositionTable table = new TranspositionTable(1);
+        AtomicLong bad = new AtomicLong();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long seed = t;
+            threads[t] = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                for (int i = 0; i < 200_000; i++) {
+                    // Thousands of positions in 16 buckets, so threads keep writing over each other
+                    int position = 1 + random.nextInt(4096);
+                    long hash = (position * 0x9E3779B97F4A7C15L & ~0x3FFFL) | (position & 15);
+                    long entry = table.probe(hash);
+                    // Every entry's fields are derived from its hash, so a mismatch means a torn read
+                    if (entry != 0 && (TranspositionTable.move(entry) != (int) (hash >>> 48)
+                            || TranspositionTable.score(entry) != (short) (hash >>> 20))) {
+                        bad.incrementAndGet();
+                    }
+                    table.store(hash, (int) (hash >>> 48), (short) (hash >>> 20), 1 + (int) (hash & 7),
+                            TranspositionTable.EXACT);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, bad.get());
+        assertTrue(table.getHits() > 0);
+    }
+
+    @Test
+    public void testSearchReusesTable() {
+        Board board = FEN.load("r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4");
+        TranspositionTable table = new TranspositionTable(8);
+        Searcher searcher = new Searcher(table);
+        SearchResult first = searcher.search(board, SearchLimits.depth(6));
+        assertTrue(table.getHits() > 0);
+        assertTrue(table.getHashfull() > 0);
+        // The second search finds the first one's results and needs far fewer nodes
+        SearchResult second = searcher.search(board, SearchLimits.depth(6));
+        assertTrue(second.getNodes() < first.getNodes() / 2, first.getNodes() + " then " + second.getNodes());
+
+        assertEquals(Searcher.MATE - 5, Searcher.scoreFromTable(Searcher.scoreToTable(Searcher.MATE - 5, 3), 3));
+        assertEquals(Searcher.MATE - 2, Searcher.scoreToTable(Searcher.MATE - 5, 3));
+        assertEquals(-Searcher.MATE + 2, Searcher.scoreToTable(-Searcher.MATE + 5, 3));
+    }
+}